@@ -0,0 +1,81 @@
+package benchmark;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import stockmarket.StockMarket;
+import stockmarket.StockMarketConfig;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bursts of small crossing orders on an illiquid pair, matched continuously or collected and uncrossed once per
+ * burst. Each invocation places one burst and leaves the book empty. Without a published depth view both modes
+ * place orders at about the same rate, an auction saves only the views a continuous book publishes after every order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(AuctionBenchmark.BURST)
+public class AuctionBenchmark {
+
+    static final int BURST = 1000;
+    private static final CurrencyPair PAIR = CurrencyPair.RUB_JPY;
+
+    @Param({"false", "true"})
+    public boolean auction;
+
+    private StockMarket stockMarket;
+    private Client[] clients;
+    private Order[] burst;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StockMarketConfig config = new StockMarketConfig();
+        if (auction) {
+            config.setAuctionPairs(Set.of(PAIR));
+            config.setAuctionIntervalMillis(0);
+            config.setAuctionOrderCount(0);
+        }
+        stockMarket = new StockMarket(config);
+        clients = new Client[16];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = StockMarketBenchmark.newClient(i + 1);
+        }
+        burst = new Order[BURST];
+        random = new SplittableRandom(17);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stockMarket.close();
+    }
+
+    /**
+     * Orders are created outside of the measurement, so both modes pay only for matching and settlement
+     */
+    @Setup(Level.Invocation)
+    public void prepareBurst() {
+        for (int i = 0; i < BURST; i++) {
+            OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+            burst[i] = new Order(clients[random.nextInt(clients.length)], PAIR, orderType, BigDecimal.ONE,
+                    BigDecimal.valueOf(9_950 + random.nextInt(101), 2));
+        }
+    }
+
+    @Benchmark
+    public int placeBurst() {
+        for (Order order : burst) {
+            stockMarket.addOrder(order);
+        }
+        int fills = auction ? stockMarket.uncross(PAIR) : 0;
+        stockMarket.revokeAllOrders();
+        return fills;
+    }
+}
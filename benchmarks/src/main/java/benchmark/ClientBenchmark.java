@@ -0,0 +1,54 @@
+package benchmark;
+
+import model.Client;
+import model.Currency;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit and withdraw from four threads, either each on its own client or all on one shared client
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ClientBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("12.34");
+
+    @State(Scope.Thread)
+    public static class OwnClient {
+        public Client client;
+
+        @Setup
+        public void setUp() {
+            client = StockMarketBenchmark.newClient(1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedClient {
+        public Client client;
+
+        @Setup
+        public void setUp() {
+            client = StockMarketBenchmark.newClient(1);
+        }
+    }
+
+    @Benchmark
+    public void depositWithdrawUncontended(OwnClient state) {
+        state.client.deposit(Currency.USD, AMOUNT);
+        state.client.withdraw(Currency.USD, AMOUNT);
+    }
+
+    @Benchmark
+    public void depositWithdrawContended(SharedClient state) {
+        state.client.deposit(Currency.USD, AMOUNT);
+        state.client.withdraw(Currency.USD, AMOUNT);
+    }
+}
@@ -0,0 +1,111 @@
+package benchmark;
+
+import model.Client;
+import model.ClientLoader;
+import model.ClientRegistry;
+import model.Currency;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start-of-day load of a million accounts with a balance in every currency, from CSV and JSON files through
+ * {@link ClientLoader}, against creating the clients one by one and depositing each balance
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ClientLoadBenchmark {
+
+    private static final int CLIENTS = 1_000_000;
+
+    private Path csvFile;
+    private Path jsonFile;
+    private BigDecimal[][] balances;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Currency[] currencies = Currency.values();
+        SplittableRandom random = new SplittableRandom(1);
+        balances = new BigDecimal[CLIENTS][currencies.length];
+        for (BigDecimal[] clientBalances : balances) {
+            for (int j = 0; j < currencies.length; j++) {
+                clientBalances[j] = BigDecimal.valueOf(random.nextLong(100_000_000), 2);
+            }
+        }
+
+        csvFile = Files.createTempFile("clients", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile)) {
+            writer.write("id");
+            for (Currency currency : currencies) {
+                writer.write("," + currency.name());
+            }
+            writer.newLine();
+            for (int id = 0; id < CLIENTS; id++) {
+                writer.write(Integer.toString(id));
+                for (BigDecimal balance : balances[id]) {
+                    writer.write("," + balance.toPlainString());
+                }
+                writer.newLine();
+            }
+        }
+
+        jsonFile = Files.createTempFile("clients", ".json");
+        try (BufferedWriter writer = Files.newBufferedWriter(jsonFile)) {
+            writer.write('[');
+            for (int id = 0; id < CLIENTS; id++) {
+                writer.write((id == 0 ? "" : ",") + "{\"id\":" + id + ",\"balances\":{");
+                for (int j = 0; j < currencies.length; j++) {
+                    writer.write((j == 0 ? "\"" : ",\"") + currencies[j].name() + "\":" + balances[id][j].toPlainString());
+                }
+                writer.write("}}");
+            }
+            writer.write(']');
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(jsonFile);
+    }
+
+    @Benchmark
+    public ClientRegistry loadCsv() throws IOException {
+        ClientRegistry registry = new ClientRegistry(CLIENTS);
+        new ClientLoader(registry).loadCsv(csvFile);
+        return registry;
+    }
+
+    @Benchmark
+    public ClientRegistry loadJson() throws IOException {
+        ClientRegistry registry = new ClientRegistry(CLIENTS);
+        new ClientLoader(registry).loadJson(jsonFile);
+        return registry;
+    }
+
+    /**
+     * The way accounts were seeded before, from balances already in memory
+     */
+    @Benchmark
+    public ClientRegistry depositOneByOne() {
+        Currency[] currencies = Currency.values();
+        ClientRegistry registry = new ClientRegistry(CLIENTS);
+        for (int id = 0; id < CLIENTS; id++) {
+            Client client = registry.register(id);
+            for (int j = 0; j < currencies.length; j++) {
+                client.deposit(currencies[j], balances[id][j]);
+            }
+        }
+        return registry;
+    }
+}
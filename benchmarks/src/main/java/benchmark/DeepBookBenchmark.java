@@ -0,0 +1,90 @@
+package benchmark;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import stockmarket.OrderStorage;
+import stockmarket.StockMarket;
+import stockmarket.StockMarketConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A book holding millions of resting orders on the heap or outside of it. {@code fullGc} times a full collection,
+ * which has to trace every resting order kept on the heap, {@code addCrossingOrder} matches at the top of the book.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class DeepBookBenchmark {
+
+    private static final CurrencyPair PAIR = CurrencyPair.USD_RUB;
+    private static final long AMOUNT = 1;
+    private static final long SPREAD_PRICE = 1_000_000;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public OrderStorage orderStorage;
+
+    @Param({"100000", "1000000", "3000000"})
+    public int depth;
+
+    private StockMarket stockMarket;
+    private OrderPool orderPool;
+    private Client seller;
+    private Client buyer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setPublishedDepthLevels(0);
+        config.setOrderStorage(orderStorage);
+        stockMarket = new StockMarket(config);
+        orderPool = new OrderPool(1024);
+        Client maker = StockMarketBenchmark.newClient(1);
+        seller = StockMarketBenchmark.newClient(2);
+        buyer = StockMarketBenchmark.newClient(3);
+
+        // Off-heap books copy resting orders, so the order objects go back to the pool right away
+        for (int i = 0; i < depth / 2; i++) {
+            long offset = 100 + 1 + i / 100;
+            Order bid = orderPool.acquire(maker, PAIR, OrderType.BUY, AMOUNT, SPREAD_PRICE - offset);
+            stockMarket.addOrder(bid);
+            Order ask = orderPool.acquire(maker, PAIR, OrderType.SELL, AMOUNT, SPREAD_PRICE + offset);
+            stockMarket.addOrder(ask);
+            if (orderStorage == OrderStorage.OFF_HEAP) {
+                orderPool.release(bid);
+                orderPool.release(ask);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stockMarket.close();
+    }
+
+    @Benchmark
+    public void fullGc() {
+        System.gc();
+    }
+
+    /**
+     * A sell order resting inside the spread that is filled completely by the next buy order
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean addCrossingOrder() {
+        Order sellOrder = orderPool.acquire(seller, PAIR, OrderType.SELL, AMOUNT, SPREAD_PRICE);
+        stockMarket.addOrder(sellOrder);
+        Order buyOrder = orderPool.acquire(buyer, PAIR, OrderType.BUY, AMOUNT, SPREAD_PRICE);
+        boolean resting = stockMarket.addOrder(buyOrder);
+        orderPool.release(sellOrder);
+        orderPool.release(buyOrder);
+        Client client = seller;
+        seller = buyer;
+        buyer = client;
+        return resting;
+    }
+}
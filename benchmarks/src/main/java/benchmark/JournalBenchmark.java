@@ -0,0 +1,56 @@
+package benchmark;
+
+import journal.FsyncPolicy;
+import journal.Journal;
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of journaling one accepted order, the overhead the journal adds to every addOrder call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+    @Param({"NONE", "GROUP_COMMIT"})
+    public FsyncPolicy fsyncPolicy;
+
+    private Path path;
+    private Journal journal;
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = Files.createTempFile("journal", ".bin");
+        journal = new Journal(path, fsyncPolicy, 10, Journal.DEFAULT_SEGMENT_SIZE);
+        order = new Order(StockMarketBenchmark.newClient(1), CurrencyPair.USD_RUB, OrderType.BUY, BigDecimal.ONE, new BigDecimal(65));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.delete(path);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void appendOrder() {
+        journal.appendOrder(order);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void appendOrderConcurrently() {
+        journal.appendOrder(order);
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import stockmarket.MatchingMode;
+import stockmarket.StockMarket;
+import stockmarket.StockMarketConfig;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Four threads place random orders on three pairs around a common mid price and cancel a part of them,
+ * in both matching modes
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MixedWorkloadBenchmark {
+
+    private static final CurrencyPair[] PAIRS = {CurrencyPair.USD_EUR, CurrencyPair.USD_RUB, CurrencyPair.EUR_RUB};
+
+    @State(Scope.Benchmark)
+    public static class Market {
+        @Param({"LOCKING", "SINGLE_WRITER"})
+        public MatchingMode matchingMode;
+
+        public StockMarket stockMarket;
+        private final AtomicInteger clientIds = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            StockMarketConfig config = new StockMarketConfig();
+            config.setMatchingMode(matchingMode);
+            stockMarket = new StockMarket(config);
+        }
+
+        @TearDown(Level.Iteration)
+        public void revokeAll() {
+            stockMarket.revokeAllOrders();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            stockMarket.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Trader {
+        public Client client;
+        public SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(Market market) {
+            client = StockMarketBenchmark.newClient(market.clientIds.incrementAndGet());
+            random = new SplittableRandom(client.getId());
+        }
+    }
+
+    @Benchmark
+    public Object placeRandomOrder(Market market, Trader trader) {
+        SplittableRandom random = trader.random;
+        OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 12));
+        BigDecimal price = BigDecimal.valueOf(random.nextInt(9_000, 11_001), 2);
+        Order order = new Order(trader.client, PAIRS[random.nextInt(PAIRS.length)], orderType, amount, price);
+
+        OrderResult result = market.stockMarket.addOrderAsync(order).join();
+        if (result.isResting() && random.nextInt(4) == 0) {
+            return market.stockMarket.cancelOrder(order.getId());
+        }
+        return result;
+    }
+}
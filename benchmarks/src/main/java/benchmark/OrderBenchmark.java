@@ -0,0 +1,39 @@
+package benchmark;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order construction, which reserves the funds of the client, followed by the refund of the reservation
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal(15);
+    private static final BigDecimal PRICE = new BigDecimal("66.66");
+
+    @Param({"BUY", "SELL"})
+    public OrderType orderType;
+
+    private Client client;
+
+    @Setup
+    public void setUp() {
+        client = StockMarketBenchmark.newClient(1);
+    }
+
+    @Benchmark
+    public Order createAndRevokeOrder() {
+        Order order = new Order(client, CurrencyPair.USD_RUB, orderType, AMOUNT, PRICE);
+        order.revoke();
+        return order;
+    }
+}
@@ -0,0 +1,86 @@
+package benchmark;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import stockmarket.StockMarket;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded {@link StockMarket#addOrder(Order)} against a book that already holds {@code depth} resting
+ * orders on each side. Every invocation leaves the book as deep as it found it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockMarketBenchmark {
+
+    private static final CurrencyPair PAIR = CurrencyPair.USD_RUB;
+    private static final BigDecimal RICH = new BigDecimal(1_000_000_000);
+    private static final BigDecimal ONE = BigDecimal.ONE;
+    private static final BigDecimal SPREAD_PRICE = new BigDecimal(100);
+
+    @Param({"100", "10000", "100000"})
+    public int depth;
+
+    private StockMarket stockMarket;
+    private Client seller;
+    private Client buyer;
+    private BigDecimal passiveBuyPrice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stockMarket = new StockMarket();
+        Client maker = newClient(1);
+        seller = newClient(2);
+        buyer = newClient(3);
+
+        // Bids strictly below and asks strictly above the spread price, up to 100 orders per level
+        for (int i = 0; i < depth; i++) {
+            BigDecimal offset = BigDecimal.valueOf(1 + i / 100, 2);
+            stockMarket.addOrder(new Order(maker, PAIR, OrderType.BUY, ONE, SPREAD_PRICE.subtract(BigDecimal.ONE).subtract(offset)));
+            stockMarket.addOrder(new Order(maker, PAIR, OrderType.SELL, ONE, SPREAD_PRICE.add(BigDecimal.ONE).add(offset)));
+        }
+        passiveBuyPrice = SPREAD_PRICE.subtract(BigDecimal.ONE).subtract(BigDecimal.valueOf(depth / 200, 2));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stockMarket.close();
+    }
+
+    /**
+     * A buy order that rests in the middle of the bid side and is cancelled again
+     */
+    @Benchmark
+    public boolean addNonCrossingOrder() {
+        Order order = new Order(buyer, PAIR, OrderType.BUY, ONE, passiveBuyPrice);
+        stockMarket.addOrder(order);
+        return stockMarket.cancelOrder(order.getId());
+    }
+
+    /**
+     * A sell order resting inside the spread that is filled completely by the next buy order
+     */
+    @Benchmark
+    public OrderResult addCrossingOrder() {
+        stockMarket.addOrder(new Order(seller, PAIR, OrderType.SELL, ONE, SPREAD_PRICE));
+        OrderResult result = stockMarket.addOrderAsync(new Order(buyer, PAIR, OrderType.BUY, ONE, SPREAD_PRICE)).join();
+        Client client = seller;
+        seller = buyer;
+        buyer = client;
+        return result;
+    }
+
+    static Client newClient(int id) {
+        Client client = new Client(id);
+        for (Currency currency : Currency.values()) {
+            client.deposit(currency, RICH);
+        }
+        return client;
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import stockmarket.StockMarket;
+import stockmarket.StockMarketConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady-state matching with pooled orders, no listeners and no published depth view. Run through
+ * {@link BenchmarkRunner} and check that {@code gc.alloc.rate.norm} stays at 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZeroAllocationBenchmark {
+
+    private static final CurrencyPair PAIR = CurrencyPair.USD_RUB;
+    private static final long AMOUNT = 100;
+    private static final long SPREAD_PRICE = 10_000;
+
+    @Param({"100", "10000"})
+    public int depth;
+
+    private StockMarket stockMarket;
+    private OrderPool orderPool;
+    private Client seller;
+    private Client buyer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setPublishedDepthLevels(0);
+        stockMarket = new StockMarket(config);
+        orderPool = new OrderPool(1024);
+        Client maker = StockMarketBenchmark.newClient(1);
+        seller = StockMarketBenchmark.newClient(2);
+        buyer = StockMarketBenchmark.newClient(3);
+
+        // Bids strictly below and asks strictly above the spread price, up to 100 orders per level
+        for (int i = 0; i < depth; i++) {
+            long offset = 100 + 1 + i / 100;
+            stockMarket.addOrder(orderPool.acquire(maker, PAIR, OrderType.BUY, AMOUNT, SPREAD_PRICE - offset));
+            stockMarket.addOrder(orderPool.acquire(maker, PAIR, OrderType.SELL, AMOUNT, SPREAD_PRICE + offset));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stockMarket.close();
+    }
+
+    /**
+     * A sell order resting inside the spread that is filled completely by the next buy order
+     */
+    @Benchmark
+    public boolean addCrossingOrder() {
+        Order sellOrder = orderPool.acquire(seller, PAIR, OrderType.SELL, AMOUNT, SPREAD_PRICE);
+        stockMarket.addOrder(sellOrder);
+        Order buyOrder = orderPool.acquire(buyer, PAIR, OrderType.BUY, AMOUNT, SPREAD_PRICE);
+        boolean resting = stockMarket.addOrder(buyOrder);
+        orderPool.release(sellOrder);
+        orderPool.release(buyOrder);
+        Client client = seller;
+        seller = buyer;
+        buyer = client;
+        return resting;
+    }
+
+    /**
+     * A buy order that rests in the middle of the bid side and is cancelled again
+     */
+    @Benchmark
+    public boolean addNonCrossingOrder() {
+        Order order = orderPool.acquire(buyer, PAIR, OrderType.BUY, AMOUNT, SPREAD_PRICE - 100 - 1 - depth / 200);
+        stockMarket.addOrder(order);
+        boolean cancelled = stockMarket.cancelOrder(order.getId());
+        orderPool.release(order);
+        return cancelled;
+    }
+}
@@ -1,12 +1,43 @@
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
 import model.*;
 import stockmarket.StockMarket;
+import util.FixedPointUtils;
 
 import java.math.BigDecimal;
 
 public class StockMarketApp {
 
-    private static final Gson gson = new Gson();
+    /**
+     * Prints orders and clients with their amounts in currency units and balances by currency name, the way they
+     * looked before amounts were kept as fixed-point longs
+     */
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(CurrencyPair.class, (JsonSerializer<CurrencyPair>) (currencyPair, type, context) -> new JsonPrimitive(currencyPair.name()))
+            .registerTypeAdapter(Client.class, (JsonSerializer<Client>) (client, type, context) -> {
+                JsonObject balance = new JsonObject();
+                for (Currency currency : Currency.values()) {
+                    balance.add(currency.name(), new JsonPrimitive(client.getBalance(currency)));
+                }
+                JsonObject json = new JsonObject();
+                json.addProperty("id", client.getId());
+                json.add("balance", balance);
+                return json;
+            })
+            .registerTypeAdapter(Order.class, (JsonSerializer<Order>) (order, type, context) -> {
+                JsonObject json = new JsonObject();
+                json.add("client", context.serialize(order.getClient()));
+                json.add("currencyPair", context.serialize(order.getCurrencyPair()));
+                json.add("orderType", context.serialize(order.getOrderType()));
+                json.addProperty("amount", order.getAmount());
+                json.addProperty("deposit", FixedPointUtils.toBigDecimal(order.getDepositUnits()));
+                json.addProperty("price", order.getPrice());
+                return json;
+            })
+            .create();
 
     public static void main(String[] args) {
 
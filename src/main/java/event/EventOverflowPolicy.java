@@ -0,0 +1,19 @@
+package event;
+
+/**
+ * What happens to an event for a market listener whose buffer is full
+ */
+public enum EventOverflowPolicy {
+    /**
+     * The event is dropped and counted, matching never waits for a listener. The listener learns about the loss
+     * through {@link MarketListener#onEventsDropped(long)}.
+     */
+    DROP,
+
+    /**
+     * The publishing thread waits until the listener makes room, no event is lost but a slow listener slows
+     * matching of the pair down. A listener must then never wait for the stock market, e.g. by placing orders
+     * synchronously, or matching and the listener wait for each other forever.
+     */
+    BLOCK
+}
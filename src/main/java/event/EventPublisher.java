@@ -0,0 +1,209 @@
+package event;
+
+import model.Order;
+import util.MpscRingBuffer;
+
+import java.lang.System.Logger.Level;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands market events over to listeners. Every listener owns a bounded ring buffer drained by its own thread;
+ * if a listener falls so far behind that its buffer is full, new events for it are dropped and counted instead
+ * of stalling matching, or the publishing thread waits for room, see {@link EventOverflowPolicy}.
+ */
+public class EventPublisher implements AutoCloseable {
+
+    private static final int SPINS_BEFORE_PARK = 200;
+    private static final long FULL_BUFFER_PARK_NANOS = 10_000;
+
+    private final int bufferCapacity;
+    private final EventOverflowPolicy overflowPolicy;
+    private final AtomicLong sequence;
+    private volatile Subscription[] subscriptions;
+
+    public EventPublisher(int bufferCapacity) {
+        this(bufferCapacity, EventOverflowPolicy.DROP);
+    }
+
+    public EventPublisher(int bufferCapacity, EventOverflowPolicy overflowPolicy) {
+        this.bufferCapacity = bufferCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sequence = new AtomicLong();
+        this.subscriptions = new Subscription[0];
+    }
+
+    public synchronized void addListener(MarketListener listener) {
+        Subscription subscription = new Subscription(listener, bufferCapacity, overflowPolicy == EventOverflowPolicy.BLOCK);
+        Subscription[] newSubscriptions = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        newSubscriptions[subscriptions.length] = subscription;
+        subscriptions = newSubscriptions;
+        subscription.start();
+    }
+
+    /**
+     * Events already published to the listener are still delivered before its thread stops
+     *
+     * @return false if the listener was not registered
+     */
+    public synchronized boolean removeListener(MarketListener listener) {
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i].listener == listener) {
+                Subscription subscription = subscriptions[i];
+                Subscription[] newSubscriptions = new Subscription[subscriptions.length - 1];
+                System.arraycopy(subscriptions, 0, newSubscriptions, 0, i);
+                System.arraycopy(subscriptions, i + 1, newSubscriptions, i, subscriptions.length - i - 1);
+                subscriptions = newSubscriptions;
+                subscription.shutdown();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Publishing is skipped entirely while nobody listens, callers may check it to avoid preparing events
+     */
+    public boolean hasListeners() {
+        return subscriptions.length > 0;
+    }
+
+    public void publishTrade(Order maker, Order taker, long price, long amount) {
+        Subscription[] subscriptions = this.subscriptions;
+        if (subscriptions.length == 0) {
+            return;
+        }
+        publish(subscriptions, new TradeEvent(sequence.incrementAndGet(), taker.getCurrencyPair(), price, amount,
+                maker.getId(), maker.getClient().getId(), taker.getId(), taker.getClient().getId(), taker.getOrderType()));
+    }
+
+    public void publishOrder(Order order, OrderState orderState) {
+        Subscription[] subscriptions = this.subscriptions;
+        if (subscriptions.length == 0) {
+            return;
+        }
+        publish(subscriptions, new OrderEvent(sequence.incrementAndGet(), order.getCurrencyPair(), order.getId(),
+                order.getClient().getId(), order.getOrderType(), orderState, order.getPriceUnits(), order.getAmountUnits()));
+    }
+
+    /**
+     * @return number of events dropped because a listener did not keep up, summed over current listeners
+     */
+    public long getDroppedEvents() {
+        long droppedEvents = 0;
+        for (Subscription subscription : subscriptions) {
+            droppedEvents += subscription.droppedEvents.get();
+        }
+        return droppedEvents;
+    }
+
+    /**
+     * Delivers the events already published and stops all listener threads
+     */
+    @Override
+    public synchronized void close() {
+        Subscription[] subscriptions = this.subscriptions;
+        this.subscriptions = new Subscription[0];
+        for (Subscription subscription : subscriptions) {
+            subscription.shutdown();
+        }
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void publish(Subscription[] subscriptions, MarketEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    private static class Subscription extends Thread {
+        private final MarketListener listener;
+        private final MpscRingBuffer<MarketEvent> events;
+        private final boolean blocking;
+        private final AtomicLong droppedEvents;
+        private long reportedDroppedEvents;
+        private volatile boolean running;
+        private volatile boolean parked;
+
+        private Subscription(MarketListener listener, int bufferCapacity, boolean blocking) {
+            super("market-listener-" + listener.getClass().getSimpleName());
+            this.listener = listener;
+            this.events = new MpscRingBuffer<>(bufferCapacity);
+            this.blocking = blocking;
+            this.droppedEvents = new AtomicLong();
+            this.running = true;
+            setDaemon(true);
+        }
+
+        /**
+         * A blocking subscription still drops the event once it is shut down, its thread may be gone already
+         */
+        private void offer(MarketEvent event) {
+            while (!events.offer(event)) {
+                if (!blocking || !running) {
+                    droppedEvents.incrementAndGet();
+                    return;
+                }
+                LockSupport.parkNanos(FULL_BUFFER_PARK_NANOS);
+            }
+            if (parked) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        private void shutdown() {
+            running = false;
+            LockSupport.unpark(this);
+        }
+
+        @Override
+        public void run() {
+            int idleSpins = 0;
+            while (running || !events.isEmpty()) {
+                long dropped = droppedEvents.get();
+                if (dropped != reportedDroppedEvents) {
+                    try {
+                        listener.onEventsDropped(dropped - reportedDroppedEvents);
+                    } catch (RuntimeException e) {
+                        System.getLogger(EventPublisher.class.getName()).log(Level.ERROR, "Market listener failed on dropped events", e);
+                    }
+                    reportedDroppedEvents = dropped;
+                }
+                MarketEvent event = events.poll();
+                if (event != null) {
+                    try {
+                        event.dispatchTo(listener);
+                    } catch (RuntimeException e) {
+                        onError(event, e);
+                    }
+                    idleSpins = 0;
+                } else if (idleSpins < SPINS_BEFORE_PARK) {
+                    idleSpins++;
+                } else {
+                    parked = true;
+                    if (events.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                }
+            }
+        }
+
+        private void onError(MarketEvent event, RuntimeException e) {
+            try {
+                listener.onError(event, e);
+            } catch (RuntimeException errorHandlerFailure) {
+                errorHandlerFailure.addSuppressed(e);
+                System.getLogger(EventPublisher.class.getName()).log(Level.ERROR, "Market listener failed on event " + event.getSequence(), errorHandlerFailure);
+            }
+        }
+    }
+}
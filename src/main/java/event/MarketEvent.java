@@ -0,0 +1,27 @@
+package event;
+
+import model.CurrencyPair;
+
+/**
+ * Base of everything published by the stock market. Sequence numbers are unique and grow in
+ * publication order, events of one currency pair are published in the order they happened.
+ */
+public abstract class MarketEvent {
+    private final long sequence;
+    private final CurrencyPair currencyPair;
+
+    MarketEvent(long sequence, CurrencyPair currencyPair) {
+        this.sequence = sequence;
+        this.currencyPair = currencyPair;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    abstract void dispatchTo(MarketListener listener);
+}
@@ -0,0 +1,35 @@
+package event;
+
+import java.lang.System.Logger.Level;
+
+/**
+ * Receives market events on a dedicated thread of its own, one event at a time. Events of one currency pair
+ * arrive in sequence order
+ */
+public interface MarketListener {
+
+    default void onTrade(TradeEvent event) {
+    }
+
+    default void onOrderEvent(OrderEvent event) {
+    }
+
+    /**
+     * Called when handling the event threw, the listener keeps receiving the events after it. Reports the
+     * failure through the platform logger by default.
+     */
+    default void onError(MarketEvent event, RuntimeException e) {
+        System.getLogger(getClass().getName()).log(Level.ERROR, "Market listener failed on event " + event.getSequence(), e);
+    }
+
+    /**
+     * Called soon after events were dropped because the buffer of the listener was full, see
+     * {@link EventOverflowPolicy#DROP}, the gaps in the sequence numbers show which ones. Reports the loss through
+     * the platform logger by default.
+     *
+     * @param count number of events dropped since the last call
+     */
+    default void onEventsDropped(long count) {
+        System.getLogger(getClass().getName()).log(Level.WARNING, "Market listener lost {0} events, its buffer was full", count);
+    }
+}
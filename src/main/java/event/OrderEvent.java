@@ -0,0 +1,66 @@
+package event;
+
+import model.CurrencyPair;
+import model.OrderType;
+import util.FixedPointUtils;
+
+import java.math.BigDecimal;
+
+/**
+ * Change of the state of an order together with its amount left at that moment
+ */
+public class OrderEvent extends MarketEvent {
+    private final long orderId;
+    private final int clientId;
+    private final OrderType orderType;
+    private final OrderState orderState;
+    private final long price;
+    private final long remainingAmount;
+
+    public OrderEvent(long sequence, CurrencyPair currencyPair, long orderId, int clientId, OrderType orderType, OrderState orderState, long price, long remainingAmount) {
+        super(sequence, currencyPair);
+        this.orderId = orderId;
+        this.clientId = clientId;
+        this.orderType = orderType;
+        this.orderState = orderState;
+        this.price = price;
+        this.remainingAmount = remainingAmount;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    public OrderType getOrderType() {
+        return orderType;
+    }
+
+    public OrderState getOrderState() {
+        return orderState;
+    }
+
+    public BigDecimal getPrice() {
+        return FixedPointUtils.toBigDecimal(price);
+    }
+
+    public BigDecimal getRemainingAmount() {
+        return FixedPointUtils.toBigDecimal(remainingAmount);
+    }
+
+    public long getPriceUnits() {
+        return price;
+    }
+
+    public long getRemainingAmountUnits() {
+        return remainingAmount;
+    }
+
+    @Override
+    void dispatchTo(MarketListener listener) {
+        listener.onOrderEvent(this);
+    }
+}
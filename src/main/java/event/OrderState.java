@@ -0,0 +1,26 @@
+package event;
+
+/**
+ * Lifecycle states reported through {@link OrderEvent}
+ */
+public enum OrderState {
+    /**
+     * The order reached its book and is about to be matched
+     */
+    ACCEPTED,
+
+    /**
+     * The order was not filled completely and rests in the book
+     */
+    RESTING,
+
+    /**
+     * The order is filled completely and left the book
+     */
+    FILLED,
+
+    /**
+     * The order was cancelled or revoked and what was left of it is refunded
+     */
+    CANCELLED
+}
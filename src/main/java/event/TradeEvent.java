@@ -0,0 +1,77 @@
+package event;
+
+import model.CurrencyPair;
+import model.OrderType;
+import util.FixedPointUtils;
+
+import java.math.BigDecimal;
+
+/**
+ * One fill between a resting maker order and a taker order at its execution price. Continuous matching fills an
+ * incoming taker at the price of the maker, an auction uncross fills bids as takers against asks, all at the
+ * clearing price.
+ */
+public class TradeEvent extends MarketEvent {
+    private final long price;
+    private final long amount;
+    private final long makerOrderId;
+    private final int makerClientId;
+    private final long takerOrderId;
+    private final int takerClientId;
+    private final OrderType takerOrderType;
+
+    public TradeEvent(long sequence, CurrencyPair currencyPair, long price, long amount, long makerOrderId, int makerClientId, long takerOrderId, int takerClientId, OrderType takerOrderType) {
+        super(sequence, currencyPair);
+        this.price = price;
+        this.amount = amount;
+        this.makerOrderId = makerOrderId;
+        this.makerClientId = makerClientId;
+        this.takerOrderId = takerOrderId;
+        this.takerClientId = takerClientId;
+        this.takerOrderType = takerOrderType;
+    }
+
+    /**
+     * @return execution price, the maker's price or the clearing price of an auction
+     */
+    public BigDecimal getPrice() {
+        return FixedPointUtils.toBigDecimal(price);
+    }
+
+    public BigDecimal getAmount() {
+        return FixedPointUtils.toBigDecimal(amount);
+    }
+
+    public long getPriceUnits() {
+        return price;
+    }
+
+    public long getAmountUnits() {
+        return amount;
+    }
+
+    public long getMakerOrderId() {
+        return makerOrderId;
+    }
+
+    public int getMakerClientId() {
+        return makerClientId;
+    }
+
+    public long getTakerOrderId() {
+        return takerOrderId;
+    }
+
+    public int getTakerClientId() {
+        return takerClientId;
+    }
+
+    public OrderType getTakerOrderType() {
+        return takerOrderType;
+    }
+
+    @Override
+    void dispatchTo(MarketListener listener) {
+        listener.onTrade(this);
+    }
+}
@@ -0,0 +1,21 @@
+package exception;
+
+/**
+ * Thrown when an order breaks the trading rules of its currency pair, e.g. its price is off the tick grid
+ */
+public class InvalidOrderException extends RuntimeException {
+    public InvalidOrderException() {
+    }
+
+    public InvalidOrderException(String message) {
+        super(message);
+    }
+
+    public InvalidOrderException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidOrderException(Throwable cause) {
+        super(cause);
+    }
+}
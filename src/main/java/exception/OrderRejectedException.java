@@ -0,0 +1,22 @@
+package exception;
+
+/**
+ * The stock market refused to take an order, e.g. because the admission queue of its pair is full.
+ * The money the order held is returned to its client before this is thrown.
+ */
+public class OrderRejectedException extends RuntimeException {
+    public OrderRejectedException() {
+    }
+
+    public OrderRejectedException(String message) {
+        super(message);
+    }
+
+    public OrderRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OrderRejectedException(Throwable cause) {
+        super(cause);
+    }
+}
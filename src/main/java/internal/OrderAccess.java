@@ -0,0 +1,101 @@
+package internal;
+
+import model.Client;
+import model.CurrencyPair;
+import model.Order;
+import model.OrderType;
+
+import java.util.function.LongFunction;
+
+/**
+ * Ways of creating orders that bypass the balance checks of the public constructor, the views order stores bind to
+ * their records, and the lock that keeps snapshots consistent with the money held by orders. Reserved for
+ * recovery, snapshots, order stores and the cash movements of the stock market, not part of the API:
+ * {@link Order} installs the only instance when it is initialized.
+ */
+public abstract class OrderAccess {
+
+    private static volatile OrderAccess instance;
+
+    public static OrderAccess get() {
+        OrderAccess access = instance;
+        if (access == null) {
+            try {
+                Class.forName(Order.class.getName(), true, Order.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+            access = instance;
+        }
+        return access;
+    }
+
+    /**
+     * @throws IllegalStateException if an instance is already installed
+     */
+    public static synchronized void install(OrderAccess access) {
+        if (instance != null) {
+            throw new IllegalStateException("Order access is already installed");
+        }
+        instance = access;
+    }
+
+    /**
+     * Recreates an order recorded in the journal. The order keeps its id and takes the money it holds from the
+     * client again, without a balance check: the journal is authoritative and replaying it to the end settles
+     * the balance.
+     */
+    public abstract Order replay(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit);
+
+    /**
+     * Recreates an order whose money the balances of the client already exclude, e.g. a resting order of a
+     * snapshot, nothing is taken from the client
+     */
+    public abstract Order restore(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit);
+
+    /**
+     * Turns the order into a view of a record kept elsewhere, e.g. in an off-heap order store, so one object can
+     * stand for many orders in turn. Neither the id sequence nor the client's balance is touched, and what
+     * reducing or revoking the view changes has to be written back to the record by the caller.
+     */
+    public abstract void rebind(Order view, long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit);
+
+    /**
+     * Marks the order as taken by a book, so that passing the same order object to a book again is refused rather
+     * than resting it twice. Orders taken from an {@link model.OrderPool} count as new again.
+     *
+     * @return false if a book took the order before
+     */
+    public abstract boolean markPlaced(Order order);
+
+    /**
+     * Revokes an order that will never reach a book, e.g. one refused by an admission queue, and leaves nothing in
+     * it, so no book takes it afterwards
+     */
+    public abstract void terminate(Order order);
+
+    /**
+     * Makes orders take the balance change lock while they reserve money and take an id, which they skip until a
+     * stock market that takes snapshots needs it. Called by stock markets with a journal when they are created,
+     * orders created by other threads at that moment may still finish without the lock, so markets have to be
+     * created before trading starts.
+     */
+    public abstract void trackBalanceChanges();
+
+    /**
+     * Must be held while money moves between a client and the outside of the books, e.g. a journaled deposit,
+     * until the move is journaled. Order constructors hold it while they reserve money and take an id once
+     * {@link #trackBalanceChanges()} was called.
+     *
+     * @return stamp to pass to {@link #unlockBalanceChange(long)}
+     */
+    public abstract long lockBalanceChange();
+
+    public abstract void unlockBalanceChange(long stamp);
+
+    /**
+     * Runs the task while no balance changes outside of the books, so it sees every such change completely or not
+     * at all. Orders with an id up to the one passed to the task have taken their money, later orders have not.
+     */
+    public abstract <T> T pauseBalanceChanges(LongFunction<T> task);
+}
@@ -0,0 +1,68 @@
+package jfr;
+
+import jdk.jfr.*;
+import model.Order;
+
+/**
+ * One pass of an incoming order over the opposite side of its book. Only passes slower than the threshold
+ * are recorded by default.
+ */
+@Name("stockmarket.Match")
+@Label("Match")
+@Category("Stock Market")
+@Threshold("20 us")
+@StackTrace(false)
+public class MatchEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(MatchEvent.class);
+
+    @Label("Currency Pair")
+    private String currencyPair;
+
+    @Label("Side")
+    private String side;
+
+    @Label("Order Id")
+    private long orderId;
+
+    @Label("Levels Scanned")
+    @Description("Price levels of the opposite side visited")
+    private int levelsScanned;
+
+    @Label("Orders Scanned")
+    @Description("Resting orders visited, including skipped orders of the same client")
+    private int ordersScanned;
+
+    @Label("Fills")
+    private int fills;
+
+    @Label("Filled Amount")
+    @Description("Amount in fixed-point units")
+    private long filledAmount;
+
+    /**
+     * @return a started event or null if no recording wants it, checking costs a field read
+     */
+    public static MatchEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        MatchEvent event = new MatchEvent();
+        event.begin();
+        return event;
+    }
+
+    public void commit(Order order, int levelsScanned, int ordersScanned, int fills, long filledAmount) {
+        end();
+        if (shouldCommit()) {
+            this.currencyPair = order.getCurrencyPair().name();
+            this.side = order.getOrderType().name();
+            this.orderId = order.getId();
+            this.levelsScanned = levelsScanned;
+            this.ordersScanned = ordersScanned;
+            this.fills = fills;
+            this.filledAmount = filledAmount;
+            commit();
+        }
+    }
+}
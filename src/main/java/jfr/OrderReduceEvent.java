@@ -0,0 +1,59 @@
+package jfr;
+
+import jdk.jfr.*;
+import model.Order;
+
+/**
+ * Settlement of one fill on one side: the order gives up amount and its client receives the counter currency.
+ * Only settlements slower than the threshold, e.g. under heavy balance contention, are recorded by default.
+ */
+@Name("stockmarket.OrderReduce")
+@Label("Order Reduce")
+@Category("Stock Market")
+@Threshold("20 us")
+@StackTrace(false)
+public class OrderReduceEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(OrderReduceEvent.class);
+
+    @Label("Currency Pair")
+    private String currencyPair;
+
+    @Label("Side")
+    private String side;
+
+    @Label("Order Id")
+    private long orderId;
+
+    @Label("Amount")
+    @Description("Filled amount in fixed-point units")
+    private long amount;
+
+    @Label("Price")
+    @Description("Deal price in fixed-point units")
+    private long price;
+
+    /**
+     * @return a started event or null if no recording wants it, checking costs a field read
+     */
+    public static OrderReduceEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        OrderReduceEvent event = new OrderReduceEvent();
+        event.begin();
+        return event;
+    }
+
+    public void commit(Order order, long amount, long price) {
+        end();
+        if (shouldCommit()) {
+            this.currencyPair = order.getCurrencyPair().name();
+            this.side = order.getOrderType().name();
+            this.orderId = order.getId();
+            this.amount = amount;
+            this.price = price;
+            commit();
+        }
+    }
+}
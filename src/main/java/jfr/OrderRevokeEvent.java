@@ -0,0 +1,54 @@
+package jfr;
+
+import jdk.jfr.*;
+import model.Order;
+
+/**
+ * Refund of the money an order still holds once it is filled or cancelled. Only refunds slower than the
+ * threshold are recorded by default.
+ */
+@Name("stockmarket.OrderRevoke")
+@Label("Order Revoke")
+@Category("Stock Market")
+@Threshold("20 us")
+@StackTrace(false)
+public class OrderRevokeEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(OrderRevokeEvent.class);
+
+    @Label("Currency Pair")
+    private String currencyPair;
+
+    @Label("Side")
+    private String side;
+
+    @Label("Order Id")
+    private long orderId;
+
+    @Label("Refund")
+    @Description("Refunded amount in fixed-point units")
+    private long refund;
+
+    /**
+     * @return a started event or null if no recording wants it, checking costs a field read
+     */
+    public static OrderRevokeEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        OrderRevokeEvent event = new OrderRevokeEvent();
+        event.begin();
+        return event;
+    }
+
+    public void commit(Order order, long refund) {
+        end();
+        if (shouldCommit()) {
+            this.currencyPair = order.getCurrencyPair().name();
+            this.side = order.getOrderType().name();
+            this.orderId = order.getId();
+            this.refund = refund;
+            commit();
+        }
+    }
+}
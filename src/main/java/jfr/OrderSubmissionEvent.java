@@ -0,0 +1,68 @@
+package jfr;
+
+import jdk.jfr.*;
+import model.Order;
+
+/**
+ * Placement of one order from the call until it is matched and rested, including the wait for its book.
+ * Only placements slower than the threshold are recorded by default.
+ */
+@Name("stockmarket.OrderSubmission")
+@Label("Order Submission")
+@Category("Stock Market")
+@Threshold("20 us")
+@StackTrace(false)
+public class OrderSubmissionEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(OrderSubmissionEvent.class);
+
+    @Label("Currency Pair")
+    private String currencyPair;
+
+    @Label("Side")
+    private String side;
+
+    @Label("Order Id")
+    private long orderId;
+
+    @Label("Client Id")
+    private int clientId;
+
+    @Label("Amount")
+    @Description("Amount in fixed-point units")
+    private long amount;
+
+    @Label("Price")
+    @Description("Price in fixed-point units")
+    private long price;
+
+    @Label("Resting")
+    @Description("Whether the order was not filled completely and rests in the book")
+    private boolean resting;
+
+    /**
+     * @return a started event or null if no recording wants it, checking costs a field read
+     */
+    public static OrderSubmissionEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        OrderSubmissionEvent event = new OrderSubmissionEvent();
+        event.begin();
+        return event;
+    }
+
+    public void commit(Order order, boolean resting) {
+        end();
+        if (shouldCommit()) {
+            this.currencyPair = order.getCurrencyPair().name();
+            this.side = order.getOrderType().name();
+            this.orderId = order.getId();
+            this.clientId = order.getClient().getId();
+            this.amount = order.getAmountUnits();
+            this.price = order.getPriceUnits();
+            this.resting = resting;
+            commit();
+        }
+    }
+}
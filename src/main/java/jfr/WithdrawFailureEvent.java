@@ -0,0 +1,41 @@
+package jfr;
+
+import jdk.jfr.*;
+import model.Currency;
+
+/**
+ * A withdrawal rejected because the client has not enough money
+ */
+@Name("stockmarket.WithdrawFailure")
+@Label("Withdraw Failure")
+@Category("Stock Market")
+public class WithdrawFailureEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(WithdrawFailureEvent.class);
+
+    @Label("Client Id")
+    private int clientId;
+
+    @Label("Currency")
+    private String currency;
+
+    @Label("Requested")
+    @Description("Requested amount in fixed-point units")
+    private long requested;
+
+    @Label("Available")
+    @Description("Balance in fixed-point units when the withdrawal was rejected")
+    private long available;
+
+    public static void commitIfEnabled(int clientId, Currency currency, long requested, long available) {
+        if (!TYPE.isEnabled()) {
+            return;
+        }
+        WithdrawFailureEvent event = new WithdrawFailureEvent();
+        event.clientId = clientId;
+        event.currency = currency.name();
+        event.requested = requested;
+        event.available = available;
+        event.commit();
+    }
+}
@@ -0,0 +1,23 @@
+package journal;
+
+/**
+ * When journal records are forced from the page cache to the storage device. Records reach the page cache
+ * right away with every policy, so they survive a crash of the JVM, the policy only matters for crashes
+ * of the whole machine.
+ */
+public enum FsyncPolicy {
+    /**
+     * Leave flushing to the operating system
+     */
+    NONE,
+
+    /**
+     * A background thread forces everything appended since its previous run once per interval
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Every append forces the journal before it returns
+     */
+    EVERY_RECORD
+}
@@ -0,0 +1,269 @@
+package journal;
+
+import model.Client;
+import model.Currency;
+import model.CurrencyPair;
+import model.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only binary log of accepted and refused orders, cancels, fills and of the money clients deposit and withdraw through
+ * the stock market, written through memory-mapped segments of the journal file.
+ * <p>
+ * Records have a fixed width of {@link #RECORD_SIZE} bytes, so an append only claims the next record index
+ * with one atomic increment and writes into the mapped memory, concurrent appends never wait for each other.
+ * Every record carries a checksum, a record torn by a crash fails it and ends the journal on replay.
+ */
+public class Journal implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 64;
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    static final int ORDER = 1;
+    static final int CANCEL = 2;
+    static final int FILL = 3;
+    static final int REVOKE_ALL = 4;
+    static final int UNCROSS = 5;
+    static final int AUCTION_MODE = 6;
+    static final int DEPOSIT = 7;
+    static final int WITHDRAW = 8;
+    static final int REFUSE = 9;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final AtomicLong nextRecord;
+    private volatile MappedByteBuffer[] segments;
+    private final ReentrantLock mappingLock;
+    private final Thread flusher;
+    private volatile boolean open;
+
+    /**
+     * Opens the journal for appending after its last valid record, anything behind that record is cut off
+     */
+    public Journal(Path path, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, int segmentSize) {
+        if (segmentSize < RECORD_SIZE || segmentSize % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Segment size must be a positive multiple of " + RECORD_SIZE + ", got " + segmentSize);
+        }
+
+        this.path = path;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.segments = new MappedByteBuffer[0];
+        this.mappingLock = new ReentrantLock();
+        try {
+            long validRecords = JournalReader.countValidRecords(path);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.truncate(validRecords * RECORD_SIZE);
+            this.nextRecord = new AtomicLong(validRecords);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + path, e);
+        }
+        this.open = true;
+
+        if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+            this.flusher = new Thread(() -> flushPeriodically(fsyncIntervalMillis), "journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public void appendOrder(Order order) {
+        append(ORDER, order.getId(), order.getClient().getId(), pack(order.getCurrencyPair().getId(), order.getOrderType().ordinal()),
+                order.getAmountUnits(), order.getPriceUnits(), order.getDepositUnits());
+    }
+
+    public void appendCancel(Order order) {
+        append(CANCEL, order.getId(), order.getClient().getId(), pack(order.getCurrencyPair().getId(), order.getOrderType().ordinal()),
+                order.getAmountUnits(), 0, 0);
+    }
+
+    public void appendFill(Order maker, Order taker, long price, long amount) {
+        append(FILL, maker.getId(), taker.getId(), pack(taker.getCurrencyPair().getId(), taker.getOrderType().ordinal()),
+                amount, price, 0);
+    }
+
+    public void appendRevokeAll(CurrencyPair currencyPair) {
+        append(REVOKE_ALL, 0, 0, pack(currencyPair.getId(), 0), 0, 0, 0);
+    }
+
+    /**
+     * Marks a call auction of the pair, the fills it makes follow this record
+     */
+    public void appendUncross(CurrencyPair currencyPair) {
+        append(UNCROSS, 0, 0, pack(currencyPair.getId(), 0), 0, 0, 0);
+    }
+
+    public void appendAuctionMode(CurrencyPair currencyPair, boolean auction) {
+        append(AUCTION_MODE, 0, 0, pack(currencyPair.getId(), 0), auction ? 1 : 0, 0, 0);
+    }
+
+    public void appendDeposit(Client client, Currency currency, long amount) {
+        append(DEPOSIT, 0, client.getId(), currency.getId(), amount, 0, 0);
+    }
+
+    public void appendWithdraw(Client client, Currency currency, long amount) {
+        append(WITHDRAW, 0, client.getId(), currency.getId(), amount, 0, 0);
+    }
+
+    /**
+     * Records an order refused before it reached its book together with the money it held, which went back to
+     * its client
+     */
+    public void appendRefuse(Order order) {
+        append(REFUSE, order.getId(), order.getClient().getId(), pack(order.getCurrencyPair().getId(), order.getOrderType().ordinal()),
+                order.getAmountUnits(), order.getPriceUnits(), order.getDepositUnits());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return number of records in the journal including those appended before it was opened
+     */
+    public long getRecordCount() {
+        return nextRecord.get();
+    }
+
+    /**
+     * Forces all appended records to the storage device
+     */
+    public void flush() {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal " + path, e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the journal is closed
+     */
+    private void append(int type, long field0, long field1, long field2, long field3, long field4, long field5) {
+        if (!open) {
+            throw new IllegalStateException("Journal " + path + " is closed");
+        }
+        long position = nextRecord.getAndIncrement() * RECORD_SIZE;
+        MappedByteBuffer segment = getSegment((int) (position / segmentSize));
+        int offset = (int) (position % segmentSize);
+
+        segment.putLong(offset + 8, field0);
+        segment.putLong(offset + 16, field1);
+        segment.putLong(offset + 24, field2);
+        segment.putLong(offset + 32, field3);
+        segment.putLong(offset + 40, field4);
+        segment.putLong(offset + 48, field5);
+        segment.putInt(offset + 4, checksum(type, field0, field1, field2, field3, field4, field5));
+        segment.putInt(offset, type);
+
+        if (fsyncPolicy == FsyncPolicy.EVERY_RECORD) {
+            segment.force();
+        }
+    }
+
+    private MappedByteBuffer getSegment(int index) {
+        MappedByteBuffer[] segments = this.segments;
+        if (index < segments.length && segments[index] != null) {
+            return segments[index];
+        }
+        return mapSegment(index);
+    }
+
+    /**
+     * Maps under a lock rather than a monitor, so a virtual thread appending meanwhile does not pin its carrier
+     */
+    private MappedByteBuffer mapSegment(int index) {
+        mappingLock.lock();
+        try {
+            if (!open) {
+                throw new IllegalStateException("Journal " + path + " is closed");
+            }
+            MappedByteBuffer[] segments = this.segments;
+            if (index < segments.length && segments[index] != null) {
+                return segments[index];
+            }
+
+            MappedByteBuffer[] newSegments = Arrays.copyOf(segments, Math.max(segments.length, index + 1));
+            try {
+                newSegments[index] = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * segmentSize, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map segment " + index + " of journal " + path, e);
+            }
+            this.segments = newSegments;
+            return newSegments[index];
+        } finally {
+            mappingLock.unlock();
+        }
+    }
+
+    private void flushPeriodically(long fsyncIntervalMillis) {
+        long flushedRecords = nextRecord.get();
+        while (open) {
+            try {
+                Thread.sleep(fsyncIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long appendedRecords = nextRecord.get();
+            if (appendedRecords != flushedRecords) {
+                flush();
+                flushedRecords = appendedRecords;
+            }
+        }
+    }
+
+    static long pack(int currencyPair, int orderType) {
+        return ((long) currencyPair << 8) | orderType;
+    }
+
+    static int unpackCurrencyPair(long packed) {
+        return (int) (packed >>> 8);
+    }
+
+    static int unpackOrderType(long packed) {
+        return (int) (packed & 0xFF);
+    }
+
+    static int checksum(int type, long field0, long field1, long field2, long field3, long field4, long field5) {
+        long hash = type;
+        hash = hash * 0x9E3779B97F4A7C15L + field0;
+        hash = hash * 0x9E3779B97F4A7C15L + field1;
+        hash = hash * 0x9E3779B97F4A7C15L + field2;
+        hash = hash * 0x9E3779B97F4A7C15L + field3;
+        hash = hash * 0x9E3779B97F4A7C15L + field4;
+        hash = hash * 0x9E3779B97F4A7C15L + field5;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,156 @@
+package journal;
+
+import model.Currency;
+import model.CurrencyPair;
+import model.OrderType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the records of a journal file in the order they were appended. Reading stops at the first record
+ * that was never written or was torn by a crash.
+ */
+public class JournalReader {
+
+    private static final int RECORDS_PER_READ = 1024;
+
+    public interface Visitor {
+
+        void onOrder(long orderId, int clientId, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit);
+
+        void onCancel(long orderId, CurrencyPair currencyPair);
+
+        void onFill(long makerOrderId, long takerOrderId, CurrencyPair currencyPair, long price, long amount);
+
+        void onRevokeAll(CurrencyPair currencyPair);
+
+        void onUncross(CurrencyPair currencyPair);
+
+        void onAuctionMode(CurrencyPair currencyPair, boolean auction);
+
+        void onDeposit(int clientId, Currency currency, long amount);
+
+        void onWithdraw(int clientId, Currency currency, long amount);
+
+        void onRefuse(long orderId, int clientId, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit);
+    }
+
+    private JournalReader() {
+    }
+
+    /**
+     * @return number of valid records read
+     */
+    public static long read(Path path, Visitor visitor) {
+        return read(path, 0, visitor);
+    }
+
+    /**
+     * Skips the first {@code fromRecord} records and visits the rest
+     *
+     * @return index of the record after the last valid one
+     */
+    public static long read(Path path, long fromRecord, Visitor visitor) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        OrderType[] orderTypes = OrderType.values();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORDS_PER_READ * Journal.RECORD_SIZE);
+            long record = 0;
+            long position = 0;
+            while (true) {
+                buffer.clear();
+                int read = readFully(channel, buffer, position);
+                position += read;
+                for (int offset = 0; offset + Journal.RECORD_SIZE <= read; offset += Journal.RECORD_SIZE, record++) {
+                    int type = buffer.getInt(offset);
+                    long field0 = buffer.getLong(offset + 8);
+                    long field1 = buffer.getLong(offset + 16);
+                    long field2 = buffer.getLong(offset + 24);
+                    long field3 = buffer.getLong(offset + 32);
+                    long field4 = buffer.getLong(offset + 40);
+                    long field5 = buffer.getLong(offset + 48);
+                    if (type == 0 || buffer.getInt(offset + 4) != Journal.checksum(type, field0, field1, field2, field3, field4, field5)) {
+                        return record;
+                    }
+                    if (record < fromRecord || visitor == null) {
+                        continue;
+                    }
+
+                    boolean cash = type == Journal.DEPOSIT || type == Journal.WITHDRAW;
+                    CurrencyPair currencyPair = cash ? null : CurrencyPair.byId(Journal.unpackCurrencyPair(field2));
+                    switch (type) {
+                        case Journal.ORDER: {
+                            visitor.onOrder(field0, (int) field1, currencyPair, orderTypes[Journal.unpackOrderType(field2)], field3, field4, field5);
+                            break;
+                        }
+                        case Journal.CANCEL: {
+                            visitor.onCancel(field0, currencyPair);
+                            break;
+                        }
+                        case Journal.FILL: {
+                            visitor.onFill(field0, field1, currencyPair, field4, field3);
+                            break;
+                        }
+                        case Journal.REVOKE_ALL: {
+                            visitor.onRevokeAll(currencyPair);
+                            break;
+                        }
+                        case Journal.UNCROSS: {
+                            visitor.onUncross(currencyPair);
+                            break;
+                        }
+                        case Journal.AUCTION_MODE: {
+                            visitor.onAuctionMode(currencyPair, field3 != 0);
+                            break;
+                        }
+                        case Journal.DEPOSIT: {
+                            visitor.onDeposit((int) field1, Currency.byId((int) field2), field3);
+                            break;
+                        }
+                        case Journal.WITHDRAW: {
+                            visitor.onWithdraw((int) field1, Currency.byId((int) field2), field3);
+                            break;
+                        }
+                        case Journal.REFUSE: {
+                            visitor.onRefuse(field0, (int) field1, currencyPair, orderTypes[Journal.unpackOrderType(field2)], field3, field4, field5);
+                            break;
+                        }
+                        default: {
+                            throw new IllegalStateException("Unknown record type " + type + " at record " + record + " of journal " + path);
+                        }
+                    }
+                }
+                if (read < buffer.capacity()) {
+                    return record;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal " + path, e);
+        }
+    }
+
+    static long countValidRecords(Path path) {
+        return read(path, null);
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,316 @@
+package journal;
+
+import internal.OrderAccess;
+import model.Client;
+import model.Currency;
+import model.CurrencyPair;
+import model.Order;
+import model.OrderType;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Point-in-time image of the resting orders of every book and of client balances, together with the
+ * journal position it was cut at and the id of the latest order whose money the balances already exclude.
+ * Recovery loads the latest snapshot and replays only the journal after it.
+ * <p>
+ * The image is copied into primitive arrays while matching is paused and written to disk afterwards,
+ * the file is first written under a temporary name and then moved into place. Books and balance columns are
+ * stored with the names of their pairs and currencies and mapped back to the ids registered when the snapshot is read.
+ */
+public class Snapshot {
+
+    private static final int MAGIC = 0x534D5334;
+    private static final OrderAccess ORDER_ACCESS = OrderAccess.get();
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final long journalPosition;
+    private final long lastOrderId;
+    private final BookImage[] books;
+    private final int[] clientIds;
+    private final int[] currencyIds;
+    private final long[][] balances;
+    private int[] sortedClientIds;
+
+    private Snapshot(long journalPosition, long lastOrderId, BookImage[] books, int[] clientIds, int[] currencyIds, long[][] balances) {
+        this.journalPosition = journalPosition;
+        this.lastOrderId = lastOrderId;
+        this.books = books;
+        this.clientIds = clientIds;
+        this.currencyIds = currencyIds;
+        this.balances = balances;
+    }
+
+    /**
+     * Must be called while no book changes and no money moves outside of the books
+     *
+     * @param lastOrderId id of the latest order that has taken its money from its client
+     * @param books       images of every book, indexed by {@link CurrencyPair#getId()}
+     */
+    public static Snapshot capture(long journalPosition, long lastOrderId, BookImage[] books, Collection<Client> clients) {
+        Currency[] currencies = Currency.values();
+        int[] currencyIds = new int[currencies.length];
+        for (Currency currency : currencies) {
+            currencyIds[currency.getId()] = currency.getId();
+        }
+        int[] clientIds = new int[clients.size()];
+        long[][] balances = new long[clients.size()][];
+        int i = 0;
+        for (Client client : clients) {
+            clientIds[i] = client.getId();
+            balances[i] = new long[currencies.length];
+            for (Currency currency : currencies) {
+                balances[i][currency.getId()] = client.getBalanceUnits(currency);
+            }
+            i++;
+        }
+        return new Snapshot(journalPosition, lastOrderId, books, clientIds, currencyIds, balances);
+    }
+
+    /**
+     * @return the written file, named after the journal position so that the latest snapshot sorts last
+     */
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, journalPosition, SUFFIX));
+        Path temporaryFile = directory.resolve(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeLong(journalPosition);
+            output.writeLong(lastOrderId);
+            output.writeInt(books.length);
+            for (int i = 0; i < books.length; i++) {
+                output.writeUTF(CurrencyPair.byId(i).name());
+                books[i].write(output);
+            }
+            output.writeInt(clientIds.length);
+            output.writeInt(currencyIds.length);
+            for (int currencyId : currencyIds) {
+                output.writeUTF(Currency.byId(currencyId).name());
+            }
+            for (int i = 0; i < clientIds.length; i++) {
+                output.writeInt(clientIds[i]);
+                for (long balance : balances[i]) {
+                    output.writeLong(balance);
+                }
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    public static Snapshot read(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a stock market snapshot: " + file);
+            }
+            long journalPosition = input.readLong();
+            long lastOrderId = input.readLong();
+            BookImage[] books = new BookImage[CurrencyPair.count()];
+            int bookCount = input.readInt();
+            for (int i = 0; i < bookCount; i++) {
+                CurrencyPair currencyPair = lookUp(file, input.readUTF(), CurrencyPair::valueOf);
+                books[currencyPair.getId()] = BookImage.read(input);
+            }
+            int clients = input.readInt();
+            int[] currencyIds = new int[input.readInt()];
+            for (int j = 0; j < currencyIds.length; j++) {
+                currencyIds[j] = lookUp(file, input.readUTF(), Currency::valueOf).getId();
+            }
+            int[] clientIds = new int[clients];
+            long[][] balances = new long[clients][currencyIds.length];
+            for (int i = 0; i < clients; i++) {
+                clientIds[i] = input.readInt();
+                for (int j = 0; j < currencyIds.length; j++) {
+                    balances[i][j] = input.readLong();
+                }
+            }
+            return new Snapshot(journalPosition, lastOrderId, books, clientIds, currencyIds, balances);
+        }
+    }
+
+    /**
+     * @return the snapshot cut at the latest journal position or null if the directory holds none
+     */
+    public static Path findLatest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Snapshot::isSnapshotFile).max(Path::compareTo).orElse(null);
+        }
+    }
+
+    /**
+     * Deletes all but the latest {@code keep} snapshots of the directory
+     */
+    public static void deleteOlder(Path directory, int keep) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Snapshot::isSnapshotFile).sorted().forEach(snapshots::add);
+        }
+        for (int i = 0; i < snapshots.size() - keep; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    /**
+     * @return id of the latest order whose money the snapshot balances exclude, journaled orders up to this id
+     * must not take it again from clients whose balances the snapshot recorded
+     */
+    public long getLastOrderId() {
+        return lastOrderId;
+    }
+
+    /**
+     * @return true if the snapshot recorded the balances of the client
+     */
+    public boolean hasBalances(int clientId) {
+        if (sortedClientIds == null) {
+            sortedClientIds = clientIds.clone();
+            Arrays.sort(sortedClientIds);
+        }
+        return Arrays.binarySearch(sortedClientIds, clientId) >= 0;
+    }
+
+    /**
+     * @return true if the book of the pair was in auction mode
+     */
+    public boolean isAuction(CurrencyPair currencyPair) {
+        BookImage book = getBook(currencyPair);
+        return book != null && book.auction;
+    }
+
+    /**
+     * Sets the balances of every client in the snapshot
+     */
+    public void restoreBalances(IntFunction<Client> clientResolver) {
+        Currency[] currencies = new Currency[currencyIds.length];
+        for (int j = 0; j < currencies.length; j++) {
+            currencies[j] = Currency.byId(currencyIds[j]);
+        }
+        for (int i = 0; i < clientIds.length; i++) {
+            Client client = clientResolver.apply(clientIds[i]);
+            for (int j = 0; j < currencies.length; j++) {
+                client.restoreBalanceUnits(currencies[j], balances[i][j]);
+            }
+        }
+    }
+
+    /**
+     * @return resting orders of the pair in book order, the money they hold is not taken from the clients again
+     */
+    public List<Order> restoreOrders(CurrencyPair currencyPair, IntFunction<Client> clientResolver) {
+        BookImage book = getBook(currencyPair);
+        if (book == null) {
+            return new ArrayList<>();
+        }
+        OrderType[] orderTypes = OrderType.values();
+        List<Order> orders = new ArrayList<>(book.ids.length);
+        for (int i = 0; i < book.ids.length; i++) {
+            orders.add(ORDER_ACCESS.restore(book.ids[i], clientResolver.apply(book.clientIds[i]), currencyPair, orderTypes[book.orderTypes[i]],
+                    book.amounts[i], book.prices[i], book.deposits[i]));
+        }
+        return orders;
+    }
+
+    private BookImage getBook(CurrencyPair currencyPair) {
+        return currencyPair.getId() < books.length ? books[currencyPair.getId()] : null;
+    }
+
+    /**
+     * @throws IOException if the snapshot refers to a pair or currency that is not registered
+     */
+    private static <T> T lookUp(Path file, String name, Function<String, T> registry) throws IOException {
+        try {
+            return registry.apply(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Snapshot %s refers to %s, which is not registered", file, name), e);
+        }
+    }
+
+    private static boolean isSnapshotFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    /**
+     * Resting orders of one book in book order, copied field by field by the book
+     */
+    public static class BookImage {
+        private final long[] ids;
+        private final int[] clientIds;
+        private final byte[] orderTypes;
+        private final long[] amounts;
+        private final long[] prices;
+        private final long[] deposits;
+        private boolean auction;
+
+        /**
+         * @param size number of resting orders of the book
+         */
+        public BookImage(int size, boolean auction) {
+            this(size);
+            this.auction = auction;
+        }
+
+        private BookImage(int size) {
+            this.ids = new long[size];
+            this.clientIds = new int[size];
+            this.orderTypes = new byte[size];
+            this.amounts = new long[size];
+            this.prices = new long[size];
+            this.deposits = new long[size];
+        }
+
+        public void set(int index, long id, int clientId, OrderType orderType, long amount, long price, long deposit) {
+            ids[index] = id;
+            clientIds[index] = clientId;
+            orderTypes[index] = (byte) orderType.ordinal();
+            amounts[index] = amount;
+            prices[index] = price;
+            deposits[index] = deposit;
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            output.writeBoolean(auction);
+            output.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                output.writeLong(ids[i]);
+                output.writeInt(clientIds[i]);
+                output.writeByte(orderTypes[i]);
+                output.writeLong(amounts[i]);
+                output.writeLong(prices[i]);
+                output.writeLong(deposits[i]);
+            }
+        }
+
+        private static BookImage read(DataInputStream input) throws IOException {
+            boolean auction = input.readBoolean();
+            BookImage book = new BookImage(input.readInt());
+            book.auction = auction;
+            for (int i = 0; i < book.ids.length; i++) {
+                book.ids[i] = input.readLong();
+                book.clientIds[i] = input.readInt();
+                book.orderTypes[i] = input.readByte();
+                book.amounts[i] = input.readLong();
+                book.prices[i] = input.readLong();
+                book.deposits[i] = input.readLong();
+            }
+            return book;
+        }
+    }
+}
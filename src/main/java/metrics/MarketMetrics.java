@@ -0,0 +1,246 @@
+package metrics;
+
+import model.CurrencyPair;
+import util.GrowableAtomicLongArray;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters, book gauges and latency histograms of a stock market. Counters are indexed by
+ * {@link CurrencyPair#getId()}, updating them is one atomic operation and allocates only
+ * when a newly registered pair needs the arrays to grow.
+ * <p>
+ * Latencies: acceptance is the whole placement as seen by the caller, queue wait the time a book task waits
+ * for the book lock or its matching thread, matching the time spent in the book and settlement the part of
+ * it spent moving money between clients.
+ */
+public class MarketMetrics implements MarketMetricsMXBean {
+
+    private final GrowableAtomicLongArray orders;
+    private final GrowableAtomicLongArray fills;
+    private final GrowableAtomicLongArray cancels;
+    private final GrowableAtomicLongArray rejections;
+    private final GrowableAtomicLongArray restingOrders;
+    private final GrowableAtomicLongArray bidLevels;
+    private final GrowableAtomicLongArray askLevels;
+    private final GrowableAtomicLongArray admissionRejections;
+    private final GrowableAtomicLongArray queueDepths;
+    private final GrowableAtomicLongArray peakQueueDepths;
+    private final LatencyHistogram acceptanceHistogram;
+    private final LatencyHistogram queueWaitHistogram;
+    private final LatencyHistogram matchingHistogram;
+    private final LatencyHistogram settlementHistogram;
+
+    public MarketMetrics() {
+        int currencyPairs = CurrencyPair.count();
+        this.orders = new GrowableAtomicLongArray(currencyPairs);
+        this.fills = new GrowableAtomicLongArray(currencyPairs);
+        this.cancels = new GrowableAtomicLongArray(currencyPairs);
+        this.rejections = new GrowableAtomicLongArray(currencyPairs);
+        this.restingOrders = new GrowableAtomicLongArray(currencyPairs);
+        this.bidLevels = new GrowableAtomicLongArray(currencyPairs);
+        this.askLevels = new GrowableAtomicLongArray(currencyPairs);
+        this.admissionRejections = new GrowableAtomicLongArray(currencyPairs);
+        this.queueDepths = new GrowableAtomicLongArray(currencyPairs);
+        this.peakQueueDepths = new GrowableAtomicLongArray(currencyPairs);
+        this.acceptanceHistogram = new LatencyHistogram();
+        this.queueWaitHistogram = new LatencyHistogram();
+        this.matchingHistogram = new LatencyHistogram();
+        this.settlementHistogram = new LatencyHistogram();
+    }
+
+    public void onOrder(CurrencyPair currencyPair) {
+        orders.getAndIncrement(currencyPair.getId());
+    }
+
+    public void onFill(CurrencyPair currencyPair) {
+        fills.getAndIncrement(currencyPair.getId());
+    }
+
+    public void onCancel(CurrencyPair currencyPair) {
+        cancels.getAndIncrement(currencyPair.getId());
+    }
+
+    /**
+     * Counts an order its book refused, e.g. for lack of money, orders refused by the admission queue are counted
+     * by {@link #onAdmissionRejection(CurrencyPair)} only
+     */
+    public void onRejection(CurrencyPair currencyPair) {
+        rejections.getAndIncrement(currencyPair.getId());
+    }
+
+    /**
+     * Counts an order refused or dropped because the admission queue of its pair was full
+     */
+    public void onAdmissionRejection(CurrencyPair currencyPair) {
+        admissionRejections.getAndIncrement(currencyPair.getId());
+    }
+
+    /**
+     * Called by the admission queue of the pair after every change, also raises the peak depth
+     */
+    public void updateQueueDepth(CurrencyPair currencyPair, int depth) {
+        int index = currencyPair.getId();
+        queueDepths.lazySet(index, depth);
+        peakQueueDepths.accumulateAndGet(index, depth, Math::max);
+    }
+
+    /**
+     * Called by the book after every change, the values are only ever written by the thread guarding the book
+     */
+    public void updateDepth(CurrencyPair currencyPair, int restingOrders, int bidLevels, int askLevels) {
+        int index = currencyPair.getId();
+        this.restingOrders.lazySet(index, restingOrders);
+        this.bidLevels.lazySet(index, bidLevels);
+        this.askLevels.lazySet(index, askLevels);
+    }
+
+    public long getOrderCount(CurrencyPair currencyPair) {
+        return orders.get(currencyPair.getId());
+    }
+
+    public long getFillCount(CurrencyPair currencyPair) {
+        return fills.get(currencyPair.getId());
+    }
+
+    public long getCancelCount(CurrencyPair currencyPair) {
+        return cancels.get(currencyPair.getId());
+    }
+
+    public long getRejectionCount(CurrencyPair currencyPair) {
+        return rejections.get(currencyPair.getId());
+    }
+
+    public long getRestingOrders(CurrencyPair currencyPair) {
+        return restingOrders.get(currencyPair.getId());
+    }
+
+    public long getBidLevels(CurrencyPair currencyPair) {
+        return bidLevels.get(currencyPair.getId());
+    }
+
+    public long getAskLevels(CurrencyPair currencyPair) {
+        return askLevels.get(currencyPair.getId());
+    }
+
+    public long getAdmissionRejectionCount(CurrencyPair currencyPair) {
+        return admissionRejections.get(currencyPair.getId());
+    }
+
+    /**
+     * @return number of orders of the pair admitted but not yet taken up by its book
+     */
+    public long getQueueDepth(CurrencyPair currencyPair) {
+        return queueDepths.get(currencyPair.getId());
+    }
+
+    /**
+     * @return highest queue depth of the pair seen so far, a guide to sizing its admission capacity
+     */
+    public long getPeakQueueDepth(CurrencyPair currencyPair) {
+        return peakQueueDepths.get(currencyPair.getId());
+    }
+
+    public LatencyHistogram getAcceptanceHistogram() {
+        return acceptanceHistogram;
+    }
+
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWaitHistogram;
+    }
+
+    public LatencyHistogram getMatchingHistogram() {
+        return matchingHistogram;
+    }
+
+    public LatencyHistogram getSettlementHistogram() {
+        return settlementHistogram;
+    }
+
+    @Override
+    public Map<String, Long> getOrderCounts() {
+        return byCurrencyPair(orders);
+    }
+
+    @Override
+    public Map<String, Long> getFillCounts() {
+        return byCurrencyPair(fills);
+    }
+
+    @Override
+    public Map<String, Long> getCancelCounts() {
+        return byCurrencyPair(cancels);
+    }
+
+    @Override
+    public Map<String, Long> getRejectionCounts() {
+        return byCurrencyPair(rejections);
+    }
+
+    @Override
+    public Map<String, Long> getRestingOrders() {
+        return byCurrencyPair(restingOrders);
+    }
+
+    @Override
+    public Map<String, Long> getBidLevels() {
+        return byCurrencyPair(bidLevels);
+    }
+
+    @Override
+    public Map<String, Long> getAskLevels() {
+        return byCurrencyPair(askLevels);
+    }
+
+    @Override
+    public Map<String, Long> getAdmissionRejectionCounts() {
+        return byCurrencyPair(admissionRejections);
+    }
+
+    @Override
+    public Map<String, Long> getQueueDepths() {
+        return byCurrencyPair(queueDepths);
+    }
+
+    @Override
+    public Map<String, Long> getPeakQueueDepths() {
+        return byCurrencyPair(peakQueueDepths);
+    }
+
+    @Override
+    public LatencySummary getAcceptanceLatency() {
+        return acceptanceHistogram.getSummary();
+    }
+
+    @Override
+    public LatencySummary getQueueWaitLatency() {
+        return queueWaitHistogram.getSummary();
+    }
+
+    @Override
+    public LatencySummary getMatchingLatency() {
+        return matchingHistogram.getSummary();
+    }
+
+    @Override
+    public LatencySummary getSettlementLatency() {
+        return settlementHistogram.getSummary();
+    }
+
+    @Override
+    public void resetLatencies() {
+        acceptanceHistogram.reset();
+        queueWaitHistogram.reset();
+        matchingHistogram.reset();
+        settlementHistogram.reset();
+    }
+
+    private static Map<String, Long> byCurrencyPair(GrowableAtomicLongArray values) {
+        Map<String, Long> valuesByPair = new LinkedHashMap<>();
+        for (CurrencyPair currencyPair : CurrencyPair.values()) {
+            valuesByPair.put(currencyPair.name(), values.get(currencyPair.getId()));
+        }
+        return valuesByPair;
+    }
+}
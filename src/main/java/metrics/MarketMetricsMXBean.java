@@ -0,0 +1,39 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link MarketMetrics}, counters and gauges are keyed by currency pair name
+ */
+public interface MarketMetricsMXBean {
+
+    Map<String, Long> getOrderCounts();
+
+    Map<String, Long> getFillCounts();
+
+    Map<String, Long> getCancelCounts();
+
+    Map<String, Long> getRejectionCounts();
+
+    Map<String, Long> getRestingOrders();
+
+    Map<String, Long> getBidLevels();
+
+    Map<String, Long> getAskLevels();
+
+    Map<String, Long> getAdmissionRejectionCounts();
+
+    Map<String, Long> getQueueDepths();
+
+    Map<String, Long> getPeakQueueDepths();
+
+    LatencySummary getAcceptanceLatency();
+
+    LatencySummary getQueueWaitLatency();
+
+    LatencySummary getMatchingLatency();
+
+    LatencySummary getSettlementLatency();
+
+    void resetLatencies();
+}
@@ -1,52 +1,105 @@
 package model;
 
 import exception.NotEnoughMoneyException;
-import util.CurrencyUtils;
+import jfr.WithdrawFailureEvent;
+import util.FixedPointUtils;
+import util.GrowableAtomicLongArray;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Balances live in a per-client array indexed by {@link Currency#getId()} and are updated with CAS,
+ * so clients never contend with each other. The array grows when a currency registered later is first credited
+ */
 public class Client {
     private final int id;
-    private final Map<Currency, BigDecimal> balance;
+    private final GrowableAtomicLongArray balance;
 
     public Client(int id) {
         this.id = id;
-
-        Map<Currency, BigDecimal> balance = new ConcurrentHashMap<>(Currency.values().length);
-        for (Currency currency : Currency.values()) {
-            balance.put(currency, BigDecimal.ZERO.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE));
-        }
-        this.balance = balance;
+        this.balance = new GrowableAtomicLongArray(Currency.count());
     }
 
     public void deposit(Currency currency, BigDecimal amount) {
-        synchronized (currency) {
-            BigDecimal currentAmount = balance.get(currency);
-            BigDecimal newAmount = currentAmount.add(amount).setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
-            balance.put(currency, newAmount);
-        }
+        int index = currency.getId();
+        long currentAmount;
+        do {
+            currentAmount = balance.get(index);
+        } while (!balance.compareAndSet(index, currentAmount, FixedPointUtils.add(currentAmount, amount)));
     }
 
     public void withdraw(Currency currency, BigDecimal amount) {
-        synchronized (currency) {
-            BigDecimal currentAmount = balance.get(currency);
-            if (currentAmount.compareTo(amount.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE)) == -1) {
-                throw new NotEnoughMoneyException(String.format("Trying to withdraw %s %s, but the client %s has only %s", amount.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE), currency, this.getId(), currentAmount));
-            }
-            BigDecimal newAmount = currentAmount.subtract(amount).setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
-            balance.put(currency, newAmount);
+        if (!tryReserve(currency, amount)) {
+            WithdrawFailureEvent.commitIfEnabled(id, currency, FixedPointUtils.toUnits(amount), getBalanceUnits(currency));
+            throw new NotEnoughMoneyException(String.format("Trying to withdraw %s %s, but the client %s has only %s", FixedPointUtils.toBigDecimal(FixedPointUtils.toUnits(amount)), currency, this.getId(), getBalance(currency)));
         }
     }
 
+    /**
+     * Checks the balance and debits the amount in one atomic step
+     *
+     * @return false if the client has not enough money, the balance is left untouched then
+     */
+    public boolean tryReserve(Currency currency, BigDecimal amount) {
+        int index = currency.getId();
+        long reserveAmount = FixedPointUtils.toUnits(amount);
+        long currentAmount;
+        do {
+            currentAmount = balance.get(index);
+            if (currentAmount < reserveAmount) {
+                return false;
+            }
+        } while (!balance.compareAndSet(index, currentAmount, FixedPointUtils.add(currentAmount, amount.negate())));
+        return true;
+    }
+
+    boolean tryReserveUnits(Currency currency, long amount) {
+        int index = currency.getId();
+        long currentAmount;
+        do {
+            currentAmount = balance.get(index);
+            if (currentAmount < amount) {
+                return false;
+            }
+        } while (!balance.compareAndSet(index, currentAmount, currentAmount - amount));
+        return true;
+    }
+
+    void depositUnits(Currency currency, long amount) {
+        int index = currency.getId();
+        long currentAmount;
+        do {
+            currentAmount = balance.get(index);
+        } while (!balance.compareAndSet(index, currentAmount, Math.addExact(currentAmount, amount)));
+    }
+
     public int getId() {
         return id;
     }
 
     public Map<Currency, BigDecimal> getBalance() {
-        return new HashMap<>(this.balance);
+        Map<Currency, BigDecimal> balance = new HashMap<>(Currency.count());
+        for (Currency currency : Currency.values()) {
+            balance.put(currency, FixedPointUtils.toBigDecimal(this.balance.get(currency.getId())));
+        }
+        return balance;
+    }
+
+    public BigDecimal getBalance(Currency currency) {
+        return FixedPointUtils.toBigDecimal(balance.get(currency.getId()));
+    }
+
+    public long getBalanceUnits(Currency currency) {
+        return balance.get(currency.getId());
+    }
+
+    /**
+     * Overwrites the balance with a value taken from a snapshot or a bulk load
+     */
+    public void restoreBalanceUnits(Currency currency, long amount) {
+        balance.set(currency.getId(), amount);
     }
 
 }
@@ -0,0 +1,335 @@
+package model;
+
+import com.google.gson.stream.JsonReader;
+import util.CurrencyUtils;
+import util.FixedPointUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Streams client accounts and their balances from a CSV or JSON file into a {@link ClientRegistry}. The calling
+ * thread only cuts the input into batches of records, worker threads parse the amounts, create the clients with
+ * their balances set directly rather than through deposits, and register each batch taking the registry lock once.
+ * <p>
+ * CSV: a header {@code id,USD,EUR,...} naming the currency of every column, then one client per line, an empty
+ * cell is a zero balance. JSON: an array of records such as {@code {"id": 1, "balances": {"USD": "100.50", "EUR": 20}}}.
+ * Currencies must be registered and amounts non-negative with at most {@link CurrencyUtils#SCALE} decimal places.
+ * An invalid record fails the load with an {@link IllegalArgumentException}, clients of the batches registered
+ * before it stay registered.
+ */
+public class ClientLoader {
+
+    private static final int BATCH_SIZE = 4096;
+
+    private final ClientRegistry registry;
+    private final int threads;
+
+    public ClientLoader(ClientRegistry registry) {
+        this(registry, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads number of threads parsing batches
+     */
+    public ClientLoader(ClientRegistry registry, int threads) {
+        this.registry = registry;
+        this.threads = threads;
+    }
+
+    /**
+     * @return number of loaded clients
+     */
+    public long loadCsv(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return loadCsv(reader);
+        }
+    }
+
+    public long loadCsv(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return 0;
+        }
+        Currency[] columns = parseHeader(header);
+        try (Batches batches = new Batches()) {
+            String[] lines = new String[BATCH_SIZE];
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lines[count++] = line;
+                if (count == BATCH_SIZE) {
+                    String[] batch = lines;
+                    batches.submit(() -> parseCsv(batch, BATCH_SIZE, columns));
+                    lines = new String[BATCH_SIZE];
+                    count = 0;
+                }
+            }
+            String[] batch = lines;
+            int batchSize = count;
+            batches.submit(() -> parseCsv(batch, batchSize, columns));
+            return batches.await();
+        }
+    }
+
+    /**
+     * JSON has to be tokenized in order, so the calling thread does that and workers take the rest
+     *
+     * @return number of loaded clients
+     */
+    public long loadJson(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return loadJson(reader);
+        }
+    }
+
+    public long loadJson(Reader reader) throws IOException {
+        Map<String, Currency> currencies = new HashMap<>();
+        for (Currency currency : Currency.values()) {
+            currencies.put(currency.name(), currency);
+        }
+        JsonReader json = new JsonReader(reader);
+        try (Batches batches = new Batches()) {
+            int[] ids = new int[BATCH_SIZE];
+            String[][] amounts = new String[BATCH_SIZE][];
+            int count = 0;
+            json.beginArray();
+            while (json.hasNext()) {
+                String path = json.getPath();
+                boolean hasId = false;
+                String[] balances = new String[currencies.size()];
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "id": {
+                            ids[count] = json.nextInt();
+                            hasId = true;
+                            break;
+                        }
+                        case "balances": {
+                            json.beginObject();
+                            while (json.hasNext()) {
+                                String name = json.nextName();
+                                Currency currency = currencies.get(name);
+                                if (currency == null) {
+                                    throw new IllegalArgumentException(String.format("Client record %s has a balance in unknown currency %s", path, name));
+                                }
+                                balances[currency.getId()] = json.nextString();
+                            }
+                            json.endObject();
+                            break;
+                        }
+                        default: {
+                            json.skipValue();
+                        }
+                    }
+                }
+                json.endObject();
+                if (!hasId) {
+                    throw new IllegalArgumentException(String.format("Client record %s has no id", path));
+                }
+                amounts[count++] = balances;
+                if (count == BATCH_SIZE) {
+                    int[] batchIds = ids;
+                    String[][] batchAmounts = amounts;
+                    batches.submit(() -> parseJson(batchIds, batchAmounts, BATCH_SIZE));
+                    ids = new int[BATCH_SIZE];
+                    amounts = new String[BATCH_SIZE][];
+                    count = 0;
+                }
+            }
+            json.endArray();
+            int[] batchIds = ids;
+            String[][] batchAmounts = amounts;
+            int batchSize = count;
+            batches.submit(() -> parseJson(batchIds, batchAmounts, batchSize));
+            return batches.await();
+        }
+    }
+
+    private static Currency[] parseHeader(String header) {
+        String[] cells = header.split(",");
+        if (!cells[0].trim().equals("id")) {
+            throw new IllegalArgumentException("Client file header must start with id, got " + header);
+        }
+        Currency[] columns = new Currency[cells.length - 1];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Currency.valueOf(cells[i + 1].trim());
+        }
+        return columns;
+    }
+
+    private static List<Client> parseCsv(String[] lines, int count, Currency[] columns) {
+        List<Client> clients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String line = lines[i];
+            try {
+                int end = cellEnd(line, 0);
+                Client client = new Client(parseId(line, end));
+                for (Currency currency : columns) {
+                    if (end == line.length()) {
+                        throw new IllegalArgumentException(String.format("expected %s cells", columns.length + 1));
+                    }
+                    int start = end + 1;
+                    end = cellEnd(line, start);
+                    setBalance(client, currency, line, start, end);
+                }
+                if (end != line.length()) {
+                    throw new IllegalArgumentException(String.format("expected %s cells", columns.length + 1));
+                }
+                clients.add(client);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IllegalArgumentException(String.format("Invalid client record \"%s\": %s", line, e.getMessage()), e);
+            }
+        }
+        return clients;
+    }
+
+    private static List<Client> parseJson(int[] ids, String[][] amounts, int count) {
+        Currency[] currencies = Currency.values();
+        List<Client> clients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Client client = new Client(ids[i]);
+            try {
+                for (int j = 0; j < amounts[i].length; j++) {
+                    String amount = amounts[i][j];
+                    if (amount != null) {
+                        setBalance(client, currencies[j], amount, 0, amount.length());
+                    }
+                }
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IllegalArgumentException(String.format("Invalid record of client %s: %s", ids[i], e.getMessage()), e);
+            }
+            clients.add(client);
+        }
+        return clients;
+    }
+
+    private static int parseId(String line, int end) {
+        int start = firstNonBlank(line, 0);
+        end = lastNonBlank(line, start, end);
+        return Integer.parseInt(line, start, end, 10);
+    }
+
+    /**
+     * Blank text leaves the balance at zero
+     */
+    private static void setBalance(Client client, Currency currency, String text, int start, int end) {
+        start = firstNonBlank(text, start);
+        end = lastNonBlank(text, start, end);
+        if (start == end) {
+            return;
+        }
+        long units = FixedPointUtils.parseUnits(text, start, end);
+        if (units < 0) {
+            throw new IllegalArgumentException(String.format("negative balance %s %s", text.substring(start, end), currency));
+        }
+        client.restoreBalanceUnits(currency, units);
+    }
+
+    private static int cellEnd(String line, int start) {
+        int end = line.indexOf(',', start);
+        return end < 0 ? line.length() : end;
+    }
+
+    private static int firstNonBlank(String text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return index after the last non-blank character before {@code end}, {@code start} if there is none
+     */
+    private static int lastNonBlank(String text, int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Parses and registers batches on worker threads, at most two per thread wait or run at a time so that
+     * reading never runs far ahead of parsing
+     */
+    private class Batches implements AutoCloseable {
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final List<Future<Integer>> results;
+        private volatile RuntimeException failure;
+
+        private Batches() {
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "client-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.permits = new Semaphore(threads * 2);
+            this.results = new ArrayList<>();
+        }
+
+        private void submit(Callable<List<Client>> batch) throws InterruptedIOException {
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading clients");
+            }
+            results.add(executor.submit(() -> {
+                try {
+                    List<Client> clients = batch.call();
+                    registry.addAll(clients);
+                    return clients.size();
+                } catch (RuntimeException e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        /**
+         * @return number of clients registered by all batches
+         */
+        private long await() throws InterruptedIOException {
+            long loaded = 0;
+            for (Future<Integer> result : results) {
+                try {
+                    loaded += result.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while loading clients");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException("Cannot load clients", e.getCause());
+                }
+            }
+            return loaded;
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package model;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Clients by id in an open-addressing table keyed by the primitive id, so looking a client up on order entry
+ * allocates nothing and takes one probe in the common case. Probes compare ids in an array of keys next to the array
+ * of clients and touch a client object only on a hit. Lookups never lock: a slot's client is written before its key
+ * is published atomically, and a grown table is filled before it replaces the old one. Registration is synchronized,
+ * bulk loads take the lock once per batch. Clients are never removed.
+ * <p>
+ * {@link #values()} can be passed to {@code StockMarket.takeSnapshot} and {@code registry::register} serves as the
+ * client resolver of {@code StockMarket.recover}. A registry passed to {@code StockMarketConfig.setClientRegistry}
+ * is the one the stock market registers the clients of placed orders in.
+ */
+public class ClientRegistry {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long EMPTY = 0;
+    private static final long USED = 1L << 32;
+
+    private volatile Table table;
+    private volatile int size;
+
+    public ClientRegistry() {
+        this(MIN_CAPACITY);
+    }
+
+    public ClientRegistry(int expectedClients) {
+        this.table = new Table(capacityFor(expectedClients));
+    }
+
+    /**
+     * @return the client or null if no client has the id
+     */
+    public Client get(int id) {
+        Table table = this.table;
+        long key = keyOf(id);
+        int mask = table.clients.length - 1;
+        for (int index = indexOf(id, mask); ; index = (index + 1) & mask) {
+            long slotKey = table.keys.get(index);
+            if (slotKey == key) {
+                return table.clients[index];
+            }
+            if (slotKey == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return a new client with no money or the registered one if the id is taken
+     */
+    public Client register(int id) {
+        Client client = get(id);
+        if (client != null) {
+            return client;
+        }
+        synchronized (this) {
+            client = get(id);
+            if (client == null) {
+                client = new Client(id);
+                insert(client);
+            }
+            return client;
+        }
+    }
+
+    /**
+     * Registers a client created elsewhere unless it already is, takes no lock once it is
+     *
+     * @throws IllegalArgumentException if another client object has the id
+     */
+    public void add(Client client) {
+        Client registered = get(client.getId());
+        if (registered == null) {
+            synchronized (this) {
+                registered = get(client.getId());
+                if (registered == null) {
+                    insert(client);
+                    return;
+                }
+            }
+        }
+        if (registered != client) {
+            throw new IllegalArgumentException("Client " + client.getId() + " is not the registered client object with this id");
+        }
+    }
+
+    /**
+     * Registers clients created elsewhere, e.g. by a parallel loader, taking the lock once
+     *
+     * @throws IllegalArgumentException if an id is already taken, the clients before it are registered
+     */
+    public synchronized void addAll(List<Client> clients) {
+        ensureCapacity(size + clients.size());
+        for (Client client : clients) {
+            if (get(client.getId()) != null) {
+                throw new IllegalArgumentException("Client " + client.getId() + " is already registered");
+            }
+            insert(client);
+        }
+    }
+
+    /**
+     * Grows the table up front, so a bulk load of the given number of clients does not rehash on the way
+     */
+    public synchronized void ensureCapacity(int expectedClients) {
+        int capacity = capacityFor(expectedClients);
+        if (capacity > table.clients.length) {
+            resize(capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every client in no particular order, clients registered meanwhile may or may not be visited
+     */
+    public void forEach(Consumer<? super Client> action) {
+        Table table = this.table;
+        for (int i = 0; i < table.clients.length; i++) {
+            if (table.keys.get(i) != EMPTY) {
+                action.accept(table.clients[i]);
+            }
+        }
+    }
+
+    /**
+     * @return live view of the clients, iterating it allocates only the iterator
+     */
+    public Collection<Client> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Client> iterator() {
+                return new TableIterator(table);
+            }
+
+            @Override
+            public int size() {
+                return ClientRegistry.this.size();
+            }
+        };
+    }
+
+    /**
+     * Must hold the lock, the id must not be registered yet
+     */
+    private void insert(Client client) {
+        if (++size > table.clients.length >> 1) {
+            resize(table.clients.length << 1);
+        }
+        place(table, client);
+    }
+
+    private void resize(int capacity) {
+        Table oldTable = table;
+        Table newTable = new Table(capacity);
+        for (int i = 0; i < oldTable.clients.length; i++) {
+            if (oldTable.keys.get(i) != EMPTY) {
+                place(newTable, oldTable.clients[i]);
+            }
+        }
+        table = newTable;
+    }
+
+    private static void place(Table table, Client client) {
+        int mask = table.clients.length - 1;
+        int index = indexOf(client.getId(), mask);
+        while (table.keys.get(index) != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        table.clients[index] = client;
+        table.keys.set(index, keyOf(client.getId()));
+    }
+
+    /**
+     * @return the id with a bit set above it, so that no key equals {@link #EMPTY}
+     */
+    private static long keyOf(int id) {
+        return id & 0xFFFFFFFFL | USED;
+    }
+
+    private static int indexOf(int id, int mask) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int capacityFor(int expectedClients) {
+        if (expectedClients < 0 || expectedClients > (1 << 29)) {
+            throw new IllegalArgumentException("Expected number of clients must be between 0 and 2^29, got " + expectedClients);
+        }
+        int capacity = Integer.highestOneBit(Math.max(expectedClients * 2, MIN_CAPACITY) - 1) << 1;
+        return Math.max(capacity, MIN_CAPACITY);
+    }
+
+    /**
+     * Keys of the slots, {@link #EMPTY} for a free slot, and the clients published by them
+     */
+    private static class Table {
+        private final AtomicLongArray keys;
+        private final Client[] clients;
+
+        private Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.clients = new Client[capacity];
+        }
+    }
+
+    private static class TableIterator implements Iterator<Client> {
+        private final Table table;
+        private int index;
+        private Client next;
+
+        private TableIterator(Table table) {
+            this.table = table;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Client next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Client client = next;
+            advance();
+            return client;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && index < table.clients.length) {
+                if (table.keys.get(index) != EMPTY) {
+                    next = table.clients[index];
+                }
+                index++;
+            }
+        }
+    }
+}
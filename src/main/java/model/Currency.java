@@ -1,51 +1,143 @@
 package model;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * List of supported currencies
+ * Registry of supported currencies. The built-in ones below are always present, more can be registered while the
+ * stock market runs. Each currency gets a dense id in registration order, so balances are arrays indexed by
+ * {@link #getId()}. Ids end up in journals and snapshots, a restarted stock market must register its currencies
+ * in the same order.
  */
-public enum Currency {
+public final class Currency {
+
+    private static final Map<String, Currency> BY_NAME = new ConcurrentHashMap<>();
+    private static volatile Currency[] registered = new Currency[0];
+
     /**
      * United States dollar
      */
-    USD,
+    public static final Currency USD = register("USD");
 
     /**
      * Euro
      */
-    EUR,
+    public static final Currency EUR = register("EUR");
 
     /**
      * Ruble
      */
-    RUB,
+    public static final Currency RUB = register("RUB");
 
     /**
      * Japanese yen
      */
-    JPY,
+    public static final Currency JPY = register("JPY");
 
     /**
      * Sterling
      */
-    GBP,
+    public static final Currency GBP = register("GBP");
 
     /**
      * Australian dollar
      */
-    AUD,
+    public static final Currency AUD = register("AUD");
 
     /**
      * Canadian dollar
      */
-    CAD,
+    public static final Currency CAD = register("CAD");
 
     /**
      * Swiss franc
      */
-    CHF,
+    public static final Currency CHF = register("CHF");
 
     /**
      * Swedish krona
      */
-    SEK
+    public static final Currency SEK = register("SEK");
+
+    private final int id;
+    private final String name;
+
+    private Currency(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * @param name code of the currency, such as USD
+     * @return the new currency or the registered one if the name is taken
+     */
+    public static synchronized Currency register(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Currency name must not be empty");
+        }
+        Currency currency = BY_NAME.get(name);
+        if (currency == null) {
+            currency = new Currency(registered.length, name);
+            Currency[] grown = Arrays.copyOf(registered, registered.length + 1);
+            grown[currency.id] = currency;
+            registered = grown;
+            BY_NAME.put(name, currency);
+        }
+        return currency;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no currency of the name is registered
+     */
+    public static Currency valueOf(String name) {
+        Currency currency = BY_NAME.get(name);
+        if (currency == null) {
+            throw new IllegalArgumentException("Unknown currency " + name);
+        }
+        return currency;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no currency has the id
+     */
+    public static Currency byId(int id) {
+        Currency[] currencies = registered;
+        if (id < 0 || id >= currencies.length) {
+            throw new IllegalArgumentException("Unknown currency id " + id);
+        }
+        return currencies[id];
+    }
+
+    /**
+     * @return registered currencies ordered by id
+     */
+    public static Currency[] values() {
+        return registered.clone();
+    }
+
+    /**
+     * @return number of registered currencies, ids are below it
+     */
+    public static int count() {
+        return registered.length;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
 }
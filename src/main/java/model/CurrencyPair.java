@@ -1,28 +1,159 @@
 package model;
 
+import util.CurrencyUtils;
+import util.FixedPointUtils;
+
+import java.math.BigDecimal;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * List of supported currency pairs
+ * Registry of supported currency pairs. The built-in ones below are always present, more can be registered while
+ * the stock market runs and get a book on their first order. Each pair gets a dense id in registration order, so
+ * books and metrics are arrays indexed by {@link #getId()}. Ids end up in journals and snapshots, a restarted
+ * stock market must register its pairs in the same order.
  */
-public enum CurrencyPair {
-    USD_EUR(Currency.USD, Currency.EUR),
-    USD_RUB(Currency.USD, Currency.RUB),
-    USD_JPY(Currency.USD, Currency.JPY),
-    USD_GBP(Currency.USD, Currency.GBP),
-    USD_AUD(Currency.USD, Currency.AUD),
-    USD_CAD(Currency.USD, Currency.CAD),
-    USD_CHF(Currency.USD, Currency.CHF),
-    USD_SEK(Currency.USD, Currency.SEK),
-    EUR_RUB(Currency.EUR, Currency.RUB),
-    EUR_GBP(Currency.EUR, Currency.GBP),
-    EUR_CHF(Currency.EUR, Currency.CHF),
-    RUB_JPY(Currency.RUB, Currency.JPY);
+public final class CurrencyPair {
+
+    /**
+     * Most pairs that can be registered, order ids keep the pair id in their low bits
+     */
+    public static final int MAX_COUNT = 1 << 16;
+
+    private static final Map<String, CurrencyPair> BY_NAME = new ConcurrentHashMap<>();
+    private static volatile CurrencyPair[] registered = new CurrencyPair[0];
 
+    public static final CurrencyPair USD_EUR = register(Currency.USD, Currency.EUR);
+    public static final CurrencyPair USD_RUB = register(Currency.USD, Currency.RUB);
+    public static final CurrencyPair USD_JPY = register(Currency.USD, Currency.JPY);
+    public static final CurrencyPair USD_GBP = register(Currency.USD, Currency.GBP);
+    public static final CurrencyPair USD_AUD = register(Currency.USD, Currency.AUD);
+    public static final CurrencyPair USD_CAD = register(Currency.USD, Currency.CAD);
+    public static final CurrencyPair USD_CHF = register(Currency.USD, Currency.CHF);
+    public static final CurrencyPair USD_SEK = register(Currency.USD, Currency.SEK);
+    public static final CurrencyPair EUR_RUB = register(Currency.EUR, Currency.RUB);
+    public static final CurrencyPair EUR_GBP = register(Currency.EUR, Currency.GBP);
+    public static final CurrencyPair EUR_CHF = register(Currency.EUR, Currency.CHF);
+    public static final CurrencyPair RUB_JPY = register(Currency.RUB, Currency.JPY);
+
+    private final int id;
+    private final String name;
     private final Currency firstCurrency;
     private final Currency secondCurrency;
+    private final long tickSize;
+    private final long lotSize;
 
-    CurrencyPair(Currency firstCurrency, Currency secondCurrency) {
+    private CurrencyPair(int id, Currency firstCurrency, Currency secondCurrency, long tickSize, long lotSize) {
+        this.id = id;
+        this.name = firstCurrency.name() + "_" + secondCurrency.name();
         this.firstCurrency = firstCurrency;
         this.secondCurrency = secondCurrency;
+        this.tickSize = tickSize;
+        this.lotSize = lotSize;
+    }
+
+    /**
+     * Registers the pair with prices and amounts in steps of the smallest unit
+     *
+     * @return the new pair, named FIRST_SECOND, or the registered one if the name is taken, whatever its trading rules
+     * @throws IllegalStateException if {@link #MAX_COUNT} pairs are already registered
+     */
+    public static synchronized CurrencyPair register(Currency firstCurrency, Currency secondCurrency) {
+        CurrencyPair currencyPair = BY_NAME.get(firstCurrency.name() + "_" + secondCurrency.name());
+        return currencyPair == null ? add(firstCurrency, secondCurrency, 1, 1) : currencyPair;
+    }
+
+    /**
+     * Registers the pair with the steps prices and amounts of its orders must be multiples of. The rules are fixed
+     * for the life of the pair, so every book of the pair and every order agree on them.
+     *
+     * @return the new pair, named FIRST_SECOND, or the registered one if it has the same rules
+     * @throws IllegalArgumentException if the pair is registered with other rules, or the sizes are not positive
+     *                                  or have more than {@link CurrencyUtils#SCALE} decimal places
+     * @throws IllegalStateException    if {@link #MAX_COUNT} pairs are already registered
+     */
+    public static synchronized CurrencyPair register(Currency firstCurrency, Currency secondCurrency, BigDecimal tickSize, BigDecimal lotSize) {
+        long tickSizeUnits = FixedPointUtils.toUnits(tickSize);
+        long lotSizeUnits = FixedPointUtils.toUnits(lotSize);
+        String name = firstCurrency.name() + "_" + secondCurrency.name();
+        if (tickSizeUnits <= 0 || lotSizeUnits <= 0 || tickSize.compareTo(FixedPointUtils.toBigDecimal(tickSizeUnits)) != 0
+                || lotSize.compareTo(FixedPointUtils.toBigDecimal(lotSizeUnits)) != 0) {
+            throw new IllegalArgumentException(String.format("Tick size %s and lot size %s of %s must be positive with at most %s decimal places",
+                    tickSize, lotSize, name, CurrencyUtils.SCALE));
+        }
+        CurrencyPair currencyPair = BY_NAME.get(name);
+        if (currencyPair == null) {
+            return add(firstCurrency, secondCurrency, tickSizeUnits, lotSizeUnits);
+        }
+        if (currencyPair.tickSize != tickSizeUnits || currencyPair.lotSize != lotSizeUnits) {
+            throw new IllegalArgumentException(String.format("%s is already registered with tick size %s and lot size %s",
+                    name, currencyPair.getTickSize(), currencyPair.getLotSize()));
+        }
+        return currencyPair;
+    }
+
+    /**
+     * Must hold the class lock, the name must not be taken
+     */
+    private static CurrencyPair add(Currency firstCurrency, Currency secondCurrency, long tickSize, long lotSize) {
+        if (firstCurrency == secondCurrency) {
+            throw new IllegalArgumentException("Currency pair needs two different currencies, got " + firstCurrency);
+        }
+        if (registered.length == MAX_COUNT) {
+            throw new IllegalStateException("Cannot register more than " + MAX_COUNT + " currency pairs");
+        }
+        CurrencyPair currencyPair = new CurrencyPair(registered.length, firstCurrency, secondCurrency, tickSize, lotSize);
+        CurrencyPair[] grown = Arrays.copyOf(registered, registered.length + 1);
+        grown[currencyPair.id] = currencyPair;
+        registered = grown;
+        BY_NAME.put(currencyPair.name, currencyPair);
+        return currencyPair;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no pair of the name is registered
+     */
+    public static CurrencyPair valueOf(String name) {
+        CurrencyPair currencyPair = BY_NAME.get(name);
+        if (currencyPair == null) {
+            throw new IllegalArgumentException("Unknown currency pair " + name);
+        }
+        return currencyPair;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no pair has the id
+     */
+    public static CurrencyPair byId(int id) {
+        CurrencyPair[] currencyPairs = registered;
+        if (id < 0 || id >= currencyPairs.length) {
+            throw new IllegalArgumentException("Unknown currency pair id " + id);
+        }
+        return currencyPairs[id];
+    }
+
+    /**
+     * @return registered pairs ordered by id
+     */
+    public static CurrencyPair[] values() {
+        return registered.clone();
+    }
+
+    /**
+     * @return number of registered pairs, ids are below it
+     */
+    public static int count() {
+        return registered.length;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String name() {
+        return name;
     }
 
     public Currency getFirstCurrency() {
@@ -32,4 +163,36 @@ public enum CurrencyPair {
     public Currency getSecondCurrency() {
         return secondCurrency;
     }
+
+    public BigDecimal getTickSize() {
+        return FixedPointUtils.toBigDecimal(tickSize);
+    }
+
+    public BigDecimal getLotSize() {
+        return FixedPointUtils.toBigDecimal(lotSize);
+    }
+
+    /**
+     * @return step of order prices in fixed-point units
+     */
+    public long getTickSizeUnits() {
+        return tickSize;
+    }
+
+    /**
+     * @return step of order amounts in fixed-point units
+     */
+    public long getLotSizeUnits() {
+        return lotSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
 }
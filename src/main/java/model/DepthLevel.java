@@ -0,0 +1,43 @@
+package model;
+
+import util.FixedPointUtils;
+
+import java.math.BigDecimal;
+
+/**
+ * Resting orders of one side of a book aggregated at one price
+ */
+public class DepthLevel {
+    private final long price;
+    private final long volume;
+    private final int orderCount;
+
+    public DepthLevel(long price, long volume, int orderCount) {
+        this.price = price;
+        this.volume = volume;
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getPrice() {
+        return FixedPointUtils.toBigDecimal(price);
+    }
+
+    /**
+     * @return total remaining amount of the orders at this price
+     */
+    public BigDecimal getVolume() {
+        return FixedPointUtils.toBigDecimal(volume);
+    }
+
+    public long getPriceUnits() {
+        return price;
+    }
+
+    public long getVolumeUnits() {
+        return volume;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+}
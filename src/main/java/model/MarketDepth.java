@@ -0,0 +1,47 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Best price levels of both sides of a currency pair book taken at one moment, tagged with the version
+ * of the book
+ */
+public class MarketDepth {
+    private final CurrencyPair currencyPair;
+    private final long version;
+    private final List<DepthLevel> bids;
+    private final List<DepthLevel> asks;
+
+    public MarketDepth(CurrencyPair currencyPair, long version, List<DepthLevel> bids, List<DepthLevel> asks) {
+        this.currencyPair = currencyPair;
+        this.version = version;
+        this.bids = Collections.unmodifiableList(bids);
+        this.asks = Collections.unmodifiableList(asks);
+    }
+
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    /**
+     * @return number of changes the book had gone through, grows with every placed batch, cancel and revoke
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return buy levels from the highest price down
+     */
+    public List<DepthLevel> getBids() {
+        return bids;
+    }
+
+    /**
+     * @return sell levels from the lowest price up
+     */
+    public List<DepthLevel> getAsks() {
+        return asks;
+    }
+}
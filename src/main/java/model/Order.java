@@ -1,91 +1,307 @@
 package model;
 
+import exception.InvalidOrderException;
 import exception.NotEnoughMoneyException;
+import internal.OrderAccess;
+import jfr.OrderReduceEvent;
+import jfr.OrderRevokeEvent;
 import util.CurrencyUtils;
+import util.FixedPointUtils;
 
 import java.math.BigDecimal;
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
 
 public class Order {
-    private final Client client;
-    private final CurrencyPair currencyPair;
-    private final OrderType orderType;
-    private BigDecimal amount;
-    private BigDecimal deposit;
-    private final BigDecimal price;
+    /**
+     * Low bits of an order id that hold the id of its currency pair
+     */
+    private static final int PAIR_BITS = Integer.numberOfTrailingZeros(CurrencyPair.MAX_COUNT);
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+    /**
+     * Read-locked while an order reserves its money and takes its id, write-locked while a snapshot copies balances
+     */
+    private static final StampedLock BALANCE_CHANGES = new StampedLock();
+    /**
+     * Set by the first stock market with a journal, until then nothing takes snapshots and orders skip the lock
+     */
+    private static volatile boolean balanceChangesTracked;
 
+    static {
+        OrderAccess.install(new OrderAccess() {
+            @Override
+            public Order replay(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+                return Order.replay(id, client, currencyPair, orderType, amount, price, deposit);
+            }
+
+            @Override
+            public Order restore(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+                return Order.restore(id, client, currencyPair, orderType, amount, price, deposit);
+            }
+
+            @Override
+            public void rebind(Order view, long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+                view.rebind(id, client, currencyPair, orderType, amount, price, deposit);
+            }
+
+            @Override
+            public void terminate(Order order) {
+                order.terminate();
+            }
+
+            @Override
+            public boolean markPlaced(Order order) {
+                return order.markPlaced();
+            }
+
+            @Override
+            public void trackBalanceChanges() {
+                balanceChangesTracked = true;
+            }
+
+            @Override
+            public long lockBalanceChange() {
+                return BALANCE_CHANGES.readLock();
+            }
+
+            @Override
+            public void unlockBalanceChange(long stamp) {
+                BALANCE_CHANGES.unlockRead(stamp);
+            }
+
+            @Override
+            public <T> T pauseBalanceChanges(LongFunction<T> task) {
+                long stamp = BALANCE_CHANGES.writeLock();
+                try {
+                    return task.apply(ID_SEQUENCE.get() << PAIR_BITS | (CurrencyPair.MAX_COUNT - 1));
+                } finally {
+                    BALANCE_CHANGES.unlockWrite(stamp);
+                }
+            }
+        });
+    }
+
+    private long id;
+    private Client client;
+    private CurrencyPair currencyPair;
+    private OrderType orderType;
+    private long amount;
+    private long deposit;
+    private long price;
+    private boolean placed;
+
+    /**
+     * Reserves the money the order needs from the client
+     *
+     * @throws InvalidOrderException   if the amount or the price is not a multiple of the lot or tick size of the pair
+     * @throws NotEnoughMoneyException if the client cannot pay for the order
+     */
     public Order(Client client, CurrencyPair currencyPair, OrderType orderType, BigDecimal amount, BigDecimal price) {
+        checkTradingRules(currencyPair, FixedPointUtils.toUnits(amount), FixedPointUtils.toUnits(price));
+        long stamp = lockIfTracked();
+        try {
+            reserve(client, currencyPair, orderType, amount, price);
+            this.id = nextId(currencyPair);
+        } finally {
+            unlockIfTracked(stamp);
+        }
+        this.client = client;
+        this.currencyPair = currencyPair;
+        this.orderType = orderType;
+        this.amount = FixedPointUtils.toUnits(amount);
+        this.price = FixedPointUtils.toUnits(price);
+    }
+
+    /**
+     * Creates an empty order for {@link OrderPool} or for an order store to bind to its records
+     */
+    public Order() {
+    }
+
+    private Order(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+        this.id = id;
+        this.client = client;
+        this.currencyPair = currencyPair;
+        this.orderType = orderType;
+        this.amount = amount;
+        this.price = price;
+        this.deposit = deposit;
+    }
+
+    /**
+     * See {@link OrderAccess#replay}
+     */
+    static Order replay(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+        ID_SEQUENCE.accumulateAndGet(id >>> PAIR_BITS, Math::max);
         switch (orderType) {
             case BUY: {
-                BigDecimal clientHasMoney = client.getBalance().get(currencyPair.getSecondCurrency());
-                BigDecimal needMoney = price.multiply(amount).setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
-                if (needMoney.compareTo(clientHasMoney) > 0) {
-                    throw new NotEnoughMoneyException(String.format("Cannot create order. Needed at least %s %s. Client %s has only %s", needMoney, currencyPair.getSecondCurrency(), client.getId(), clientHasMoney));
-                }
-                client.withdraw(currencyPair.getSecondCurrency(), needMoney);
-                this.deposit = needMoney.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
+                client.depositUnits(currencyPair.getSecondCurrency(), -deposit);
                 break;
             }
-
             case SELL: {
-                BigDecimal clientHasMoney = client.getBalance().get(currencyPair.getFirstCurrency());
-                BigDecimal needMoney = amount.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
-                if (needMoney.compareTo(clientHasMoney) > 0) {
-                    throw new NotEnoughMoneyException(String.format("Cannot create order. Needed at least %s %s. Client %s has only %s", needMoney, currencyPair.getFirstCurrency(), client.getId(), clientHasMoney));
-                }
-                client.withdraw(currencyPair.getFirstCurrency(), needMoney);
-                this.deposit = BigDecimal.ZERO;
+                client.depositUnits(currencyPair.getFirstCurrency(), -amount);
                 break;
             }
         }
+        return new Order(id, client, currencyPair, orderType, amount, price, deposit);
+    }
+
+    /**
+     * See {@link OrderAccess#restore}
+     */
+    static Order restore(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+        ID_SEQUENCE.accumulateAndGet(id >>> PAIR_BITS, Math::max);
+        return new Order(id, client, currencyPair, orderType, amount, price, deposit);
+    }
+
+    /**
+     * Turns a pooled order into a new order with a new id, reserving its money like the public constructor
+     * does but without BigDecimal arithmetic
+     */
+    void init(Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price) {
+        checkTradingRules(currencyPair, amount, price);
+        long stamp = lockIfTracked();
+        try {
+            reserveUnits(client, currencyPair, orderType, amount, price);
+            this.id = nextId(currencyPair);
+        } finally {
+            unlockIfTracked(stamp);
+        }
+        this.client = client;
+        this.currencyPair = currencyPair;
+        this.orderType = orderType;
+        this.amount = amount;
+        this.price = price;
+        this.placed = false;
+    }
 
+    /**
+     * See {@link OrderAccess#rebind}
+     */
+    void rebind(long id, Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+        this.id = id;
         this.client = client;
         this.currencyPair = currencyPair;
         this.orderType = orderType;
-        this.amount = amount.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
-        this.price = price.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
+        this.amount = amount;
+        this.price = price;
+        this.deposit = deposit;
     }
 
     public void reduce(BigDecimal amount, BigDecimal price) {
-        if (this.amount.compareTo(amount.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE)) < 0) {
-            throw new NotEnoughMoneyException(String.format("Cannot withdraw order for %s. Current amount is %s", amount, this.amount));
+        if (this.amount < FixedPointUtils.toUnits(amount)) {
+            throw new NotEnoughMoneyException(String.format("Cannot withdraw order for %s. Current amount is %s", amount, getAmount()));
         }
 
-        BigDecimal newAmount = this.amount.subtract(amount).setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
-        this.amount = newAmount;
+        OrderReduceEvent event = OrderReduceEvent.beginIfEnabled();
+        this.amount = FixedPointUtils.add(this.amount, amount.negate());
 
-        BigDecimal dealPrice = amount.multiply(price).setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
+        long dealPrice = FixedPointUtils.toUnits(amount.multiply(price));
 
         switch (orderType) {
             case BUY: {
                 client.deposit(currencyPair.getFirstCurrency(), amount);
-                BigDecimal newDeposit = deposit.subtract(dealPrice);
-                this.deposit = newDeposit;
+                this.deposit -= dealPrice;
                 break;
             }
             case SELL: {
-                client.deposit(currencyPair.getSecondCurrency(), dealPrice);
+                client.depositUnits(currencyPair.getSecondCurrency(), dealPrice);
                 break;
             }
         }
+        if (event != null) {
+            event.commit(this, FixedPointUtils.toUnits(amount), FixedPointUtils.toUnits(price));
+        }
+    }
+
+    /**
+     * Same as {@link #reduce(BigDecimal, BigDecimal)} for amount and price given in fixed-point units
+     */
+    public void reduceUnits(long amount, long price) {
+        if (this.amount < amount) {
+            throw new NotEnoughMoneyException(String.format("Cannot withdraw order for %s. Current amount is %s", FixedPointUtils.toBigDecimal(amount), getAmount()));
+        }
+
+        OrderReduceEvent event = OrderReduceEvent.beginIfEnabled();
+        this.amount -= amount;
+
+        long dealPrice = FixedPointUtils.multiply(amount, price);
+
+        switch (orderType) {
+            case BUY: {
+                client.depositUnits(currencyPair.getFirstCurrency(), amount);
+                this.deposit -= dealPrice;
+                break;
+            }
+            case SELL: {
+                client.depositUnits(currencyPair.getSecondCurrency(), dealPrice);
+                break;
+            }
+        }
+        if (event != null) {
+            event.commit(this, amount, price);
+        }
     }
 
     public void revoke() {
+        OrderRevokeEvent event = OrderRevokeEvent.beginIfEnabled();
+        long refund = 0;
         switch (orderType) {
             case BUY: {
-                if (deposit.compareTo(BigDecimal.ZERO) > 0) {
-                    client.deposit(currencyPair.getSecondCurrency(), deposit);
-                    this.deposit = BigDecimal.ZERO;
+                if (deposit > 0) {
+                    refund = deposit;
+                    client.depositUnits(currencyPair.getSecondCurrency(), deposit);
+                    this.deposit = 0;
                 }
                 break;
             }
             case SELL: {
-                if (amount.compareTo(BigDecimal.ZERO) > 0) {
-                    client.deposit(currencyPair.getFirstCurrency(), amount);
+                if (amount > 0) {
+                    refund = amount;
+                    client.depositUnits(currencyPair.getFirstCurrency(), amount);
                 }
                 break;
             }
         }
+        if (event != null) {
+            event.commit(this, refund);
+        }
+    }
+
+    /**
+     * See {@link OrderAccess#markPlaced}
+     */
+    boolean markPlaced() {
+        if (placed) {
+            return false;
+        }
+        placed = true;
+        return true;
+    }
+
+    /**
+     * See {@link OrderAccess#terminate}
+     */
+    void terminate() {
+        revoke();
+        this.amount = 0;
+        this.deposit = 0;
+    }
+
+    /**
+     * @return unique id, ids grow in the order of creation and carry the id of the currency pair,
+     * see {@link #getCurrencyPairId(long)}
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return id of the currency pair of the order with this id, whether or not such an order exists
+     */
+    public static int getCurrencyPairId(long orderId) {
+        return (int) orderId & (CurrencyPair.MAX_COUNT - 1);
     }
 
     public Client getClient() {
@@ -101,23 +317,110 @@ public class Order {
     }
 
     public BigDecimal getAmount() {
-        return amount;
+        return FixedPointUtils.toBigDecimal(amount);
     }
 
     public BigDecimal getPrice() {
+        return FixedPointUtils.toBigDecimal(price);
+    }
+
+    public long getAmountUnits() {
+        return amount;
+    }
+
+    public long getPriceUnits() {
         return price;
     }
 
+    /**
+     * @return money held by a buy order to pay for its fills, always zero for sell orders
+     */
+    public long getDepositUnits() {
+        return deposit;
+    }
+
+    private void reserve(Client client, CurrencyPair currencyPair, OrderType orderType, BigDecimal amount, BigDecimal price) {
+        switch (orderType) {
+            case BUY: {
+                BigDecimal needMoney = price.multiply(amount).setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
+                long needUnits = FixedPointUtils.toUnits(needMoney);
+                if (!client.tryReserveUnits(currencyPair.getSecondCurrency(), needUnits)) {
+                    throw new NotEnoughMoneyException(String.format("Cannot create order. Needed at least %s %s. Client %s has only %s", needMoney, currencyPair.getSecondCurrency(), client.getId(), client.getBalance(currencyPair.getSecondCurrency())));
+                }
+                this.deposit = needUnits;
+                break;
+            }
+
+            case SELL: {
+                BigDecimal needMoney = amount.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
+                if (!client.tryReserveUnits(currencyPair.getFirstCurrency(), FixedPointUtils.toUnits(needMoney))) {
+                    throw new NotEnoughMoneyException(String.format("Cannot create order. Needed at least %s %s. Client %s has only %s", needMoney, currencyPair.getFirstCurrency(), client.getId(), client.getBalance(currencyPair.getFirstCurrency())));
+                }
+                this.deposit = 0;
+                break;
+            }
+        }
+    }
+
+    private void reserveUnits(Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price) {
+        switch (orderType) {
+            case BUY: {
+                long needUnits = FixedPointUtils.multiply(amount, price);
+                if (!client.tryReserveUnits(currencyPair.getSecondCurrency(), needUnits)) {
+                    throw new NotEnoughMoneyException(String.format("Cannot create order. Needed at least %s %s. Client %s has only %s", FixedPointUtils.toBigDecimal(needUnits), currencyPair.getSecondCurrency(), client.getId(), client.getBalance(currencyPair.getSecondCurrency())));
+                }
+                this.deposit = needUnits;
+                break;
+            }
+
+            case SELL: {
+                if (!client.tryReserveUnits(currencyPair.getFirstCurrency(), amount)) {
+                    throw new NotEnoughMoneyException(String.format("Cannot create order. Needed at least %s %s. Client %s has only %s", FixedPointUtils.toBigDecimal(amount), currencyPair.getFirstCurrency(), client.getId(), client.getBalance(currencyPair.getFirstCurrency())));
+                }
+                this.deposit = 0;
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return stamp of the read lock or zero if balance changes are not tracked
+     */
+    private static long lockIfTracked() {
+        return balanceChangesTracked ? BALANCE_CHANGES.readLock() : 0;
+    }
+
+    private static void unlockIfTracked(long stamp) {
+        if (stamp != 0) {
+            BALANCE_CHANGES.unlockRead(stamp);
+        }
+    }
+
+    private static long nextId(CurrencyPair currencyPair) {
+        return ID_SEQUENCE.incrementAndGet() << PAIR_BITS | currencyPair.getId();
+    }
+
+    private static void checkTradingRules(CurrencyPair currencyPair, long amount, long price) {
+        if (amount % currencyPair.getLotSizeUnits() != 0) {
+            throw new InvalidOrderException(String.format("Cannot create order. Amount %s is not a multiple of the lot size %s of %s",
+                    FixedPointUtils.toBigDecimal(amount), currencyPair.getLotSize(), currencyPair));
+        }
+        if (price % currencyPair.getTickSizeUnits() != 0) {
+            throw new InvalidOrderException(String.format("Cannot create order. Price %s is not a multiple of the tick size %s of %s",
+                    FixedPointUtils.toBigDecimal(price), currencyPair.getTickSize(), currencyPair));
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Order order = (Order) o;
-        return Objects.equals(client, order.client) && currencyPair == order.currencyPair && orderType == order.orderType && Objects.equals(amount, order.amount) && Objects.equals(deposit, order.deposit) && Objects.equals(price, order.price);
+        return id == order.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(client, currencyPair, orderType, amount, deposit, price);
+        return Long.hashCode(id);
     }
 }
@@ -0,0 +1,57 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Recycles order objects so that a producer placing orders at a steady rate creates no garbage.
+ * Not thread-safe, every producing thread keeps its own pool.
+ */
+public class OrderPool {
+
+    private Order[] free;
+    private int freeCount;
+
+    /**
+     * @param capacity number of orders created up front
+     */
+    public OrderPool(int capacity) {
+        this.free = new Order[Math.max(capacity, 1)];
+        for (int i = 0; i < capacity; i++) {
+            free[i] = new Order();
+        }
+        this.freeCount = capacity;
+    }
+
+    /**
+     * Same as {@link Order#Order(Client, CurrencyPair, OrderType, java.math.BigDecimal, java.math.BigDecimal)}
+     * for amount and price given in fixed-point units, the order gets a new id
+     */
+    public Order acquire(Client client, CurrencyPair currencyPair, OrderType orderType, long amount, long price) {
+        Order order = freeCount == 0 ? new Order() : free[--freeCount];
+        try {
+            order.init(client, currencyPair, orderType, amount, price);
+        } catch (RuntimeException e) {
+            release(order);
+            throw e;
+        }
+        return order;
+    }
+
+    /**
+     * Takes back an order that no longer rests in a book, i.e. it was filled completely or cancelled, or that a book
+     * keeping its orders off the heap has copied. The order must not be used afterwards.
+     */
+    public void release(Order order) {
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount << 1);
+        }
+        free[freeCount++] = order;
+    }
+
+    /**
+     * @return number of orders ready to be acquired without allocation
+     */
+    public int available() {
+        return freeCount;
+    }
+}
@@ -0,0 +1,58 @@
+package model;
+
+import util.FixedPointUtils;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of placing an order on the stock market
+ */
+public class OrderResult {
+    private final Order order;
+    private final long filledAmount;
+    private final long remainingAmount;
+    private final RuntimeException error;
+
+    public OrderResult(Order order, long filledAmount, long remainingAmount) {
+        this.order = order;
+        this.filledAmount = filledAmount;
+        this.remainingAmount = remainingAmount;
+        this.error = null;
+    }
+
+    /**
+     * Outcome of an order the stock market refused, nothing of it was filled
+     */
+    public OrderResult(Order order, RuntimeException error) {
+        this.order = order;
+        this.filledAmount = 0;
+        this.remainingAmount = 0;
+        this.error = error;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public BigDecimal getFilledAmount() {
+        return FixedPointUtils.toBigDecimal(filledAmount);
+    }
+
+    public BigDecimal getRemainingAmount() {
+        return FixedPointUtils.toBigDecimal(remainingAmount);
+    }
+
+    /**
+     * @return why the order was refused, null if it was placed
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * @return true if the order was not filled completely and rests in the book
+     */
+    public boolean isResting() {
+        return remainingAmount > 0;
+    }
+}
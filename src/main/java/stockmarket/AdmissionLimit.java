@@ -0,0 +1,42 @@
+package stockmarket;
+
+/**
+ * Bound on the orders of one currency pair that are admitted but not yet taken up by its book
+ */
+public class AdmissionLimit {
+
+    private final int capacity;
+    private final AdmissionPolicy policy;
+    private final long blockTimeoutMillis;
+
+    public AdmissionLimit(int capacity, AdmissionPolicy policy) {
+        this(capacity, policy, 0);
+    }
+
+    /**
+     * @param blockTimeoutMillis how long {@link AdmissionPolicy#BLOCK} waits for room
+     */
+    public AdmissionLimit(int capacity, AdmissionPolicy policy, long blockTimeoutMillis) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Admission capacity must be positive, got " + capacity);
+        }
+        if (blockTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Block timeout must not be negative, got " + blockTimeoutMillis);
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public AdmissionPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+}
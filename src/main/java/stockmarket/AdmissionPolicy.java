@@ -0,0 +1,21 @@
+package stockmarket;
+
+/**
+ * What happens to an order of a currency pair whose admission queue is full
+ */
+public enum AdmissionPolicy {
+    /**
+     * The order is refused right away with an {@link exception.OrderRejectedException}
+     */
+    REJECT,
+
+    /**
+     * The caller waits for room up to the timeout of the limit, then the order is refused
+     */
+    BLOCK,
+
+    /**
+     * The oldest order still waiting for its book is refused to make room, the new order is always admitted
+     */
+    DROP_OLDEST
+}
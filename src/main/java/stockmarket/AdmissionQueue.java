@@ -0,0 +1,201 @@
+package stockmarket;
+
+import exception.OrderRejectedException;
+import internal.OrderAccess;
+import journal.Journal;
+import metrics.MarketMetrics;
+import model.CurrencyPair;
+import model.Order;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Orders of one currency pair that were admitted but not yet taken up by the book, oldest first. Every order
+ * takes a ticket before it waits for the book and gives it back once the book starts on it, so no more than
+ * the capacity of orders ever wait for one pair. Rejected orders are revoked and emptied before they are refused,
+ * so they can never be placed afterwards.
+ */
+class AdmissionQueue {
+
+    private static final OrderAccess ORDER_ACCESS = OrderAccess.get();
+
+    private final CurrencyPair currencyPair;
+    private final int capacity;
+    private final AdmissionPolicy policy;
+    private final long blockTimeoutNanos;
+    private final Journal journal;
+    private final MarketMetrics metrics;
+    private final ReentrantLock lock;
+    private final Condition notFull;
+    private Ticket head;
+    private Ticket tail;
+    private int size;
+
+    /**
+     * @param journal where to record the refunds of refused orders, null to record nothing
+     * @param metrics where to report the queue depth and refused orders, null to report nothing
+     */
+    AdmissionQueue(CurrencyPair currencyPair, AdmissionLimit limit, Journal journal, MarketMetrics metrics) {
+        this.currencyPair = currencyPair;
+        this.capacity = limit.getCapacity();
+        this.policy = limit.getPolicy();
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(limit.getBlockTimeoutMillis());
+        this.journal = journal;
+        this.metrics = metrics;
+        this.lock = new ReentrantLock();
+        this.notFull = lock.newCondition();
+    }
+
+    /**
+     * Applies the policy of the pair when the queue is full
+     *
+     * @throws OrderRejectedException if there is no room for the order
+     */
+    Ticket admit(Order order) {
+        lock.lock();
+        try {
+            if (size == capacity) {
+                makeRoom(order);
+            }
+            Ticket ticket = new Ticket(order);
+            if (tail == null) {
+                head = ticket;
+            } else {
+                tail.next = ticket;
+                ticket.prev = tail;
+            }
+            tail = ticket;
+            size++;
+            reportDepth();
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives the ticket back when the book starts on its order
+     *
+     * @throws OrderRejectedException if the order was dropped to make room for a newer one
+     */
+    void accept(Ticket ticket) {
+        lock.lock();
+        try {
+            if (!ticket.dropped) {
+                remove(ticket);
+                notFull.signal();
+                reportDepth();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        throw new OrderRejectedException(String.format("Order %s was dropped, the admission queue of %s is full", ticket.order.getId(), currencyPair));
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void makeRoom(Order order) {
+        switch (policy) {
+            case REJECT: {
+                throw reject(order);
+            }
+            case BLOCK: {
+                long remainingNanos = blockTimeoutNanos;
+                try {
+                    while (size == capacity) {
+                        if (remainingNanos <= 0) {
+                            throw reject(order);
+                        }
+                        remainingNanos = notFull.awaitNanos(remainingNanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject(order);
+                }
+                break;
+            }
+            case DROP_OLDEST: {
+                Ticket oldest = head;
+                remove(oldest);
+                oldest.dropped = true;
+                refuse(oldest.order);
+                break;
+            }
+            default: {
+                throw new IllegalStateException("Unsupported admission policy " + policy);
+            }
+        }
+    }
+
+    private OrderRejectedException reject(Order order) {
+        refuse(order);
+        return new OrderRejectedException(String.format("Order %s was rejected, the admission queue of %s is full", order.getId(), currencyPair));
+    }
+
+    /**
+     * Gives the money of the order back and empties it. The refund is journaled under the balance change lock,
+     * so a snapshot that saw the money taken by the order also sees it given back.
+     */
+    private void refuse(Order order) {
+        if (journal == null) {
+            ORDER_ACCESS.terminate(order);
+        } else {
+            long stamp = ORDER_ACCESS.lockBalanceChange();
+            try {
+                journal.appendRefuse(order);
+                ORDER_ACCESS.terminate(order);
+            } finally {
+                ORDER_ACCESS.unlockBalanceChange(stamp);
+            }
+        }
+        if (metrics != null) {
+            metrics.onAdmissionRejection(currencyPair);
+        }
+    }
+
+    private void remove(Ticket ticket) {
+        if (ticket.prev == null) {
+            head = ticket.next;
+        } else {
+            ticket.prev.next = ticket.next;
+        }
+        if (ticket.next == null) {
+            tail = ticket.prev;
+        } else {
+            ticket.next.prev = ticket.prev;
+        }
+        ticket.prev = null;
+        ticket.next = null;
+        size--;
+    }
+
+    private void reportDepth() {
+        if (metrics != null) {
+            metrics.updateQueueDepth(currencyPair, size);
+        }
+    }
+
+    /**
+     * Place of an order in the queue, guarded by the lock of the queue
+     */
+    static class Ticket {
+        private final Order order;
+        private Ticket prev;
+        private Ticket next;
+        private boolean dropped;
+
+        private Ticket(Order order) {
+            this.order = order;
+        }
+    }
+}
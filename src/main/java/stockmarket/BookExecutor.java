@@ -0,0 +1,43 @@
+package stockmarket;
+
+import model.Order;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks against an order book so that no two tasks touch the same book concurrently
+ */
+interface BookExecutor extends AutoCloseable {
+
+    <T> T call(OrderBook book, Function<OrderBook, T> task);
+
+    /**
+     * Same as calling {@link OrderBook#placeOrder(Order)}, implementations avoid capturing the order
+     * where they can
+     */
+    boolean placeOrder(OrderBook book, Order order);
+
+    /**
+     * Same as calling {@link OrderBook#cancel(long)}, implementations avoid capturing the id where they can
+     */
+    boolean cancelOrder(OrderBook book, long orderId);
+
+    <T> CompletableFuture<T> submit(OrderBook book, Function<OrderBook, T> task);
+
+    /**
+     * Like {@link #submit(OrderBook, Function)} but never runs the task on the calling thread,
+     * so tasks for different books proceed in parallel
+     */
+    <T> CompletableFuture<T> submitDetached(OrderBook book, Function<OrderBook, T> task);
+
+    /**
+     * Runs the task while none of the given books changes, tasks for these books wait until it completes
+     */
+    <T> T callQuiesced(Collection<OrderBook> books, Supplier<T> task);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,321 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+/**
+ * Price levels of one side of a book. Levels near the touch sit in a ladder, an array indexed by price in ticks
+ * with a bitmap of the occupied steps and a pointer to the best one, so finding, adding and removing a level and
+ * moving the best price take constant time. Levels outside the ladder's window are kept in {@link SortedLevels},
+ * those better than the window first and those worse after it. When better levels pile up outside the window,
+ * i.e. the market moved away, the window is centered on the best price again.
+ * <p>
+ * Emptied levels are kept for reuse, a side in a steady state allocates nothing. Not thread-safe.
+ */
+class BookSide {
+
+    /**
+     * Number of ticks the ladder covers, a power of two
+     */
+    static final int LADDER_SIZE = 4096;
+
+    private static final int REBASE_THRESHOLD = 64;
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean bids;
+    private final long tickSize;
+    private final PriceLevel[] ladder;
+    private final long[] occupied;
+    private final SortedLevels outside;
+    private boolean ladderEnabled;
+    private long baseTick;
+    private int ladderCount;
+    private int bestSlot;
+    private int betterCount;
+    private long modCount;
+    private long cursorModCount;
+    private int cursorDepth;
+    private int cursorSlot;
+    private PriceLevel[] freeLevels;
+    private int freeCount;
+
+    /**
+     * @param bids     true for the buy side where higher prices are better, false for the sell side
+     * @param tickSize step of the prices of the side in fixed-point units
+     */
+    BookSide(boolean bids, long tickSize) {
+        this.bids = bids;
+        this.tickSize = tickSize;
+        this.ladder = new PriceLevel[LADDER_SIZE];
+        this.occupied = new long[LADDER_SIZE >> 6];
+        this.outside = new SortedLevels(bids);
+        this.ladderEnabled = true;
+        this.bestSlot = NONE;
+        this.cursorModCount = -1;
+        this.freeLevels = new PriceLevel[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the level with the best price or null if the side is empty
+     */
+    PriceLevel getBest() {
+        if (betterCount > 0 || ladderCount == 0) {
+            return outside.isEmpty() ? null : outside.getLevel(0);
+        }
+        return ladder[bestSlot];
+    }
+
+    /**
+     * Walking the levels by growing depth takes constant time per step as long as the side does not change
+     *
+     * @param depth zero for the best level, one for the next one and so on
+     */
+    PriceLevel getLevel(int depth) {
+        if (depth < betterCount) {
+            return outside.getLevel(depth);
+        }
+        int ladderDepth = depth - betterCount;
+        if (ladderDepth < ladderCount) {
+            return ladder[findSlot(ladderDepth)];
+        }
+        return outside.getLevel(depth - ladderCount);
+    }
+
+    /**
+     * @return the level of the price or null if no order rests at it
+     */
+    PriceLevel get(long price) {
+        int slot = slotOf(price);
+        return slot == NONE ? outside.get(price) : ladder[slot];
+    }
+
+    PriceLevel getOrCreate(long price) {
+        if (ladderEnabled && price % tickSize != 0) {
+            disableLadder();
+        }
+        int slot = slotOf(price);
+        if (slot == NONE && ladderEnabled && ladderCount == 0) {
+            rebase(price);
+            slot = slotOf(price);
+        }
+        if (slot != NONE) {
+            PriceLevel level = ladder[slot];
+            if (level == null) {
+                level = newLevel(price);
+                putInLadder(slot, level);
+            }
+            return level;
+        }
+
+        PriceLevel level = outside.get(price);
+        if (level == null) {
+            level = newLevel(price);
+            outside.insert(level);
+            if (isBetterThanLadder(price)) {
+                betterCount++;
+                if (betterCount > REBASE_THRESHOLD) {
+                    rebase(getBest().getPrice());
+                }
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Removes an empty level and keeps it for reuse
+     */
+    void remove(PriceLevel level) {
+        int slot = slotOf(level.getPrice());
+        if (slot == NONE) {
+            if (isBetterThanLadder(level.getPrice())) {
+                betterCount--;
+            }
+            outside.remove(level);
+        } else {
+            takeFromLadder(slot);
+        }
+        release(level);
+    }
+
+    void clear() {
+        for (int slot = firstSlot(); slot != NONE; slot = nextSlot(slot)) {
+            release(ladder[slot]);
+            ladder[slot] = null;
+        }
+        Arrays.fill(occupied, 0);
+        for (int depth = 0; depth < outside.size(); depth++) {
+            release(outside.getLevel(depth));
+        }
+        outside.clear();
+        ladderEnabled = true;
+        ladderCount = 0;
+        bestSlot = NONE;
+        betterCount = 0;
+        modCount++;
+    }
+
+    /**
+     * @return number of price levels
+     */
+    int size() {
+        return ladderCount + outside.size();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return slot of the level at the depth within the ladder, continuing from the previous lookup when possible
+     */
+    private int findSlot(int ladderDepth) {
+        if (cursorModCount != modCount || ladderDepth < cursorDepth) {
+            cursorModCount = modCount;
+            cursorDepth = 0;
+            cursorSlot = bestSlot;
+        }
+        while (cursorDepth < ladderDepth) {
+            cursorSlot = nextWorse(cursorSlot);
+            cursorDepth++;
+        }
+        return cursorSlot;
+    }
+
+    private void putInLadder(int slot, PriceLevel level) {
+        ladder[slot] = level;
+        occupied[slot >> 6] |= 1L << slot;
+        ladderCount++;
+        modCount++;
+        if (bestSlot == NONE || (bids ? slot > bestSlot : slot < bestSlot)) {
+            bestSlot = slot;
+        }
+    }
+
+    private PriceLevel takeFromLadder(int slot) {
+        PriceLevel level = ladder[slot];
+        ladder[slot] = null;
+        occupied[slot >> 6] &= ~(1L << slot);
+        ladderCount--;
+        modCount++;
+        if (slot == bestSlot) {
+            bestSlot = ladderCount == 0 ? NONE : nextWorse(slot);
+        }
+        return level;
+    }
+
+    /**
+     * Moves the window so that it is centered on the price, levels leaving the window go to the outside levels
+     * and outside levels now inside the window go to the ladder
+     */
+    private void rebase(long price) {
+        for (int slot = firstSlot(); slot != NONE; slot = nextSlot(slot)) {
+            outside.insert(takeFromLadder(slot));
+        }
+        baseTick = Math.floorDiv(price, tickSize) - LADDER_SIZE / 2;
+
+        long bestInLadder = bids ? (baseTick + LADDER_SIZE - 1) * tickSize : baseTick * tickSize;
+        betterCount = outside.countBetter(bestInLadder);
+        while (betterCount < outside.size()) {
+            PriceLevel level = outside.getLevel(betterCount);
+            int slot = slotOf(level.getPrice());
+            if (slot == NONE) {
+                break;
+            }
+            outside.remove(level);
+            putInLadder(slot, level);
+        }
+    }
+
+    /**
+     * Moves every level to the outside levels for good, used once a price off the tick grid arrives
+     */
+    private void disableLadder() {
+        for (int slot = firstSlot(); slot != NONE; slot = nextSlot(slot)) {
+            outside.insert(takeFromLadder(slot));
+        }
+        ladderEnabled = false;
+        betterCount = 0;
+    }
+
+    /**
+     * @return the ladder slot of the price or {@link #NONE} if it is outside the window or off the tick grid
+     */
+    private int slotOf(long price) {
+        if (!ladderEnabled || price % tickSize != 0) {
+            return NONE;
+        }
+        long slot = price / tickSize - baseTick;
+        return slot >= 0 && slot < LADDER_SIZE ? (int) slot : NONE;
+    }
+
+    private boolean isBetterThanLadder(long price) {
+        if (!ladderEnabled) {
+            return false;
+        }
+        long tick = Math.floorDiv(price, tickSize);
+        return bids ? tick >= baseTick + LADDER_SIZE : tick < baseTick;
+    }
+
+    private int nextWorse(int slot) {
+        return bids ? previousOccupied(slot) : nextOccupied(slot);
+    }
+
+    private int firstSlot() {
+        return nextOccupied(-1);
+    }
+
+    private int nextSlot(int slot) {
+        return nextOccupied(slot);
+    }
+
+    /**
+     * Skips empty steps a word of the bitmap at a time
+     *
+     * @return the first occupied slot above the given one or {@link #NONE}
+     */
+    private int nextOccupied(int slot) {
+        int from = slot + 1;
+        if (from >= LADDER_SIZE) {
+            return NONE;
+        }
+        int wordIndex = from >> 6;
+        long word = occupied[wordIndex] & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex == occupied.length) {
+                return NONE;
+            }
+            word = occupied[wordIndex];
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return the first occupied slot below the given one or {@link #NONE}
+     */
+    private int previousOccupied(int slot) {
+        int from = slot - 1;
+        if (from < 0) {
+            return NONE;
+        }
+        int wordIndex = from >> 6;
+        long word = occupied[wordIndex] & (-1L >>> (63 - (from & 63)));
+        while (word == 0) {
+            if (--wordIndex < 0) {
+                return NONE;
+            }
+            word = occupied[wordIndex];
+        }
+        return (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+
+    private PriceLevel newLevel(long price) {
+        return freeCount == 0 ? new PriceLevel(price) : freeLevels[--freeCount].reset(price);
+    }
+
+    private void release(PriceLevel level) {
+        if (freeCount == freeLevels.length) {
+            freeLevels = Arrays.copyOf(freeLevels, freeCount << 1);
+        }
+        freeLevels[freeCount++] = level;
+    }
+}
@@ -0,0 +1,60 @@
+package stockmarket;
+
+import util.LongIntHashMap;
+
+/**
+ * Resting orders of a book grouped by client, each client's slots are linked through their client links and
+ * the index holds the first one. Linking and unlinking allocate nothing until the index has to grow. Not thread-safe
+ */
+class ClientIndex {
+
+    private final OrderStore store;
+    private final LongIntHashMap heads = new LongIntHashMap(256, OrderStore.NONE);
+
+    ClientIndex(OrderStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return slot of the first of the client's resting orders or {@link OrderStore#NONE} if the client has none
+     */
+    int getHead(int clientId) {
+        return heads.get(clientId);
+    }
+
+    void add(int slot) {
+        int head = heads.put(store.getClientId(slot), slot);
+        if (head != OrderStore.NONE) {
+            store.setClientNext(slot, head);
+            store.setClientPrev(head, slot);
+        }
+    }
+
+    void remove(int slot) {
+        int clientPrev = store.getClientPrev(slot);
+        int clientNext = store.getClientNext(slot);
+        if (clientPrev != OrderStore.NONE) {
+            store.setClientNext(clientPrev, clientNext);
+        } else if (clientNext != OrderStore.NONE) {
+            heads.put(store.getClientId(slot), clientNext);
+        } else {
+            heads.remove(store.getClientId(slot));
+        }
+        if (clientNext != OrderStore.NONE) {
+            store.setClientPrev(clientNext, clientPrev);
+        }
+        store.setClientPrev(slot, OrderStore.NONE);
+        store.setClientNext(slot, OrderStore.NONE);
+    }
+
+    /**
+     * Drops the client's list without unlinking its slots, they must be released afterwards
+     */
+    void removeClient(int clientId) {
+        heads.remove(clientId);
+    }
+
+    void clear() {
+        heads.clear();
+    }
+}
@@ -0,0 +1,143 @@
+package stockmarket;
+
+import model.Order;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the placed order objects, the four links of a slot lie next to each other in one int array and freed
+ * slots are chained through their next links. Adding and removing orders allocates nothing until the arrays
+ * have to grow.
+ */
+class HeapOrderStore implements OrderStore {
+
+    private static final int PREV = 0;
+    private static final int NEXT = 1;
+    private static final int CLIENT_PREV = 2;
+    private static final int CLIENT_NEXT = 3;
+    private static final int LINKS = 4;
+
+    private Order[] orders;
+    private int[] links;
+    private int used;
+    private int free = NONE;
+
+    HeapOrderStore(int initialCapacity) {
+        this.orders = new Order[initialCapacity];
+        this.links = new int[initialCapacity * LINKS];
+    }
+
+    @Override
+    public int add(Order order) {
+        int slot = free;
+        if (slot == NONE) {
+            if (used == orders.length) {
+                grow();
+            }
+            slot = used++;
+        } else {
+            free = links[slot * LINKS + NEXT];
+        }
+        orders[slot] = order;
+        int base = slot * LINKS;
+        links[base + PREV] = NONE;
+        links[base + NEXT] = NONE;
+        links[base + CLIENT_PREV] = NONE;
+        links[base + CLIENT_NEXT] = NONE;
+        return slot;
+    }
+
+    @Override
+    public void release(int slot) {
+        orders[slot] = null;
+        links[slot * LINKS + NEXT] = free;
+        free = slot;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(orders, 0, used, null);
+        used = 0;
+        free = NONE;
+    }
+
+    @Override
+    public long getId(int slot) {
+        return orders[slot].getId();
+    }
+
+    @Override
+    public int getClientId(int slot) {
+        return orders[slot].getClient().getId();
+    }
+
+    @Override
+    public long getAmount(int slot) {
+        return orders[slot].getAmountUnits();
+    }
+
+    @Override
+    public long getDeposit(int slot) {
+        return orders[slot].getDepositUnits();
+    }
+
+    @Override
+    public Order load(int slot, Order view) {
+        return orders[slot];
+    }
+
+    @Override
+    public void update(int slot, Order order) {
+    }
+
+    @Override
+    public Order toOrder(int slot) {
+        return orders[slot];
+    }
+
+    @Override
+    public int getPrev(int slot) {
+        return links[slot * LINKS + PREV];
+    }
+
+    @Override
+    public void setPrev(int slot, int prev) {
+        links[slot * LINKS + PREV] = prev;
+    }
+
+    @Override
+    public int getNext(int slot) {
+        return links[slot * LINKS + NEXT];
+    }
+
+    @Override
+    public void setNext(int slot, int next) {
+        links[slot * LINKS + NEXT] = next;
+    }
+
+    @Override
+    public int getClientPrev(int slot) {
+        return links[slot * LINKS + CLIENT_PREV];
+    }
+
+    @Override
+    public void setClientPrev(int slot, int clientPrev) {
+        links[slot * LINKS + CLIENT_PREV] = clientPrev;
+    }
+
+    @Override
+    public int getClientNext(int slot) {
+        return links[slot * LINKS + CLIENT_NEXT];
+    }
+
+    @Override
+    public void setClientNext(int slot, int clientNext) {
+        links[slot * LINKS + CLIENT_NEXT] = clientNext;
+    }
+
+    private void grow() {
+        int capacity = Math.max(orders.length << 1, 16);
+        orders = Arrays.copyOf(orders, capacity);
+        links = Arrays.copyOf(links, capacity * LINKS);
+    }
+}
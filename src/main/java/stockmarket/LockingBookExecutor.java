@@ -0,0 +1,133 @@
+package stockmarket;
+
+import metrics.MarketMetrics;
+import model.Order;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the task on the calling thread while holding the lock of the book. Locks rather than monitors are used,
+ * so a virtual thread waiting for a book unmounts from its carrier instead of pinning it.
+ */
+class LockingBookExecutor implements BookExecutor {
+
+    private final MarketMetrics metrics;
+    /**
+     * Runs detached tasks, which wait for book locks and so must not take threads of the common pool
+     */
+    private final ExecutorService detachedExecutor;
+
+    /**
+     * @param metrics where to record the time spent waiting for book locks, null to record nothing
+     */
+    LockingBookExecutor(MarketMetrics metrics) {
+        this.metrics = metrics;
+        this.detachedExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "book-task");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public <T> T call(OrderBook book, Function<OrderBook, T> task) {
+        long waitStart = metrics == null ? 0 : System.nanoTime();
+        ReentrantLock lock = book.getLock();
+        lock.lock();
+        try {
+            if (metrics != null) {
+                metrics.getQueueWaitHistogram().record(System.nanoTime() - waitStart);
+            }
+            return task.apply(book);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean placeOrder(OrderBook book, Order order) {
+        long waitStart = metrics == null ? 0 : System.nanoTime();
+        ReentrantLock lock = book.getLock();
+        lock.lock();
+        try {
+            if (metrics != null) {
+                metrics.getQueueWaitHistogram().record(System.nanoTime() - waitStart);
+            }
+            return book.placeOrder(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean cancelOrder(OrderBook book, long orderId) {
+        long waitStart = metrics == null ? 0 : System.nanoTime();
+        ReentrantLock lock = book.getLock();
+        lock.lock();
+        try {
+            if (metrics != null) {
+                metrics.getQueueWaitHistogram().record(System.nanoTime() - waitStart);
+            }
+            return book.cancel(orderId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(OrderBook book, Function<OrderBook, T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(call(book, task));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submitDetached(OrderBook book, Function<OrderBook, T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> call(book, task), detachedExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Stock market is closed", e));
+        }
+    }
+
+    /**
+     * Takes the locks of all books in the order of the collection and releases them in reverse order, other tasks
+     * hold one lock at a time
+     */
+    @Override
+    public <T> T callQuiesced(Collection<OrderBook> books, Supplier<T> task) {
+        ReentrantLock[] locks = new ReentrantLock[books.size()];
+        int locked = 0;
+        try {
+            for (OrderBook book : books) {
+                ReentrantLock lock = book.getLock();
+                lock.lock();
+                locks[locked++] = lock;
+            }
+            return task.get();
+        } finally {
+            while (locked > 0) {
+                locks[--locked].unlock();
+            }
+        }
+    }
+
+    /**
+     * Detached tasks already submitted still run
+     */
+    @Override
+    public void close() {
+        detachedExecutor.shutdown();
+    }
+}
@@ -0,0 +1,17 @@
+package stockmarket;
+
+/**
+ * How the stock market serializes access to the order book of each currency pair
+ */
+public enum MatchingMode {
+    /**
+     * The calling thread locks the book of the pair and matches the order itself
+     */
+    LOCKING,
+
+    /**
+     * Every pair is owned by one matching thread that is fed through a lock-free ring buffer,
+     * the book itself is never locked
+     */
+    SINGLE_WRITER
+}
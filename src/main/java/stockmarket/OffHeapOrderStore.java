@@ -0,0 +1,197 @@
+package stockmarket;
+
+import internal.OrderAccess;
+import model.Client;
+import model.ClientRegistry;
+import model.CurrencyPair;
+import model.Order;
+import model.OrderType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Keeps resting orders as fixed-width records in direct buffers allocated a chunk of slots at a time, chunks are
+ * never moved or given back and freed slots are chained through their next links. The heap holds one object per
+ * chunk instead of one per order. Records keep the client id only and clients are resolved through the registry
+ * of the stock market, which rejects orders of a client object other than the one registered under its id.
+ */
+class OffHeapOrderStore implements OrderStore {
+
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int AMOUNT = 16;
+    private static final int DEPOSIT = 24;
+    private static final int CLIENT_ID = 32;
+    private static final int PREV = 36;
+    private static final int NEXT = 40;
+    private static final int CLIENT_PREV = 44;
+    private static final int CLIENT_NEXT = 48;
+    private static final int ORDER_TYPE = 52;
+    private static final int RECORD_SIZE = 56;
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final OrderAccess ORDER_ACCESS = OrderAccess.get();
+
+    private final CurrencyPair currencyPair;
+    private final ClientRegistry clients;
+    private ByteBuffer[] chunks;
+    private int chunkCount;
+    private int used;
+    private int free = NONE;
+
+    /**
+     * @param clients registry every client of the stored orders is registered in
+     */
+    OffHeapOrderStore(CurrencyPair currencyPair, ClientRegistry clients) {
+        this.currencyPair = currencyPair;
+        this.clients = clients;
+        this.chunks = new ByteBuffer[16];
+    }
+
+    @Override
+    public int add(Order order) {
+        int slot = free;
+        if (slot == NONE) {
+            if (used == chunkCount << CHUNK_SHIFT) {
+                addChunk();
+            }
+            slot = used++;
+        } else {
+            free = getNext(slot);
+        }
+
+        Client client = order.getClient();
+        clients.add(client);
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + ID, order.getId());
+        chunk.putLong(offset + PRICE, order.getPriceUnits());
+        chunk.putLong(offset + AMOUNT, order.getAmountUnits());
+        chunk.putLong(offset + DEPOSIT, order.getDepositUnits());
+        chunk.putInt(offset + CLIENT_ID, client.getId());
+        chunk.putInt(offset + PREV, NONE);
+        chunk.putInt(offset + NEXT, NONE);
+        chunk.putInt(offset + CLIENT_PREV, NONE);
+        chunk.putInt(offset + CLIENT_NEXT, NONE);
+        chunk.put(offset + ORDER_TYPE, (byte) order.getOrderType().ordinal());
+        return slot;
+    }
+
+    @Override
+    public void release(int slot) {
+        setNext(slot, free);
+        free = slot;
+    }
+
+    @Override
+    public void clear() {
+        used = 0;
+        free = NONE;
+    }
+
+    @Override
+    public long getId(int slot) {
+        return chunk(slot).getLong(offset(slot) + ID);
+    }
+
+    @Override
+    public int getClientId(int slot) {
+        return chunk(slot).getInt(offset(slot) + CLIENT_ID);
+    }
+
+    @Override
+    public long getAmount(int slot) {
+        return chunk(slot).getLong(offset(slot) + AMOUNT);
+    }
+
+    @Override
+    public long getDeposit(int slot) {
+        return chunk(slot).getLong(offset(slot) + DEPOSIT);
+    }
+
+    @Override
+    public Order load(int slot, Order view) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        ORDER_ACCESS.rebind(view, chunk.getLong(offset + ID), clients.get(chunk.getInt(offset + CLIENT_ID)), currencyPair,
+                ORDER_TYPES[chunk.get(offset + ORDER_TYPE)], chunk.getLong(offset + AMOUNT), chunk.getLong(offset + PRICE),
+                chunk.getLong(offset + DEPOSIT));
+        return view;
+    }
+
+    @Override
+    public void update(int slot, Order order) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + AMOUNT, order.getAmountUnits());
+        chunk.putLong(offset + DEPOSIT, order.getDepositUnits());
+    }
+
+    @Override
+    public Order toOrder(int slot) {
+        Order order = load(slot, new Order());
+        ORDER_ACCESS.markPlaced(order);
+        return order;
+    }
+
+    @Override
+    public int getPrev(int slot) {
+        return chunk(slot).getInt(offset(slot) + PREV);
+    }
+
+    @Override
+    public void setPrev(int slot, int prev) {
+        chunk(slot).putInt(offset(slot) + PREV, prev);
+    }
+
+    @Override
+    public int getNext(int slot) {
+        return chunk(slot).getInt(offset(slot) + NEXT);
+    }
+
+    @Override
+    public void setNext(int slot, int next) {
+        chunk(slot).putInt(offset(slot) + NEXT, next);
+    }
+
+    @Override
+    public int getClientPrev(int slot) {
+        return chunk(slot).getInt(offset(slot) + CLIENT_PREV);
+    }
+
+    @Override
+    public void setClientPrev(int slot, int clientPrev) {
+        chunk(slot).putInt(offset(slot) + CLIENT_PREV, clientPrev);
+    }
+
+    @Override
+    public int getClientNext(int slot) {
+        return chunk(slot).getInt(offset(slot) + CLIENT_NEXT);
+    }
+
+    @Override
+    public void setClientNext(int slot, int clientNext) {
+        chunk(slot).putInt(offset(slot) + CLIENT_NEXT, clientNext);
+    }
+
+    private void addChunk() {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount << 1);
+        }
+        chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_SLOTS * RECORD_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks[slot >>> CHUNK_SHIFT];
+    }
+
+    private static int offset(int slot) {
+        return (slot & CHUNK_MASK) * RECORD_SIZE;
+    }
+}
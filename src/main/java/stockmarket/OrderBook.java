@@ -0,0 +1,734 @@
+package stockmarket;
+
+import event.EventPublisher;
+import event.OrderState;
+import exception.InvalidOrderException;
+import exception.UnsupportedOrderTypeException;
+import internal.OrderAccess;
+import jfr.MatchEvent;
+import journal.Journal;
+import journal.Snapshot;
+import metrics.MarketMetrics;
+import model.*;
+import util.FixedPointUtils;
+import util.LongIntHashMap;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Price-level order book of one currency pair. Not thread-safe, callers must guard it.
+ * <p>
+ * In auction mode incoming orders rest without matching and the book is uncrossed in one pass at a single
+ * clearing price, after a number of orders accumulated or when the caller decides, e.g. on a timer. Orders
+ * resting in an auction enter the order and client indexes only if they outlive the uncross or a cancel needs them.
+ * <p>
+ * Resting orders live in an {@link OrderStore}, on the heap or outside of it. Levels, store slots and the order
+ * index are preallocated and reused, matching allocates nothing in a steady state unless listeners are registered
+ * or a depth view is published. Orders of a store that keeps no order objects are settled through two views
+ * bound to their slots in turn.
+ * <p>
+ * After every change the book publishes an immutable view of its best levels through a volatile field,
+ * readers of the view never synchronize with the writer. A book in auction mode is closed until it uncrosses
+ * and publishes only then, rather than a crossed view after every order.
+ */
+class OrderBook {
+
+    private static final long NO_PRICE = Long.MIN_VALUE;
+    private static final OrderAccess ORDER_ACCESS = OrderAccess.get();
+    /**
+     * Client link of a slot that rests in neither index yet
+     */
+    private static final int UNINDEXED = -2;
+
+    private final CurrencyPair currencyPair;
+    private final ReentrantLock lock;
+    private final OrderStore store;
+    private final LongIntHashMap orderIndex;
+    private final ClientIndex clientIndex;
+    private final Order makerView;
+    private final Order auctionView;
+    private final EventPublisher eventPublisher;
+    private Journal journal;
+    private final ClientRegistry clients;
+    private final BookSide bids;
+    private final BookSide asks;
+    private int size;
+    private long fillCount;
+    private final int publishedLevels;
+    private final MarketMetrics metrics;
+    private long version;
+    private volatile MarketDepth publishedDepth;
+    private volatile boolean auction;
+    private final int auctionOrderCount;
+    private int pendingAuctionOrders;
+    private int[] unindexedSlots;
+    private int unindexedCount;
+    private boolean recovering;
+
+    /**
+     * @param store           where the book keeps its resting orders
+     * @param clients         where to register the clients of placed orders, null to register none
+     * @param publishedLevels number of levels per side in the published view, zero to publish no view
+     * @param metrics         where to count orders and fills and record matching latency, null to record nothing
+     * @param auction           whether the book starts in auction mode
+     * @param auctionOrderCount number of orders after which an auction uncrosses by itself, zero to never
+     */
+    OrderBook(CurrencyPair currencyPair, OrderStore store, EventPublisher eventPublisher, Journal journal, ClientRegistry clients,
+              int publishedLevels, MarketMetrics metrics, boolean auction, int auctionOrderCount) {
+        this.currencyPair = currencyPair;
+        this.lock = new ReentrantLock();
+        this.store = store;
+        this.orderIndex = new LongIntHashMap(1024, OrderStore.NONE);
+        this.clientIndex = new ClientIndex(store);
+        this.unindexedSlots = new int[64];
+        this.makerView = new Order();
+        this.auctionView = new Order();
+        this.eventPublisher = eventPublisher;
+        this.journal = journal;
+        this.clients = clients;
+        this.bids = new BookSide(true, currencyPair.getTickSizeUnits());
+        this.asks = new BookSide(false, currencyPair.getTickSizeUnits());
+        this.publishedLevels = publishedLevels;
+        this.metrics = metrics;
+        this.auction = auction;
+        this.auctionOrderCount = auctionOrderCount;
+        publish();
+    }
+
+    OrderResult addOrder(Order order) {
+        long amountBefore = order.getAmountUnits();
+        place(order);
+        publishPlaced();
+        return new OrderResult(order, amountBefore - order.getAmountUnits(), order.getAmountUnits());
+    }
+
+    /**
+     * Same as {@link #addOrder(Order)} without allocating a result
+     *
+     * @return true if the order rests in the book
+     */
+    boolean placeOrder(Order order) {
+        place(order);
+        publishPlaced();
+        return order.getAmountUnits() > 0;
+    }
+
+    /**
+     * An order the book refuses does not stop the others, its result carries the error
+     */
+    List<OrderResult> addOrders(List<Order> orders) {
+        List<OrderResult> results = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            long amountBefore = order.getAmountUnits();
+            try {
+                place(order);
+            } catch (RuntimeException e) {
+                results.add(new OrderResult(order, e));
+                continue;
+            }
+            results.add(new OrderResult(order, amountBefore - order.getAmountUnits(), order.getAmountUnits()));
+        }
+        publishPlaced();
+        return results;
+    }
+
+    /**
+     * Puts orders taken from a snapshot back in the book as they were, without matching, journaling or events
+     *
+     * @param orders resting orders in book order
+     */
+    void restore(List<Order> orders) {
+        for (Order order : orders) {
+            add(order);
+        }
+        publish();
+    }
+
+    List<Order> getOrders() {
+        List<Order> orders = new ArrayList<>(size);
+        collect(bids, orders);
+        collect(asks, orders);
+        return orders;
+    }
+
+    /**
+     * Copies the resting orders in the same order as {@link #getOrders()} straight from their slots, without creating
+     * order objects
+     */
+    Snapshot.BookImage getImage() {
+        Snapshot.BookImage image = new Snapshot.BookImage(size, auction);
+        int index = copy(bids, OrderType.BUY, image, 0);
+        copy(asks, OrderType.SELL, image, index);
+        return image;
+    }
+
+    /**
+     * Removes the resting order from the book and refunds what is left of it
+     *
+     * @return false if the order does not rest in this book
+     */
+    boolean cancel(long orderId) {
+        index();
+        int slot = orderIndex.remove(orderId);
+        if (slot == OrderStore.NONE) {
+            return false;
+        }
+
+        clientIndex.remove(slot);
+        cancel(slot);
+        publish();
+        return true;
+    }
+
+    /**
+     * Cancels every resting order of the client, walking only the client's own orders
+     *
+     * @return number of cancelled orders
+     */
+    int cancelAllForClient(int clientId) {
+        index();
+        int slot = clientIndex.getHead(clientId);
+        if (slot == OrderStore.NONE) {
+            return 0;
+        }
+
+        clientIndex.removeClient(clientId);
+        int cancelled = 0;
+        while (slot != OrderStore.NONE) {
+            int next = store.getClientNext(slot);
+            orderIndex.remove(store.getId(slot));
+            cancel(slot);
+            cancelled++;
+            slot = next;
+        }
+        publish();
+        return cancelled;
+    }
+
+    /**
+     * Executes the crossed part of the book at the price that fills the most volume. Bids are taken best price
+     * first and in arrival order within a price, each one fills against the asks the same way an incoming
+     * order would, except that every fill settles at the clearing price.
+     *
+     * @return number of fills
+     */
+    int uncross() {
+        int fills = runAuction();
+        publish();
+        return fills;
+    }
+
+    /**
+     * Uncrosses the book if it is in auction mode and is not being recovered, where uncrossing follows the journal
+     *
+     * @return number of fills
+     */
+    int onAuctionTimer() {
+        return auction && !recovering ? uncross() : 0;
+    }
+
+    boolean isAuction() {
+        return auction;
+    }
+
+    /**
+     * Switching from auction to continuous matching uncrosses the orders accumulated so far
+     */
+    void setAuction(boolean auction) {
+        if (this.auction == auction) {
+            return;
+        }
+        this.auction = auction;
+        if (!auction) {
+            uncross();
+        }
+        if (journal != null) {
+            journal.appendAuctionMode(currencyPair, auction);
+        }
+    }
+
+    void revokeAll() {
+        if (journal != null) {
+            journal.appendRevokeAll(currencyPair);
+        }
+        revokeAll(bids);
+        revokeAll(asks);
+        store.clear();
+        orderIndex.clear();
+        clientIndex.clear();
+        unindexedCount = 0;
+        size = 0;
+        publish();
+    }
+
+    /**
+     * @param levels maximum number of price levels per side
+     */
+    MarketDepth getDepth(int levels) {
+        return new MarketDepth(currencyPair, version, aggregate(bids, levels), aggregate(asks, levels));
+    }
+
+    /**
+     * @return the view published after the latest change, safe to call from any thread without guarding the book
+     */
+    MarketDepth getPublishedDepth() {
+        return publishedDepth;
+    }
+
+    /**
+     * @return total remaining amount of the resting orders of the side at the price, zero if there are none
+     */
+    long getVolumeAt(OrderType orderType, long price) {
+        PriceLevel level = getSide(orderType).get(price);
+        return level == null ? 0 : level.getVolume();
+    }
+
+    BigDecimal getBestBidPrice() {
+        return bids.isEmpty() ? null : FixedPointUtils.toBigDecimal(bids.getBest().getPrice());
+    }
+
+    BigDecimal getBestAskPrice() {
+        return asks.isEmpty() ? null : FixedPointUtils.toBigDecimal(asks.getBest().getPrice());
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getFillCount() {
+        return fillCount;
+    }
+
+    /**
+     * @param journal where to record what happens to the book from now on, null to stop recording
+     */
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * While recovering, auctions run only where the journal recorded them, never after a number of orders
+     */
+    void setRecovering(boolean recovering) {
+        this.recovering = recovering;
+    }
+
+    /**
+     * @return the lock guarding the book in {@link MatchingMode#LOCKING} mode
+     */
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    CurrencyPair getCurrencyPair() {
+        return currencyPair;
+    }
+
+    /**
+     * @throws InvalidOrderException if nothing is left of the order, e.g. it was filled or refused before, or a book
+     *                               took it before, e.g. it rests or was cancelled
+     */
+    private void place(Order order) {
+        if (order.getAmountUnits() == 0) {
+            throw new InvalidOrderException(String.format("Order %s has nothing left to place", order.getId()));
+        }
+        if (!ORDER_ACCESS.markPlaced(order)) {
+            throw new InvalidOrderException(String.format("Order %s was placed before", order.getId()));
+        }
+        long matchingStart = metrics == null ? 0 : System.nanoTime();
+        if (clients != null) {
+            clients.add(order.getClient());
+        }
+        if (journal != null) {
+            journal.appendOrder(order);
+        }
+        eventPublisher.publishOrder(order, OrderState.ACCEPTED);
+        if (auction) {
+            rest(order);
+            if (++pendingAuctionOrders >= auctionOrderCount && auctionOrderCount > 0 && !recovering) {
+                runAuction();
+                publish();
+            }
+        } else {
+            match(order, NO_PRICE);
+            if (order.getAmountUnits() > 0) {
+                rest(order);
+            }
+        }
+        if (metrics != null) {
+            metrics.onOrder(currencyPair);
+            metrics.getMatchingHistogram().record(System.nanoTime() - matchingStart);
+        }
+    }
+
+    private void publishPlaced() {
+        if (!auction) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        version++;
+        if (publishedLevels > 0) {
+            publishedDepth = getDepth(publishedLevels);
+        }
+        if (metrics != null) {
+            metrics.updateDepth(currencyPair, size, bids.size(), asks.size());
+        }
+    }
+
+    /**
+     * @return number of fills
+     */
+    private int runAuction() {
+        pendingAuctionOrders = 0;
+        long clearingPrice = getClearingPrice();
+        if (clearingPrice == NO_PRICE) {
+            index();
+            return 0;
+        }
+
+        if (journal != null) {
+            journal.appendUncross(currencyPair);
+        }
+        long fillsBefore = fillCount;
+        for (int depth = 0; depth < bids.size() && !asks.isEmpty() && asks.getBest().getPrice() <= clearingPrice; ) {
+            PriceLevel level = bids.getLevel(depth);
+            if (level.getPrice() < clearingPrice) {
+                break;
+            }
+
+            int slot = level.getHead();
+            while (slot != OrderStore.NONE && !asks.isEmpty() && asks.getBest().getPrice() <= clearingPrice) {
+                int next = store.getNext(slot);
+                Order order = store.load(slot, auctionView);
+                long filled = match(order, clearingPrice);
+                store.update(slot, order);
+                level.reduceVolume(filled);
+                if (order.getAmountUnits() == 0) {
+                    remove(level, slot);
+                }
+                slot = next;
+            }
+
+            if (level.isEmpty()) {
+                bids.remove(level);
+            } else {
+                depth++;
+            }
+        }
+        index();
+        return (int) (fillCount - fillsBefore);
+    }
+
+    /**
+     * Visits the prices of the crossed levels in ascending order, with the bid volume at or above and the ask volume
+     * at or below each of them. Ties in executable volume go to the smaller imbalance, then to the lower price.
+     *
+     * @return the price executing the most volume or {@link #NO_PRICE} if the book is not crossed
+     */
+    private long getClearingPrice() {
+        if (bids.isEmpty() || asks.isEmpty() || bids.getBest().getPrice() < asks.getBest().getPrice()) {
+            return NO_PRICE;
+        }
+
+        long highestBid = bids.getBest().getPrice();
+        long lowestAsk = asks.getBest().getPrice();
+        int bidDepth = 0;
+        long demand = 0;
+        while (bidDepth < bids.size() && bids.getLevel(bidDepth).getPrice() >= lowestAsk) {
+            demand += bids.getLevel(bidDepth).getVolume();
+            bidDepth++;
+        }
+
+        int askDepth = 0;
+        long supply = 0;
+        long clearingPrice = NO_PRICE;
+        long clearingVolume = -1;
+        long clearingImbalance = 0;
+        while (true) {
+            long askPrice = askDepth < asks.size() ? asks.getLevel(askDepth).getPrice() : Long.MAX_VALUE;
+            long bidPrice = bidDepth > 0 ? bids.getLevel(bidDepth - 1).getPrice() : Long.MAX_VALUE;
+            long price = Math.min(askPrice, bidPrice);
+            if (price > highestBid) {
+                return clearingPrice;
+            }
+
+            if (askPrice == price) {
+                supply += asks.getLevel(askDepth).getVolume();
+                askDepth++;
+            }
+            long volume = Math.min(demand, supply);
+            long imbalance = Math.abs(demand - supply);
+            if (volume > clearingVolume || volume == clearingVolume && imbalance < clearingImbalance) {
+                clearingPrice = price;
+                clearingVolume = volume;
+                clearingImbalance = imbalance;
+            }
+            if (bidPrice == price) {
+                demand -= bids.getLevel(bidDepth - 1).getVolume();
+                bidDepth--;
+            }
+        }
+    }
+
+    /**
+     * Walks the opposite side from its best level. Levels left with orders of the same client are passed over,
+     * so removing an emptied level never moves the levels still to be visited.
+     *
+     * @param clearingPrice price of an auction every fill settles at, {@link #NO_PRICE} to fill at the prices
+     *                      of the resting orders
+     * @return the filled amount
+     */
+    private long match(Order order, long clearingPrice) {
+        MatchEvent event = MatchEvent.beginIfEnabled();
+        long amountBefore = order.getAmountUnits();
+        int levelsScanned = 0;
+        int ordersScanned = 0;
+        int fills = 0;
+        long limitPrice = clearingPrice == NO_PRICE ? order.getPriceUnits() : clearingPrice;
+        BookSide oppositeSide = getOppositeSide(order);
+        for (int depth = 0; depth < oppositeSide.size() && order.getAmountUnits() > 0; ) {
+            PriceLevel level = oppositeSide.getLevel(depth);
+            if (!crosses(order.getOrderType(), limitPrice, level.getPrice())) {
+                break;
+            }
+            long dealPrice = clearingPrice == NO_PRICE ? level.getPrice() : clearingPrice;
+            levelsScanned++;
+
+            int slot = level.getHead();
+            while (slot != OrderStore.NONE && order.getAmountUnits() > 0) {
+                int next = store.getNext(slot);
+                ordersScanned++;
+                if (store.getClientId(slot) != order.getClient().getId()) {
+                    Order orderCandidate = store.load(slot, makerView);
+                    long filled = fill(order, orderCandidate, dealPrice);
+                    store.update(slot, orderCandidate);
+                    level.reduceVolume(filled);
+                    fills++;
+                    if (orderCandidate.getAmountUnits() == 0) {
+                        orderCandidate.revoke();
+                        remove(level, slot);
+                        eventPublisher.publishOrder(orderCandidate, OrderState.FILLED);
+                    }
+                }
+                slot = next;
+            }
+
+            if (level.isEmpty()) {
+                oppositeSide.remove(level);
+            } else {
+                depth++;
+            }
+        }
+        if (event != null) {
+            event.commit(order, levelsScanned, ordersScanned, fills, amountBefore - order.getAmountUnits());
+        }
+        return amountBefore - order.getAmountUnits();
+    }
+
+    /**
+     * @return the filled amount
+     */
+    private long fill(Order order, Order orderCandidate, long dealPrice) {
+        long dealAmount = Math.min(orderCandidate.getAmountUnits(), order.getAmountUnits());
+        long settlementStart = metrics == null ? 0 : System.nanoTime();
+        orderCandidate.reduceUnits(dealAmount, dealPrice);
+        order.reduceUnits(dealAmount, dealPrice);
+        if (metrics != null) {
+            metrics.getSettlementHistogram().record(System.nanoTime() - settlementStart);
+            metrics.onFill(currencyPair);
+        }
+        fillCount++;
+        if (journal != null) {
+            journal.appendFill(orderCandidate, order, dealPrice, dealAmount);
+        }
+        eventPublisher.publishTrade(orderCandidate, order, dealPrice, dealAmount);
+        if (order.getAmountUnits() == 0) {
+            order.revoke();
+            eventPublisher.publishOrder(order, OrderState.FILLED);
+        }
+        return dealAmount;
+    }
+
+    private void rest(Order order) {
+        if (auction) {
+            addUnindexed(order);
+        } else {
+            add(order);
+        }
+        eventPublisher.publishOrder(order, OrderState.RESTING);
+    }
+
+    private void add(Order order) {
+        int slot = store.add(order);
+        getOwnSide(order).getOrCreate(order.getPriceUnits()).add(slot, store);
+        orderIndex.put(order.getId(), slot);
+        clientIndex.add(slot);
+        size++;
+    }
+
+    /**
+     * Rests an order of an auction outside of both indexes, most such orders fill when the book uncrosses and are
+     * never looked up by id or client. {@link #index()} adds the rest before anything looks them up.
+     */
+    private void addUnindexed(Order order) {
+        int slot = store.add(order);
+        getOwnSide(order).getOrCreate(order.getPriceUnits()).add(slot, store);
+        store.setClientPrev(slot, UNINDEXED);
+        if (unindexedCount == unindexedSlots.length) {
+            unindexedSlots = Arrays.copyOf(unindexedSlots, unindexedCount * 2);
+        }
+        unindexedSlots[unindexedCount++] = slot;
+        size++;
+    }
+
+    /**
+     * Adds the orders rested by {@link #addUnindexed(Order)} that are still in the book to both indexes
+     */
+    private void index() {
+        for (int i = 0; i < unindexedCount; i++) {
+            int slot = unindexedSlots[i];
+            if (store.getClientPrev(slot) == UNINDEXED) {
+                store.setClientPrev(slot, OrderStore.NONE);
+                orderIndex.put(store.getId(slot), slot);
+                clientIndex.add(slot);
+            }
+        }
+        unindexedCount = 0;
+    }
+
+    /**
+     * Takes a filled order out of its level and both indexes and frees its slot, the level is left in place
+     */
+    private void remove(PriceLevel level, int slot) {
+        level.remove(slot, store);
+        if (store.getClientPrev(slot) == UNINDEXED) {
+            store.setClientPrev(slot, OrderStore.NONE);
+        } else {
+            orderIndex.remove(store.getId(slot));
+            clientIndex.remove(slot);
+        }
+        store.release(slot);
+        size--;
+    }
+
+    /**
+     * Takes the order of a slot already dropped from both indexes out of its level and refunds it
+     */
+    private void cancel(int slot) {
+        Order order = store.load(slot, makerView);
+        BookSide side = getOwnSide(order);
+        PriceLevel level = side.get(order.getPriceUnits());
+        level.remove(slot, store);
+        store.release(slot);
+        size--;
+        if (level.isEmpty()) {
+            side.remove(level);
+        }
+        if (journal != null) {
+            journal.appendCancel(order);
+        }
+        order.revoke();
+        eventPublisher.publishOrder(order, OrderState.CANCELLED);
+        if (metrics != null) {
+            metrics.onCancel(currencyPair);
+        }
+    }
+
+    private boolean crosses(OrderType orderType, long limitPrice, long levelPrice) {
+        switch (orderType) {
+            case BUY: {
+                return limitPrice >= levelPrice;
+            }
+            case SELL: {
+                return limitPrice <= levelPrice;
+            }
+            default: {
+                throw new UnsupportedOrderTypeException();
+            }
+        }
+    }
+
+    private BookSide getOwnSide(Order order) {
+        return getSide(order.getOrderType());
+    }
+
+    private BookSide getSide(OrderType orderType) {
+        switch (orderType) {
+            case BUY: {
+                return bids;
+            }
+            case SELL: {
+                return asks;
+            }
+            default: {
+                throw new UnsupportedOrderTypeException();
+            }
+        }
+    }
+
+    private BookSide getOppositeSide(Order order) {
+        switch (order.getOrderType()) {
+            case BUY: {
+                return asks;
+            }
+            case SELL: {
+                return bids;
+            }
+            default: {
+                throw new UnsupportedOrderTypeException();
+            }
+        }
+    }
+
+    private void revokeAll(BookSide side) {
+        for (int depth = 0; depth < side.size(); depth++) {
+            for (int slot = side.getLevel(depth).getHead(); slot != OrderStore.NONE; slot = store.getNext(slot)) {
+                Order order = store.load(slot, makerView);
+                order.revoke();
+                eventPublisher.publishOrder(order, OrderState.CANCELLED);
+                if (metrics != null) {
+                    metrics.onCancel(currencyPair);
+                }
+            }
+        }
+        side.clear();
+    }
+
+    private static List<DepthLevel> aggregate(BookSide side, int levels) {
+        int depthLevels = Math.min(levels, side.size());
+        List<DepthLevel> depth = new ArrayList<>(depthLevels);
+        for (int i = 0; i < depthLevels; i++) {
+            PriceLevel level = side.getLevel(i);
+            depth.add(new DepthLevel(level.getPrice(), level.getVolume(), level.size()));
+        }
+        return depth;
+    }
+
+    /**
+     * @return index after the last copied order
+     */
+    private int copy(BookSide side, OrderType orderType, Snapshot.BookImage image, int index) {
+        for (int depth = 0; depth < side.size(); depth++) {
+            PriceLevel level = side.getLevel(depth);
+            for (int slot = level.getHead(); slot != OrderStore.NONE; slot = store.getNext(slot)) {
+                image.set(index++, store.getId(slot), store.getClientId(slot), orderType, store.getAmount(slot), level.getPrice(), store.getDeposit(slot));
+            }
+        }
+        return index;
+    }
+
+    private void collect(BookSide side, List<Order> orders) {
+        for (int depth = 0; depth < side.size(); depth++) {
+            PriceLevel level = side.getLevel(depth);
+            for (int slot = level.getHead(); slot != OrderStore.NONE; slot = store.getNext(slot)) {
+                orders.add(store.toOrder(slot));
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package stockmarket;
+
+/**
+ * Where the order books keep their resting orders
+ */
+public enum OrderStorage {
+    /**
+     * The books hold on to the placed order objects, which stay up to date while they rest
+     */
+    HEAP,
+
+    /**
+     * The books copy resting orders into fixed-width records outside the heap, so the garbage collector never
+     * traces them however deep the books grow. Order objects are created only when orders are handed out, e.g.
+     * by {@link StockMarket#getAllOrdersList()}.
+     * <p>
+     * A placed order object reflects the fills made while it is placed and no longer changes once it rests: later
+     * fills, cancels and refunds settle on the record, so follow them through the listeners, the balances or
+     * {@link StockMarket#getAllOrdersList()}, and the object may go back to its {@link model.OrderPool} right away.
+     * Records keep client ids, every id must stand for a single client object: orders of another object with an id
+     * already seen are rejected.
+     */
+    OFF_HEAP
+}
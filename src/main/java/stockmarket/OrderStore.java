@@ -0,0 +1,78 @@
+package stockmarket;
+
+import model.Order;
+
+/**
+ * Resting orders of one book in numbered slots, together with the links that queue them at their price level
+ * and group them by client. Slots of removed orders are reused. Not thread-safe.
+ */
+interface OrderStore {
+
+    /**
+     * Slot number standing for no slot, e.g. the end of a queue
+     */
+    int NONE = -1;
+
+    /**
+     * Keeps the order in a free slot with all links cleared
+     *
+     * @return the slot
+     */
+    int add(Order order);
+
+    /**
+     * Frees the slot of an order that has left the book, the slot must not be used afterwards
+     */
+    void release(int slot);
+
+    /**
+     * Frees every slot
+     */
+    void clear();
+
+    long getId(int slot);
+
+    int getClientId(int slot);
+
+    /**
+     * @return remaining amount of the order
+     */
+    long getAmount(int slot);
+
+    /**
+     * @return money held by a buy order, zero for sell orders
+     */
+    long getDeposit(int slot);
+
+    /**
+     * Returns the order of the slot to settle fills and refunds through. A store that keeps no order objects
+     * binds the given view to the slot and returns it, so changes must be written back with {@link #update}.
+     */
+    Order load(int slot, Order view);
+
+    /**
+     * Writes back the amount and the deposit of an order returned by {@link #load}
+     */
+    void update(int slot, Order order);
+
+    /**
+     * @return an order the caller may keep, e.g. to hand out to users of the stock market, no book takes it again
+     */
+    Order toOrder(int slot);
+
+    int getPrev(int slot);
+
+    void setPrev(int slot, int prev);
+
+    int getNext(int slot);
+
+    void setNext(int slot, int next);
+
+    int getClientPrev(int slot);
+
+    void setClientPrev(int slot, int clientPrev);
+
+    int getClientNext(int slot);
+
+    void setClientNext(int slot, int clientNext);
+}
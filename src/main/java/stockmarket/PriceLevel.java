@@ -0,0 +1,97 @@
+package stockmarket;
+
+/**
+ * FIFO queue of resting orders sharing one price, linked through the slots of the book's {@link OrderStore}.
+ * Keeps the total amount of its orders up to date, so depth queries never walk the queue
+ */
+class PriceLevel {
+
+    private long price;
+    private int head = OrderStore.NONE;
+    private int tail = OrderStore.NONE;
+    private int size;
+    private long volume;
+
+    PriceLevel(long price) {
+        this.price = price;
+    }
+
+    /**
+     * Prepares an emptied level for reuse at another price
+     */
+    PriceLevel reset(long price) {
+        this.price = price;
+        this.head = OrderStore.NONE;
+        this.tail = OrderStore.NONE;
+        this.size = 0;
+        this.volume = 0;
+        return this;
+    }
+
+    /**
+     * Appends the order of the slot
+     */
+    void add(int slot, OrderStore store) {
+        if (tail == OrderStore.NONE) {
+            head = slot;
+        } else {
+            store.setNext(tail, slot);
+            store.setPrev(slot, tail);
+        }
+        tail = slot;
+        size++;
+        volume += store.getAmount(slot);
+    }
+
+    void remove(int slot, OrderStore store) {
+        int prev = store.getPrev(slot);
+        int next = store.getNext(slot);
+        if (prev == OrderStore.NONE) {
+            head = next;
+        } else {
+            store.setNext(prev, next);
+        }
+        if (next == OrderStore.NONE) {
+            tail = prev;
+        } else {
+            store.setPrev(next, prev);
+        }
+        store.setPrev(slot, OrderStore.NONE);
+        store.setNext(slot, OrderStore.NONE);
+        size--;
+        volume -= store.getAmount(slot);
+    }
+
+    /**
+     * Must be called when an order of the level is partially or fully filled, before it is removed
+     */
+    void reduceVolume(long amount) {
+        volume -= amount;
+    }
+
+    long getPrice() {
+        return price;
+    }
+
+    /**
+     * @return slot of the first order or {@link OrderStore#NONE} if the level is empty
+     */
+    int getHead() {
+        return head;
+    }
+
+    /**
+     * @return total remaining amount of the orders at this price
+     */
+    long getVolume() {
+        return volume;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,274 @@
+package stockmarket;
+
+import metrics.MarketMetrics;
+import model.Order;
+import util.MpscRingBuffer;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Every currency pair is owned by one matching thread. Callers hand tasks over through the
+ * lock-free ring buffer of that thread, so books are only ever touched by their owner.
+ */
+class SingleWriterBookExecutor implements BookExecutor {
+
+    private static final int SPINS_BEFORE_PARK = 200;
+
+    private final MatchingThread[] matchingThreads;
+
+    /**
+     * @param metrics where to record the time tasks wait in the ring buffers, null to record nothing
+     */
+    SingleWriterBookExecutor(int threads, int ringBufferCapacity, MarketMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one matching thread is required, got " + threads);
+        }
+        this.matchingThreads = new MatchingThread[threads];
+        for (int i = 0; i < threads; i++) {
+            matchingThreads[i] = new MatchingThread("matching-" + i, ringBufferCapacity, metrics);
+            matchingThreads[i].start();
+        }
+    }
+
+    @Override
+    public <T> T call(OrderBook book, Function<OrderBook, T> task) {
+        try {
+            return submit(book, task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Still allocates the task handed over to the matching thread
+     */
+    @Override
+    public boolean placeOrder(OrderBook book, Order order) {
+        return call(book, orderBook -> orderBook.placeOrder(order));
+    }
+
+    /**
+     * Still allocates the task handed over to the matching thread
+     */
+    @Override
+    public boolean cancelOrder(OrderBook book, long orderId) {
+        return call(book, orderBook -> orderBook.cancel(orderId));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(OrderBook book, Function<OrderBook, T> task) {
+        BookTask<T> bookTask = new BookTask<>(book, task);
+        getOwner(book).enqueue(bookTask);
+        return bookTask.future;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submitDetached(OrderBook book, Function<OrderBook, T> task) {
+        return submit(book, task);
+    }
+
+    /**
+     * Parks the owners of the books on a pause task each and runs the task on the calling thread once all
+     * of them have reached it
+     */
+    @Override
+    public <T> T callQuiesced(Collection<OrderBook> books, Supplier<T> task) {
+        Set<MatchingThread> owners = new LinkedHashSet<>();
+        for (OrderBook book : books) {
+            owners.add(getOwner(book));
+        }
+
+        CountDownLatch paused = new CountDownLatch(owners.size());
+        CountDownLatch resume = new CountDownLatch(1);
+        List<BookTask<Void>> pauseTasks = new ArrayList<>(owners.size());
+        for (MatchingThread owner : owners) {
+            BookTask<Void> pauseTask = new BookTask<>(null, book -> {
+                paused.countDown();
+                awaitUninterruptibly(resume);
+                return null;
+            });
+            pauseTask.future.exceptionally(e -> {
+                paused.countDown();
+                return null;
+            });
+            pauseTasks.add(pauseTask);
+            owner.enqueue(pauseTask);
+        }
+        try {
+            awaitUninterruptibly(paused);
+            for (BookTask<Void> pauseTask : pauseTasks) {
+                if (pauseTask.future.isCompletedExceptionally()) {
+                    pauseTask.future.join();
+                }
+            }
+            return task.get();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            resume.countDown();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (MatchingThread matchingThread : matchingThreads) {
+            matchingThread.shutdown();
+        }
+        for (MatchingThread matchingThread : matchingThreads) {
+            try {
+                matchingThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private MatchingThread getOwner(OrderBook book) {
+        return matchingThreads[book.getCurrencyPair().getId() % matchingThreads.length];
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class BookTask<T> {
+        private final OrderBook book;
+        private final Function<OrderBook, T> task;
+        private final CompletableFuture<T> future;
+        private long enqueuedAt;
+
+        private BookTask(OrderBook book, Function<OrderBook, T> task) {
+            this.book = book;
+            this.task = task;
+            this.future = new CompletableFuture<>();
+        }
+
+        private void run() {
+            try {
+                future.complete(task.apply(book));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class MatchingThread extends Thread {
+        private final MpscRingBuffer<BookTask<?>> tasks;
+        private final MarketMetrics metrics;
+        private final Object drainLock;
+        private volatile boolean running;
+        private volatile boolean terminated;
+        private volatile boolean parked;
+
+        private MatchingThread(String name, int ringBufferCapacity, MarketMetrics metrics) {
+            super(name);
+            this.tasks = new MpscRingBuffer<>(ringBufferCapacity);
+            this.metrics = metrics;
+            this.drainLock = new Object();
+            this.running = true;
+            setDaemon(true);
+        }
+
+        /**
+         * A task offered while the thread stops is either run by its final drain or, once the thread has
+         * terminated, failed here, so no future is left incomplete
+         */
+        private void enqueue(BookTask<?> task) {
+            if (!running) {
+                task.future.completeExceptionally(closed());
+                return;
+            }
+            if (metrics != null) {
+                task.enqueuedAt = System.nanoTime();
+            }
+            while (!tasks.offer(task)) {
+                if (terminated) {
+                    task.future.completeExceptionally(closed());
+                    return;
+                }
+                LockSupport.unpark(this);
+                Thread.yield();
+            }
+            if (terminated) {
+                failPending();
+            } else if (parked) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        /**
+         * Fails the tasks left in the buffer after the thread has terminated. Callers take turns as the consumer,
+         * a slot claimed by a producer is waited for until it is published.
+         */
+        private void failPending() {
+            synchronized (drainLock) {
+                while (!tasks.isEmpty()) {
+                    BookTask<?> task = tasks.poll();
+                    if (task == null) {
+                        Thread.yield();
+                    } else {
+                        task.future.completeExceptionally(closed());
+                    }
+                }
+            }
+        }
+
+        private static IllegalStateException closed() {
+            return new IllegalStateException("Stock market is closed");
+        }
+
+        private void shutdown() {
+            running = false;
+            LockSupport.unpark(this);
+        }
+
+        @Override
+        public void run() {
+            int idleSpins = 0;
+            while (running || !tasks.isEmpty()) {
+                BookTask<?> task = tasks.poll();
+                if (task != null) {
+                    if (metrics != null && task.book != null) {
+                        metrics.getQueueWaitHistogram().record(System.nanoTime() - task.enqueuedAt);
+                    }
+                    task.run();
+                    idleSpins = 0;
+                } else if (idleSpins < SPINS_BEFORE_PARK) {
+                    idleSpins++;
+                } else {
+                    parked = true;
+                    if (tasks.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                }
+            }
+            terminated = true;
+            failPending();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package stockmarket;
+
+import java.util.Arrays;
+
+/**
+ * Price levels of one side in a sorted array with the best level at the end, so the levels matching touches most
+ * are removed and inserted without shifting. Prices are searched as primitives. Not thread-safe.
+ */
+class SortedLevels {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean bids;
+    private long[] ranks;
+    private PriceLevel[] levels;
+    private int size;
+
+    /**
+     * @param bids true for the buy side where higher prices are better, false for the sell side
+     */
+    SortedLevels(boolean bids) {
+        this.bids = bids;
+        this.ranks = new long[INITIAL_CAPACITY];
+        this.levels = new PriceLevel[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @param depth zero for the best level, one for the next one and so on
+     */
+    PriceLevel getLevel(int depth) {
+        return levels[size - 1 - depth];
+    }
+
+    /**
+     * @return the level of the price or null if there is none
+     */
+    PriceLevel get(long price) {
+        int index = indexOf(rank(price));
+        return index < 0 ? null : levels[index];
+    }
+
+    /**
+     * Adds a level whose price is not in the array yet
+     */
+    void insert(PriceLevel level) {
+        long rank = rank(level.getPrice());
+        int insertionPoint = -indexOf(rank) - 1;
+        if (size == levels.length) {
+            ranks = Arrays.copyOf(ranks, size << 1);
+            levels = Arrays.copyOf(levels, size << 1);
+        }
+        System.arraycopy(ranks, insertionPoint, ranks, insertionPoint + 1, size - insertionPoint);
+        System.arraycopy(levels, insertionPoint, levels, insertionPoint + 1, size - insertionPoint);
+        ranks[insertionPoint] = rank;
+        levels[insertionPoint] = level;
+        size++;
+    }
+
+    void remove(PriceLevel level) {
+        int index = indexOf(rank(level.getPrice()));
+        System.arraycopy(ranks, index + 1, ranks, index, size - index - 1);
+        System.arraycopy(levels, index + 1, levels, index, size - index - 1);
+        levels[--size] = null;
+    }
+
+    /**
+     * @return number of levels with a better price than the given one
+     */
+    int countBetter(long price) {
+        int index = indexOf(rank(price));
+        return index < 0 ? size + index + 1 : size - index - 1;
+    }
+
+    void clear() {
+        Arrays.fill(levels, 0, size, null);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Ranks grow towards the best price, so the best level sorts last on both sides
+     */
+    private long rank(long price) {
+        return bids ? price : -price;
+    }
+
+    /**
+     * Searches from the best end first, as most lookups hit levels near the top of the book
+     */
+    private int indexOf(long rank) {
+        if (size > 0 && ranks[size - 1] == rank) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(ranks, 0, size, rank);
+    }
+}
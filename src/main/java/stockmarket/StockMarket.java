@@ -1,121 +1,826 @@
 package stockmarket;
 
-import exception.UnsupportedOrderTypeException;
-import model.CurrencyPair;
-import model.Order;
+import event.EventPublisher;
+import event.MarketListener;
+import exception.NotEnoughMoneyException;
+import exception.OrderRejectedException;
+import internal.OrderAccess;
+import jfr.OrderSubmissionEvent;
+import journal.Journal;
+import journal.JournalReader;
+import journal.Snapshot;
+import metrics.MarketMetrics;
+import model.*;
+import model.Currency;
+import util.FixedPointUtils;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
-public class StockMarket {
+public class StockMarket implements AutoCloseable {
 
-    private final Map<CurrencyPair, List<Order>> orders;
+    private static final AtomicLong INSTANCE_SEQUENCE = new AtomicLong();
+    private static final OrderAccess ORDER_ACCESS = OrderAccess.get();
+
+    private final BookExecutor executor;
+    private final boolean matchingOnCaller;
+    private final AdmissionQueue[] admissionQueues;
+    private final EventPublisher eventPublisher;
+    private final Journal journal;
+    private final ClientRegistry clients;
+    private final MarketMetrics metrics;
+    private final ObjectName metricsName;
+    private final Path snapshotDirectory;
+    private final int snapshotsToKeep;
+    private final long auctionIntervalMillis;
+    private final OrderStorage orderStorage;
+    private final int publishedDepthLevels;
+    private final Set<CurrencyPair> auctionPairs;
+    private final int auctionOrderCount;
+    private volatile OrderBook[] books;
+    private ScheduledExecutorService snapshotScheduler;
+    private ScheduledExecutorService auctionScheduler;
 
     public StockMarket() {
-        this.orders = new ConcurrentHashMap<>(CurrencyPair.values().length);
-        for (CurrencyPair currencyPair : CurrencyPair.values()) {
-            orders.put(currencyPair, new ArrayList<>());
+        this(new StockMarketConfig());
+    }
+
+    public StockMarket(StockMarketConfig config) {
+        this.eventPublisher = new EventPublisher(config.getEventBufferCapacity(), config.getEventOverflowPolicy());
+        this.journal = config.getJournalPath() == null ? null
+                : new Journal(config.getJournalPath(), config.getFsyncPolicy(), config.getFsyncIntervalMillis(), config.getJournalSegmentSize());
+        if (journal != null) {
+            ORDER_ACCESS.trackBalanceChanges();
+        }
+        if (config.getClientRegistry() != null) {
+            this.clients = config.getClientRegistry();
+        } else {
+            this.clients = journal == null && config.getOrderStorage() != OrderStorage.OFF_HEAP ? null : new ClientRegistry();
+        }
+        this.metrics = config.isMetricsEnabled() ? new MarketMetrics() : null;
+        this.snapshotDirectory = config.getSnapshotDirectory();
+        this.snapshotsToKeep = config.getSnapshotsToKeep();
+        this.auctionIntervalMillis = config.getAuctionIntervalMillis();
+        this.orderStorage = config.getOrderStorage();
+        this.publishedDepthLevels = config.getPublishedDepthLevels();
+        this.auctionPairs = new HashSet<>(config.getAuctionPairs());
+        this.auctionOrderCount = config.getAuctionOrderCount();
+        this.admissionQueues = new AdmissionQueue[CurrencyPair.count()];
+        for (Map.Entry<CurrencyPair, AdmissionLimit> limit : config.getAdmissionLimits().entrySet()) {
+            admissionQueues[limit.getKey().getId()] = new AdmissionQueue(limit.getKey(), limit.getValue(), journal, metrics);
+        }
+        this.books = new OrderBook[0];
+        addBooks();
+
+        switch (config.getMatchingMode()) {
+            case LOCKING: {
+                this.executor = new LockingBookExecutor(metrics);
+                this.matchingOnCaller = true;
+                break;
+            }
+            case SINGLE_WRITER: {
+                this.executor = new SingleWriterBookExecutor(config.getMatchingThreads(), config.getRingBufferCapacity(), metrics);
+                this.matchingOnCaller = false;
+                break;
+            }
+            default: {
+                throw new IllegalArgumentException("Unsupported matching mode " + config.getMatchingMode());
+            }
+        }
+        this.metricsName = metrics == null ? null : registerMetrics(metrics);
+        if (!config.getAuctionPairs().isEmpty()) {
+            startAuctionTimer();
         }
     }
 
-    public void addOrder(Order order) {
-        synchronized (order.getCurrencyPair()) {
-            List<Order> orderCandidates = orders.get(order.getCurrencyPair()).stream()
-                    .filter(orderCandidate -> filterByClient(order, orderCandidate))
-                    .filter(orderCandidate -> filterByType(order, orderCandidate))
-                    .filter(orderCandidate -> filterByPrice(order, orderCandidate))
-                    .sorted((order1, order2) -> compareOrdersForSorting(order1, order2, order))
-                    .collect(Collectors.toList());
+    /**
+     * Matches the order and rests what is left of it. In {@link MatchingMode#LOCKING} mode nothing is allocated
+     * on the way when no listeners are registered and no depth view is published, orders taken from an
+     * {@link OrderPool} can then be placed without creating garbage. With {@link OrderStorage#OFF_HEAP} the order
+     * object stops changing once it rests, see there.
+     *
+     * @return true if the order was not filled completely and rests in the book
+     * @throws OrderRejectedException if the admission queue of the pair has no room for the order
+     */
+    public boolean addOrder(Order order) {
+        OrderSubmissionEvent event = OrderSubmissionEvent.beginIfEnabled();
+        AdmissionQueue admissionQueue = getAdmissionQueue(order.getCurrencyPair());
+        boolean resting;
+        if (metrics == null && admissionQueue == null) {
+            resting = executor.placeOrder(getBook(order.getCurrencyPair()), order);
+        } else if (metrics == null) {
+            resting = placeAdmitted(admissionQueue, order);
+        } else {
+            long start = System.nanoTime();
+            try {
+                resting = admissionQueue == null ? executor.placeOrder(getBook(order.getCurrencyPair()), order) : placeAdmitted(admissionQueue, order);
+            } catch (OrderRejectedException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                metrics.onRejection(order.getCurrencyPair());
+                throw e;
+            }
+            metrics.getAcceptanceHistogram().record(System.nanoTime() - start);
+        }
+        if (event != null) {
+            event.commit(order, resting);
+        }
+        return resting;
+    }
 
-            orderCandidates.forEach(orderCandidate -> {
-                BigDecimal dealAmount = orderCandidate.getAmount().min(order.getAmount());
-                BigDecimal dealPrice = getDealPrice(order, orderCandidate);
+    /**
+     * Places the order without waiting for it to be matched. In {@link MatchingMode#LOCKING} mode the
+     * order is matched on the calling thread and the returned future is already completed. An order refused by
+     * the admission queue of its pair completes the future with an {@link OrderRejectedException}, with
+     * {@link AdmissionPolicy#BLOCK} the caller may wait for room first.
+     */
+    public CompletableFuture<OrderResult> addOrderAsync(Order order) {
+        OrderSubmissionEvent event = OrderSubmissionEvent.beginIfEnabled();
+        AdmissionQueue admissionQueue = getAdmissionQueue(order.getCurrencyPair());
+        if (metrics == null && event == null && admissionQueue == null) {
+            return executor.submit(getBook(order.getCurrencyPair()), book -> book.addOrder(order));
+        }
 
-                if (reduceOrder(orderCandidate, dealAmount, dealPrice)) {
-                    closeOrder(orderCandidate);
-                }
-                if (reduceOrder(order, dealAmount, dealPrice)) {
-                    order.revoke();
+        long start = System.nanoTime();
+        CompletableFuture<OrderResult> future;
+        if (admissionQueue == null) {
+            future = executor.submit(getBook(order.getCurrencyPair()), book -> book.addOrder(order));
+        } else {
+            future = new CompletableFuture<>();
+            try {
+                AdmissionQueue.Ticket ticket = admissionQueue.admit(order);
+                future = executor.submit(getBook(order.getCurrencyPair()), book -> {
+                    admissionQueue.accept(ticket);
+                    return book.addOrder(order);
+                });
+            } catch (OrderRejectedException e) {
+                future.completeExceptionally(e);
+            }
+        }
+        return future.whenComplete((orderResult, e) -> {
+            if (metrics != null) {
+                if (e == null) {
+                    metrics.getAcceptanceHistogram().record(System.nanoTime() - start);
+                } else if (!(e instanceof OrderRejectedException || e.getCause() instanceof OrderRejectedException)) {
+                    metrics.onRejection(order.getCurrencyPair());
                 }
-            });
+            }
+            if (event != null && e == null) {
+                event.commit(order, orderResult.isResting());
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #addOrderAsync(Order)}, see {@link #submit(Order, Executor)} to keep the caller from waiting
+     * for a book lock
+     *
+     * @return future of the filled and remaining amount, completed exceptionally if the order is rejected
+     */
+    public CompletableFuture<OrderResult> submit(Order order) {
+        return addOrderAsync(order);
+    }
+
+    /**
+     * Places the order without blocking the caller. In {@link MatchingMode#LOCKING} mode the order is matched on
+     * the executor of the client session it comes from, whose thread blocks on the book lock instead of the caller.
+     * With a single-threaded executor per session the orders of a session are matched in the order they were
+     * submitted, and for the same reason an order waiting for a contended book holds up the later orders of the
+     * session for every other pair. Use an executor per session and pair or {@link MatchingMode#SINGLE_WRITER} mode
+     * where that matters: single writer mode never blocks, the order goes to its matching thread directly.
+     *
+     * @return future of the filled and remaining amount, completed exceptionally if the order is rejected
+     */
+    public CompletableFuture<OrderResult> submit(Order order, Executor session) {
+        if (!matchingOnCaller) {
+            return addOrderAsync(order);
+        }
+        return CompletableFuture.supplyAsync(() -> addOrderAsync(order), session).thenCompose(Function.identity());
+    }
 
-            if (order.getAmount().compareTo(BigDecimal.ZERO) > 0) {
-                orders.get(order.getCurrencyPair()).add(order);
+    /**
+     * Places a batch of orders, admission limits do not apply to batches. Orders of one currency pair are matched
+     * in arrival order in a single pass over their book, different pairs are matched in parallel. An order the
+     * stock market refuses does not stop the others, its result carries the error instead, see
+     * {@link OrderResult#getError()}.
+     *
+     * @return results in the order of the given orders
+     */
+    public List<OrderResult> addOrders(Collection<Order> orders) {
+        Map<CurrencyPair, List<Order>> ordersByPair = new HashMap<>();
+        for (Order order : orders) {
+            ordersByPair.computeIfAbsent(order.getCurrencyPair(), currencyPair -> new ArrayList<>()).add(order);
+        }
+
+        Map<CurrencyPair, CompletableFuture<List<OrderResult>>> pendingResults = new HashMap<>();
+        Map<CurrencyPair, List<OrderResult>> resultsByPair = new HashMap<>();
+        Iterator<Map.Entry<CurrencyPair, List<Order>>> groups = ordersByPair.entrySet().iterator();
+        while (groups.hasNext()) {
+            Map.Entry<CurrencyPair, List<Order>> group = groups.next();
+            OrderBook pairBook = getBook(group.getKey());
+            List<Order> pairOrders = group.getValue();
+            if (groups.hasNext()) {
+                pendingResults.put(group.getKey(), executor.submitDetached(pairBook, book -> book.addOrders(pairOrders)));
+            } else {
+                try {
+                    resultsByPair.put(group.getKey(), executor.call(pairBook, book -> book.addOrders(pairOrders)));
+                } catch (RuntimeException e) {
+                    resultsByPair.put(group.getKey(), refused(pairOrders, e));
+                }
+            }
+        }
+        for (Map.Entry<CurrencyPair, CompletableFuture<List<OrderResult>>> entry : pendingResults.entrySet()) {
+            try {
+                resultsByPair.put(entry.getKey(), join(entry.getValue()));
+            } catch (RuntimeException e) {
+                resultsByPair.put(entry.getKey(), refused(ordersByPair.get(entry.getKey()), e));
             }
         }
+
+        List<OrderResult> results = new ArrayList<>(orders.size());
+        Map<CurrencyPair, Iterator<OrderResult>> resultIterators = new HashMap<>();
+        for (Order order : orders) {
+            results.add(resultIterators.computeIfAbsent(order.getCurrencyPair(), currencyPair -> resultsByPair.get(currencyPair).iterator()).next());
+        }
+        return results;
+    }
+
+    /**
+     * Removes the resting order from its book and refunds it through {@link Order#revoke()}. Only the book of the
+     * currency pair the id carries is asked, it looks the id up in its own index.
+     *
+     * @return false if there is no resting order with this id, e.g. it is already filled or cancelled
+     */
+    public boolean cancelOrder(long orderId) {
+        OrderBook[] books = this.books;
+        int currencyPairId = Order.getCurrencyPairId(orderId);
+        return currencyPairId < books.length && executor.cancelOrder(books[currencyPairId], orderId);
+    }
+
+    /**
+     * Cancels every resting order of the client, e.g. when it disconnects, and refunds them through
+     * {@link Order#revoke()}. Each book keeps its orders grouped by client, so the work is proportional to
+     * the number of the client's orders rather than to the size of the books.
+     *
+     * @return number of cancelled orders
+     */
+    public int cancelAllForClient(int clientId) {
+        int cancelled = 0;
+        for (OrderBook book : books) {
+            cancelled += executor.call(book, orderBook -> orderBook.cancelAllForClient(clientId));
+        }
+        return cancelled;
+    }
+
+    /**
+     * Same as {@link #cancelAllForClient(int)} for the orders of one currency pair
+     */
+    public int cancelAllForClient(int clientId, CurrencyPair currencyPair) {
+        return executor.call(getBook(currencyPair), book -> book.cancelAllForClient(clientId));
+    }
+
+    /**
+     * Credits the client and journals the deposit, so that {@link #recover} replays it. Money deposited directly
+     * on the {@link Client} is not journaled.
+     */
+    public void deposit(Client client, Currency currency, BigDecimal amount) {
+        long units = FixedPointUtils.toUnits(amount);
+        if (journal == null) {
+            client.deposit(currency, FixedPointUtils.toBigDecimal(units));
+            return;
+        }
+        clients.add(client);
+        long stamp = ORDER_ACCESS.lockBalanceChange();
+        try {
+            client.deposit(currency, FixedPointUtils.toBigDecimal(units));
+            journal.appendDeposit(client, currency, units);
+        } finally {
+            ORDER_ACCESS.unlockBalanceChange(stamp);
+        }
+    }
+
+    /**
+     * Debits the client and journals the withdrawal, so that {@link #recover} replays it
+     *
+     * @throws NotEnoughMoneyException if the client has not enough money, nothing is journaled then
+     */
+    public void withdraw(Client client, Currency currency, BigDecimal amount) {
+        long units = FixedPointUtils.toUnits(amount);
+        if (journal == null) {
+            client.withdraw(currency, FixedPointUtils.toBigDecimal(units));
+            return;
+        }
+        clients.add(client);
+        long stamp = ORDER_ACCESS.lockBalanceChange();
+        try {
+            client.withdraw(currency, FixedPointUtils.toBigDecimal(units));
+            journal.appendWithdraw(client, currency, units);
+        } finally {
+            ORDER_ACCESS.unlockBalanceChange(stamp);
+        }
+    }
+
+    /**
+     * Runs a call auction on the book of the pair now: the crossed orders are executed in one pass at the single
+     * price that fills the most volume and settle through {@link Order#reduce}. Works in either mode, although
+     * only a book in auction mode can be crossed.
+     *
+     * @return number of fills
+     */
+    public int uncross(CurrencyPair currencyPair) {
+        return executor.call(getBook(currencyPair), OrderBook::uncross);
+    }
+
+    /**
+     * In auction mode orders of the pair rest without matching and the book is uncrossed every
+     * {@link StockMarketConfig#getAuctionIntervalMillis()}, after {@link StockMarketConfig#getAuctionOrderCount()}
+     * orders, or on {@link #uncross(CurrencyPair)}, whichever comes first. Suits illiquid pairs and opening
+     * auctions: switching back to continuous matching uncrosses the book first.
+     */
+    public void setAuctionMode(CurrencyPair currencyPair, boolean auction) {
+        executor.call(getBook(currencyPair), book -> {
+            book.setAuction(auction);
+            return null;
+        });
+        if (auction) {
+            startAuctionTimer();
+        }
+    }
+
+    public boolean isAuctionMode(CurrencyPair currencyPair) {
+        return getBook(currencyPair).isAuction();
     }
 
     public List<Order> getAllOrdersList() {
         List<Order> allOrderList = new ArrayList<>();
-        orders.values().forEach(allOrderList::addAll);
+        for (OrderBook book : books) {
+            allOrderList.addAll(executor.call(book, OrderBook::getOrders));
+        }
         return allOrderList;
     }
 
     public void revokeAllOrders() {
-        getAllOrdersList().forEach(Order::revoke);
-        orders.values().forEach(List::clear);
+        for (OrderBook book : books) {
+            executor.call(book, orderBook -> {
+                orderBook.revokeAll();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @return the highest resting buy price of the pair or null if there are no buy orders
+     */
+    public BigDecimal getBestBidPrice(CurrencyPair currencyPair) {
+        return executor.call(getBook(currencyPair), OrderBook::getBestBidPrice);
+    }
+
+    /**
+     * @return the lowest resting sell price of the pair or null if there are no sell orders
+     */
+    public BigDecimal getBestAskPrice(CurrencyPair currencyPair) {
+        return executor.call(getBook(currencyPair), OrderBook::getBestAskPrice);
+    }
+
+    /**
+     * Aggregates the resting orders of the pair by price without copying them
+     *
+     * @param levels maximum number of price levels per side
+     */
+    public MarketDepth getDepth(CurrencyPair currencyPair, int levels) {
+        if (levels < 0) {
+            throw new IllegalArgumentException("Number of levels must not be negative, got " + levels);
+        }
+        return executor.call(getBook(currencyPair), book -> book.getDepth(levels));
+    }
+
+    /**
+     * Returns the view the book of the pair published after its latest change, with up to
+     * {@link StockMarketConfig#getPublishedDepthLevels()} levels per side. Never waits for matching and never
+     * delays it, but does not reflect orders still being matched. Books in auction mode publish after every
+     * uncross only.
+     *
+     * @return the latest view or null if publishing is disabled
+     */
+    public MarketDepth getPublishedDepth(CurrencyPair currencyPair) {
+        return getBook(currencyPair).getPublishedDepth();
+    }
+
+    /**
+     * @return total remaining amount of the resting orders of the given type at the price, zero if there are none
+     */
+    public BigDecimal getVolumeAt(CurrencyPair currencyPair, OrderType orderType, BigDecimal price) {
+        long priceUnits = FixedPointUtils.toUnits(price);
+        return FixedPointUtils.toBigDecimal(executor.call(getBook(currencyPair), book -> book.getVolumeAt(orderType, priceUnits)));
+    }
+
+    /**
+     * Counters, book gauges and latency histograms, also registered as an MXBean under
+     * {@code stockmarket:type=MarketMetrics,name=<n>}
+     *
+     * @return null unless {@link StockMarketConfig#isMetricsEnabled()} is set
+     */
+    public MarketMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers a listener for trades and order state changes. Every listener is fed from its own thread, a slow
+     * listener loses events rather than slowing matching down unless {@link StockMarketConfig#getEventOverflowPolicy()}
+     * says otherwise, see {@link #getDroppedEventCount()}
+     */
+    public void addListener(MarketListener listener) {
+        eventPublisher.addListener(listener);
     }
 
-    private boolean filterByClient(Order orderTarget, Order orderCandidate) {
-        return orderCandidate.getClient().getId() != orderTarget.getClient().getId();
+    public boolean removeListener(MarketListener listener) {
+        return eventPublisher.removeListener(listener);
     }
 
-    private boolean filterByType(Order orderTarget, Order orderCandidate) {
-        return !orderCandidate.getOrderType().equals(orderTarget.getOrderType());
+    /**
+     * @return number of events the current listeners lost because their buffers were full
+     */
+    public long getDroppedEventCount() {
+        return eventPublisher.getDroppedEvents();
     }
 
-    private boolean filterByPrice(Order orderTarget, Order orderCandidate) {
-        switch (orderTarget.getOrderType()) {
-            case BUY: {
-                return orderTarget.getPrice().compareTo(orderCandidate.getPrice()) >= 0;
+    /**
+     * Writes the resting orders of all books and the balances of the given clients to a new file of the snapshot
+     * directory, together with every client that has placed an order or moved money through {@link #deposit}
+     * and {@link #withdraw} since the stock market was started or recovered. Matching, order creation and those
+     * cash movements are paused only while the books and balances are copied into primitive arrays, which creates
+     * no order objects, the file is written after they resume. Deposits and withdrawals made directly on clients meanwhile may or may not be included.
+     *
+     * @return the snapshot file
+     * @throws IllegalArgumentException if a given client is not the object the stock market knows by its id
+     */
+    public Path takeSnapshot(Collection<Client> clients) {
+        if (journal == null || snapshotDirectory == null) {
+            throw new IllegalStateException("Snapshots require a journal and a snapshot directory");
+        }
+
+        OrderBook[] books = this.books;
+        Snapshot snapshot = executor.callQuiesced(Arrays.asList(books), () -> {
+            List<Client> givenClients = new ArrayList<>(clients);
+            return ORDER_ACCESS.pauseBalanceChanges(lastOrderId -> {
+                Snapshot.BookImage[] images = new Snapshot.BookImage[books.length];
+                for (int i = 0; i < books.length; i++) {
+                    images[i] = books[i].getImage();
+                }
+                return Snapshot.capture(journal.getRecordCount(), lastOrderId, images, withKnownClients(givenClients));
+            });
+        });
+        journal.flush();
+        try {
+            Path file = snapshot.write(snapshotDirectory);
+            Snapshot.deleteOlder(snapshotDirectory, snapshotsToKeep);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot to " + snapshotDirectory, e);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the clients returned by the supplier every period until the stock market is closed
+     */
+    public synchronized void scheduleSnapshots(Supplier<? extends Collection<Client>> clients, long period, TimeUnit unit) {
+        if (snapshotScheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleAtFixedRate(() -> takeSnapshot(clients.get()), period, period, unit);
+    }
+
+    /**
+     * Rebuilds the books from the latest snapshot, if there is one, and the journal records appended after it.
+     * Orders replayed from the journal take the money they hold from their clients again, unless they were created
+     * before the snapshot and its balances already exclude that money, orders refused by an admission queue give it
+     * back the same way. Deposits and withdrawals made through {@link #deposit} and {@link #withdraw} are replayed without a balance
+     * check, like orders. Must be called before any other order is placed. Deposits and withdrawals made directly
+     * on clients are not journaled, the resolver has to return clients with the balances they had when the journal
+     * was started, always the same client object for one id. Clients restored from the snapshot get the balances it recorded.
+     *
+     * @return number of journal records replayed
+     */
+    public long recover(IntFunction<Client> clientResolver) {
+        if (journal == null) {
+            throw new IllegalStateException("The stock market has no journal to recover from");
+        }
+
+        addBooks();
+        setRecovering(true);
+        IntFunction<Client> knownClients = id -> {
+            Client client = clientResolver.apply(id);
+            clients.add(client);
+            return client;
+        };
+        Snapshot snapshot = restoreSnapshot(knownClients);
+        long fromRecord = snapshot == null ? 0 : snapshot.getJournalPosition();
+        long lastOrderId = snapshot == null ? 0 : snapshot.getLastOrderId();
+        long fillsBefore = getFillCount();
+        long[] journaledFills = new long[1];
+        long records = JournalReader.read(journal.getPath(), fromRecord, new JournalReader.Visitor() {
+            @Override
+            public void onOrder(long orderId, int clientId, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+                Client client = knownClients.apply(clientId);
+                boolean reserved = orderId <= lastOrderId && snapshot.hasBalances(clientId);
+                Order order = reserved ? ORDER_ACCESS.restore(orderId, client, currencyPair, orderType, amount, price, deposit)
+                        : ORDER_ACCESS.replay(orderId, client, currencyPair, orderType, amount, price, deposit);
+                executor.call(getBook(currencyPair), book -> book.addOrder(order));
             }
-            case SELL: {
-                return orderTarget.getPrice().compareTo(orderCandidate.getPrice()) <= 0;
+
+            @Override
+            public void onCancel(long orderId, CurrencyPair currencyPair) {
+                executor.call(getBook(currencyPair), book -> book.cancel(orderId));
             }
-            default: {
-                throw new UnsupportedOrderTypeException();
+
+            @Override
+            public void onFill(long makerOrderId, long takerOrderId, CurrencyPair currencyPair, long price, long amount) {
+                journaledFills[0]++;
+            }
+
+            @Override
+            public void onRevokeAll(CurrencyPair currencyPair) {
+                executor.call(getBook(currencyPair), book -> {
+                    book.revokeAll();
+                    return null;
+                });
+            }
+
+            @Override
+            public void onUncross(CurrencyPair currencyPair) {
+                executor.call(getBook(currencyPair), OrderBook::uncross);
             }
+
+            @Override
+            public void onAuctionMode(CurrencyPair currencyPair, boolean auction) {
+                setAuctionMode(currencyPair, auction);
+            }
+
+            @Override
+            public void onDeposit(int clientId, Currency currency, long amount) {
+                knownClients.apply(clientId).deposit(currency, FixedPointUtils.toBigDecimal(amount));
+            }
+
+            @Override
+            public void onWithdraw(int clientId, Currency currency, long amount) {
+                knownClients.apply(clientId).deposit(currency, FixedPointUtils.toBigDecimal(-amount));
+            }
+
+            @Override
+            public void onRefuse(long orderId, int clientId, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+                Client client = knownClients.apply(clientId);
+                boolean reserved = orderId <= lastOrderId && snapshot.hasBalances(clientId);
+                Order order = reserved ? ORDER_ACCESS.restore(orderId, client, currencyPair, orderType, amount, price, deposit)
+                        : ORDER_ACCESS.replay(orderId, client, currencyPair, orderType, amount, price, deposit);
+                ORDER_ACCESS.terminate(order);
+            }
+        });
+        setRecovering(false);
+
+        long replayedFills = getFillCount() - fillsBefore;
+        if (replayedFills != journaledFills[0]) {
+            throw new IllegalStateException(String.format("Journal replay diverged: %s fills journaled, %s fills replayed", journaledFills[0], replayedFills));
         }
+        return Math.max(records - fromRecord, 0);
     }
 
-    private int compareOrdersForSorting(Order order1, Order order2, Order orderTarget) {
-        switch (orderTarget.getOrderType()) {
-            case BUY: {
-                return order1.getPrice().compareTo(order2.getPrice());
+    /**
+     * Takes a ticket for the order and places it once the book is free, unless it was dropped meanwhile
+     */
+    private boolean placeAdmitted(AdmissionQueue admissionQueue, Order order) {
+        AdmissionQueue.Ticket ticket = admissionQueue.admit(order);
+        return executor.call(getBook(order.getCurrencyPair()), book -> {
+            admissionQueue.accept(ticket);
+            return book.placeOrder(order);
+        });
+    }
+
+    /**
+     * @return the restored snapshot, null if there is none
+     */
+    private Snapshot restoreSnapshot(IntFunction<Client> clientResolver) {
+        if (snapshotDirectory == null) {
+            return null;
+        }
+
+        Snapshot snapshot;
+        try {
+            Path file = Snapshot.findLatest(snapshotDirectory);
+            if (file == null) {
+                return null;
             }
-            case SELL: {
-                return (-1) * order1.getPrice().compareTo(order2.getPrice());
+            snapshot = Snapshot.read(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot from " + snapshotDirectory, e);
+        }
+        if (snapshot.getJournalPosition() > journal.getRecordCount()) {
+            throw new IllegalStateException(String.format("Snapshot is at journal record %s, but the journal has only %s records",
+                    snapshot.getJournalPosition(), journal.getRecordCount()));
+        }
+
+        snapshot.restoreBalances(clientResolver);
+        for (OrderBook book : books) {
+            List<Order> orders = snapshot.restoreOrders(book.getCurrencyPair(), clientResolver);
+            boolean auction = snapshot.isAuction(book.getCurrencyPair());
+            executor.call(book, orderBook -> {
+                orderBook.setAuction(auction);
+                orderBook.restore(orders);
+                return null;
+            });
+            if (auction) {
+                startAuctionTimer();
             }
-            default: {
-                throw new UnsupportedOrderTypeException();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the given clients and every client the stock market knows, each one once
+     * @throws IllegalArgumentException if a given client is not the object the stock market knows by its id
+     */
+    private List<Client> withKnownClients(Collection<Client> clients) {
+        List<Client> allClients = new ArrayList<>(this.clients.values());
+        for (Client client : clients) {
+            Client known = this.clients.get(client.getId());
+            if (known == null) {
+                allClients.add(client);
+            } else if (known != client) {
+                throw new IllegalArgumentException("Client " + client.getId() + " is not the client object the stock market knows by this id");
+            }
+        }
+        return allClients;
+    }
+
+    /**
+     * Detaches the books from the journal while it is replayed into them
+     */
+    private void setRecovering(boolean recovering) {
+        for (OrderBook book : books) {
+            executor.call(book, orderBook -> {
+                orderBook.setJournal(recovering ? null : journal);
+                orderBook.setRecovering(recovering);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Uncrosses the books in auction mode every interval until the stock market is closed
+     */
+    private synchronized void startAuctionTimer() {
+        if (auctionScheduler != null || auctionIntervalMillis <= 0) {
+            return;
+        }
+        auctionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auction-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        auctionScheduler.scheduleWithFixedDelay(() -> {
+            for (OrderBook book : books) {
+                if (book.isAuction()) {
+                    executor.call(book, OrderBook::onAuctionTimer);
+                }
+            }
+        }, auctionIntervalMillis, auctionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private long getFillCount() {
+        long fillCount = 0;
+        for (OrderBook book : books) {
+            fillCount += executor.call(book, OrderBook::getFillCount);
+        }
+        return fillCount;
+    }
+
+    /**
+     * @return the book of the pair, created on first use for pairs registered after the stock market was
+     */
+    private OrderBook getBook(CurrencyPair currencyPair) {
+        OrderBook[] books = this.books;
+        int id = currencyPair.getId();
+        return id < books.length ? books[id] : addBooks()[id];
+    }
+
+    /**
+     * Creates the books of the pairs registered since the last call, the array is replaced so readers never lock
+     */
+    private synchronized OrderBook[] addBooks() {
+        OrderBook[] books = this.books;
+        int currencyPairs = CurrencyPair.count();
+        if (books.length < currencyPairs) {
+            OrderBook[] grown = Arrays.copyOf(books, currencyPairs);
+            for (int id = books.length; id < currencyPairs; id++) {
+                CurrencyPair currencyPair = CurrencyPair.byId(id);
+                grown[id] = new OrderBook(currencyPair, newOrderStore(currencyPair), eventPublisher, journal, clients,
+                        publishedDepthLevels, metrics, auctionPairs.contains(currencyPair), auctionOrderCount);
             }
+            this.books = books = grown;
         }
+        return books;
+    }
+
+    private AdmissionQueue getAdmissionQueue(CurrencyPair currencyPair) {
+        int id = currencyPair.getId();
+        return id < admissionQueues.length ? admissionQueues[id] : null;
     }
 
-    private BigDecimal getDealPrice(Order orderTarget, Order orderCandidate) {
-        switch (orderTarget.getOrderType()) {
-            case BUY: {
-                return orderTarget.getPrice().min(orderCandidate.getPrice());
+    private OrderStore newOrderStore(CurrencyPair currencyPair) {
+        switch (orderStorage) {
+            case HEAP: {
+                return new HeapOrderStore(1024);
             }
-            case SELL: {
-                return orderTarget.getPrice().max(orderCandidate.getPrice());
+            case OFF_HEAP: {
+                return new OffHeapOrderStore(currencyPair, clients);
             }
             default: {
-                throw new UnsupportedOrderTypeException();
+                throw new IllegalArgumentException("Unsupported order storage " + orderStorage);
             }
         }
     }
 
-    private boolean reduceOrder(Order order, BigDecimal amount, BigDecimal price) {
-        order.reduce(amount, price);
-        return order.getAmount().compareTo(BigDecimal.ZERO) == 0;
+    private static ObjectName registerMetrics(MarketMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName("stockmarket:type=MarketMetrics,name=" + INSTANCE_SEQUENCE.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register stock market metrics", e);
+        }
+    }
+
+    private static void shutdown(ExecutorService scheduler) {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private void closeOrder(Order order) {
-        order.revoke();
-        orders.get(order.getCurrencyPair()).remove(order);
+    /**
+     * Results of a batch of orders that never reached their book, e.g. because the stock market is closed
+     */
+    private static List<OrderResult> refused(List<Order> orders, RuntimeException error) {
+        List<OrderResult> results = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            results.add(new OrderResult(order, error));
+        }
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops taking snapshots and running timed auctions, stops the matching threads after all submitted orders are
+     * processed, then the listener threads after all published events are delivered, and flushes the journal
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            shutdown(snapshotScheduler);
+            shutdown(auctionScheduler);
+        }
+        executor.close();
+        eventPublisher.close();
+        if (journal != null) {
+            journal.close();
+        }
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot unregister stock market metrics", e);
+            }
+        }
     }
 
 }
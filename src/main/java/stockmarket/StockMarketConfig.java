@@ -0,0 +1,240 @@
+package stockmarket;
+
+import event.EventOverflowPolicy;
+import journal.FsyncPolicy;
+import journal.Journal;
+import model.ClientRegistry;
+import model.CurrencyPair;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class StockMarketConfig {
+
+    private MatchingMode matchingMode = MatchingMode.LOCKING;
+    private int matchingThreads = Math.min(CurrencyPair.count(), Runtime.getRuntime().availableProcessors());
+    private int ringBufferCapacity = 1024;
+    private int eventBufferCapacity = 65536;
+    private EventOverflowPolicy eventOverflowPolicy = EventOverflowPolicy.DROP;
+    private int publishedDepthLevels;
+    private boolean metricsEnabled;
+    private Path journalPath;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+    private long fsyncIntervalMillis = 10;
+    private int journalSegmentSize = Journal.DEFAULT_SEGMENT_SIZE;
+    private Path snapshotDirectory;
+    private int snapshotsToKeep = 2;
+    private Set<CurrencyPair> auctionPairs = new HashSet<>();
+    private long auctionIntervalMillis = 1000;
+    private int auctionOrderCount = 1000;
+    private Map<CurrencyPair, AdmissionLimit> admissionLimits = new HashMap<>();
+    private OrderStorage orderStorage = OrderStorage.HEAP;
+    private ClientRegistry clientRegistry;
+
+    public MatchingMode getMatchingMode() {
+        return matchingMode;
+    }
+
+    public void setMatchingMode(MatchingMode matchingMode) {
+        this.matchingMode = matchingMode;
+    }
+
+    /**
+     * Number of matching threads in {@link MatchingMode#SINGLE_WRITER} mode, pairs are spread over them evenly
+     */
+    public int getMatchingThreads() {
+        return matchingThreads;
+    }
+
+    public void setMatchingThreads(int matchingThreads) {
+        this.matchingThreads = matchingThreads;
+    }
+
+    /**
+     * Capacity of the ring buffer of every matching thread in {@link MatchingMode#SINGLE_WRITER} mode
+     */
+    public int getRingBufferCapacity() {
+        return ringBufferCapacity;
+    }
+
+    public void setRingBufferCapacity(int ringBufferCapacity) {
+        this.ringBufferCapacity = ringBufferCapacity;
+    }
+
+    /**
+     * Capacity of the event buffer of every market listener, see {@link #getEventOverflowPolicy()} for what happens
+     * when it is full
+     */
+    public int getEventBufferCapacity() {
+        return eventBufferCapacity;
+    }
+
+    public void setEventBufferCapacity(int eventBufferCapacity) {
+        this.eventBufferCapacity = eventBufferCapacity;
+    }
+
+    /**
+     * What happens to an event for a listener whose buffer is full, dropped by default
+     */
+    public EventOverflowPolicy getEventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+
+    public void setEventOverflowPolicy(EventOverflowPolicy eventOverflowPolicy) {
+        this.eventOverflowPolicy = eventOverflowPolicy;
+    }
+
+    /**
+     * Number of levels per side every book publishes for lock-free reads after each change. Zero by default,
+     * publishing nothing keeps matching free of allocations, every published view is a new object.
+     */
+    public int getPublishedDepthLevels() {
+        return publishedDepthLevels;
+    }
+
+    public void setPublishedDepthLevels(int publishedDepthLevels) {
+        this.publishedDepthLevels = publishedDepthLevels;
+    }
+
+    /**
+     * Whether to count orders and fills, keep book gauges and record latencies, exposed through
+     * {@link StockMarket#getMetrics()} and JMX. Disabled metrics cost one null check per measuring point.
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * File of the write-ahead journal, null to run without one
+     */
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    public void setJournalPath(Path journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * How often the journal is forced to the storage device with {@link FsyncPolicy#GROUP_COMMIT}
+     */
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+
+    public void setFsyncIntervalMillis(long fsyncIntervalMillis) {
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    /**
+     * Size of the journal regions mapped into memory at once, a multiple of {@link Journal#RECORD_SIZE}
+     */
+    public int getJournalSegmentSize() {
+        return journalSegmentSize;
+    }
+
+    public void setJournalSegmentSize(int journalSegmentSize) {
+        this.journalSegmentSize = journalSegmentSize;
+    }
+
+    /**
+     * Directory of the book and balance snapshots, null to always recover from the whole journal
+     */
+    public Path getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    public void setSnapshotDirectory(Path snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * Number of latest snapshots kept in the snapshot directory, older ones are deleted
+     */
+    public int getSnapshotsToKeep() {
+        return snapshotsToKeep;
+    }
+
+    public void setSnapshotsToKeep(int snapshotsToKeep) {
+        this.snapshotsToKeep = snapshotsToKeep;
+    }
+
+    /**
+     * Pairs whose books start in call auction mode, see {@link StockMarket#setAuctionMode(CurrencyPair, boolean)}
+     */
+    public Set<CurrencyPair> getAuctionPairs() {
+        return auctionPairs;
+    }
+
+    public void setAuctionPairs(Set<CurrencyPair> auctionPairs) {
+        this.auctionPairs = auctionPairs;
+    }
+
+    /**
+     * How often books in auction mode are uncrossed, zero to uncross them only by order count or on request
+     */
+    public long getAuctionIntervalMillis() {
+        return auctionIntervalMillis;
+    }
+
+    public void setAuctionIntervalMillis(long auctionIntervalMillis) {
+        this.auctionIntervalMillis = auctionIntervalMillis;
+    }
+
+    /**
+     * Number of orders a book in auction mode accumulates before it is uncrossed, zero for no limit
+     */
+    public int getAuctionOrderCount() {
+        return auctionOrderCount;
+    }
+
+    public void setAuctionOrderCount(int auctionOrderCount) {
+        this.auctionOrderCount = auctionOrderCount;
+    }
+
+    /**
+     * Bounds on the orders waiting for the book of each pair, pairs without a limit admit any number of orders
+     */
+    public Map<CurrencyPair, AdmissionLimit> getAdmissionLimits() {
+        return admissionLimits;
+    }
+
+    public void setAdmissionLimits(Map<CurrencyPair, AdmissionLimit> admissionLimits) {
+        this.admissionLimits = admissionLimits;
+    }
+
+    public OrderStorage getOrderStorage() {
+        return orderStorage;
+    }
+
+    public void setOrderStorage(OrderStorage orderStorage) {
+        this.orderStorage = orderStorage;
+    }
+
+    /**
+     * Registry the books add the client of every placed order to, so that order entry can look clients up by id in
+     * it. Null for a registry of the stock market's own, which it keeps only with a journal or off-heap storage.
+     */
+    public ClientRegistry getClientRegistry() {
+        return clientRegistry;
+    }
+
+    public void setClientRegistry(ClientRegistry clientRegistry) {
+        this.clientRegistry = clientRegistry;
+    }
+}
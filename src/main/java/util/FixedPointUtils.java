@@ -0,0 +1,110 @@
+package util;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point arithmetic on amounts stored as {@code long} units of 10^-{@link CurrencyUtils#SCALE}.
+ * Results are rounded with {@link CurrencyUtils#ROUNDING_MODE} (HALF_EVEN) exactly like the
+ * {@code setScale} calls on {@link BigDecimal} they replace. Overflow raises {@link ArithmeticException}.
+ */
+public class FixedPointUtils {
+
+    public static final long ONE = unitsPerOne();
+
+    private FixedPointUtils() {
+    }
+
+    public static long toUnits(BigDecimal value) {
+        return value.setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long units) {
+        return BigDecimal.valueOf(units, CurrencyUtils.SCALE);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code -12.5} between the indexes without creating a {@link BigDecimal},
+     * other notations such as {@code 1E+3} go through one
+     *
+     * @throws NumberFormatException if the text is not a number or has more than {@link CurrencyUtils#SCALE}
+     *                               significant decimal places
+     */
+    public static long parseUnits(CharSequence text, int start, int end) {
+        int index = start;
+        boolean negative = index < end && text.charAt(index) == '-';
+        if (negative) {
+            index++;
+        }
+        long units = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; index < end; index++) {
+            char c = text.charAt(index);
+            if (c >= '0' && c <= '9') {
+                if (decimals >= 0 && ++decimals > CurrencyUtils.SCALE) {
+                    return parseBigDecimalUnits(text, start, end);
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                digits++;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return parseBigDecimalUnits(text, start, end);
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not an amount: \"" + text.subSequence(start, end) + "\"");
+        }
+        for (int i = Math.max(decimals, 0); i < CurrencyUtils.SCALE; i++) {
+            units = Math.multiplyExact(units, 10);
+        }
+        return negative ? -units : units;
+    }
+
+    /**
+     * Same as {@code toBigDecimal(units).add(value).setScale(SCALE, ROUNDING_MODE)} in units
+     */
+    public static long add(long units, BigDecimal value) {
+        if (value.scale() <= CurrencyUtils.SCALE) {
+            return Math.addExact(units, value.movePointRight(CurrencyUtils.SCALE).longValueExact());
+        }
+        return toUnits(toBigDecimal(units).add(value));
+    }
+
+    /**
+     * Same as {@code a.multiply(b).setScale(SCALE, ROUNDING_MODE)} for two amounts in units
+     */
+    public static long multiply(long a, long b) {
+        return divideHalfEven(Math.multiplyExact(a, b), ONE);
+    }
+
+    private static long parseBigDecimalUnits(CharSequence text, int start, int end) {
+        BigDecimal value = new BigDecimal(text.subSequence(start, end).toString());
+        if (value.stripTrailingZeros().scale() > CurrencyUtils.SCALE) {
+            throw new NumberFormatException(String.format("Amount %s has more than %s decimal places", value, CurrencyUtils.SCALE));
+        }
+        return toUnits(value);
+    }
+
+    private static long divideHalfEven(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        long twiceRemainder = Math.abs(remainder) * 2;
+        if (twiceRemainder > divisor || (twiceRemainder == divisor && (quotient & 1) != 0)) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    private static long unitsPerOne() {
+        long units = 1;
+        for (int i = 0; i < CurrencyUtils.SCALE; i++) {
+            units *= 10;
+        }
+        return units;
+    }
+}
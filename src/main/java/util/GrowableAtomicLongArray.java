@@ -0,0 +1,101 @@
+package util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Array of longs updated atomically that grows when an index beyond its length is written. Elements live in
+ * segments that never move: the initial length in one, further elements in segments of 16. Growing only
+ * copies segment references, so an update racing with growth is never lost, and an array that never grows
+ * costs no more than an {@link AtomicLongArray}. Reading an index beyond the length returns zero without growing.
+ */
+public class GrowableAtomicLongArray {
+
+    private static final int SEGMENT_SHIFT = 4;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final AtomicLongArray[] NO_SEGMENTS = new AtomicLongArray[0];
+
+    private final AtomicLongArray initial;
+    private final int initialLength;
+    private volatile AtomicLongArray[] segments;
+
+    public GrowableAtomicLongArray(int initialLength) {
+        this.initial = new AtomicLongArray(initialLength);
+        this.initialLength = initialLength;
+        this.segments = NO_SEGMENTS;
+    }
+
+    public long get(int index) {
+        if (index < initialLength) {
+            return initial.get(index);
+        }
+        AtomicLongArray[] segments = this.segments;
+        int segment = (index - initialLength) >>> SEGMENT_SHIFT;
+        return segment < segments.length ? segments[segment].get((index - initialLength) & SEGMENT_MASK) : 0;
+    }
+
+    public void set(int index, long value) {
+        if (index < initialLength) {
+            initial.set(index, value);
+        } else {
+            segment(index).set((index - initialLength) & SEGMENT_MASK, value);
+        }
+    }
+
+    public void lazySet(int index, long value) {
+        if (index < initialLength) {
+            initial.lazySet(index, value);
+        } else {
+            segment(index).lazySet((index - initialLength) & SEGMENT_MASK, value);
+        }
+    }
+
+    public boolean compareAndSet(int index, long expectedValue, long newValue) {
+        if (index < initialLength) {
+            return initial.compareAndSet(index, expectedValue, newValue);
+        }
+        return segment(index).compareAndSet((index - initialLength) & SEGMENT_MASK, expectedValue, newValue);
+    }
+
+    public long getAndIncrement(int index) {
+        if (index < initialLength) {
+            return initial.getAndIncrement(index);
+        }
+        return segment(index).getAndIncrement((index - initialLength) & SEGMENT_MASK);
+    }
+
+    public long accumulateAndGet(int index, long value, LongBinaryOperator accumulator) {
+        if (index < initialLength) {
+            return initial.accumulateAndGet(index, value, accumulator);
+        }
+        return segment(index).accumulateAndGet((index - initialLength) & SEGMENT_MASK, value, accumulator);
+    }
+
+    /**
+     * @return number of elements that can be written without growing
+     */
+    public int length() {
+        return initialLength + (segments.length << SEGMENT_SHIFT);
+    }
+
+    private AtomicLongArray segment(int index) {
+        AtomicLongArray[] segments = this.segments;
+        int segment = (index - initialLength) >>> SEGMENT_SHIFT;
+        return segment < segments.length ? segments[segment] : grow(segment);
+    }
+
+    private synchronized AtomicLongArray grow(int segment) {
+        AtomicLongArray[] segments = this.segments;
+        if (segment >= segments.length) {
+            AtomicLongArray[] grown = Arrays.copyOf(segments, segment + 1);
+            for (int i = segments.length; i < grown.length; i++) {
+                grown[i] = new AtomicLongArray(SEGMENT_SIZE);
+            }
+            this.segments = grown;
+            return grown[segment];
+        }
+        return segments[segment];
+    }
+}
@@ -0,0 +1,151 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to primitive int values. One value is reserved to mark
+ * absent keys, so the table is two primitive arrays the garbage collector never has to trace. Not thread-safe.
+ */
+public class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final int missingValue;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * @param missingValue value returned for absent keys, it cannot be stored
+     */
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return the value of the key or the missing value
+     */
+    public int get(long key) {
+        for (int index = indexOf(key); values[index] != missingValue; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the previous value of the key or the missing value
+     */
+    public int put(long key, int value) {
+        if (value == missingValue) {
+            throw new IllegalArgumentException("The missing value " + missingValue + " cannot be stored");
+        }
+
+        int index = indexOf(key);
+        for (; values[index] != missingValue; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            resize(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the removed value or the missing value if the key was absent
+     */
+    public int remove(long key) {
+        int index = indexOf(key);
+        for (; values[index] != missingValue; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                int removed = values[index];
+                values[index] = missingValue;
+                size--;
+                shiftBack(index);
+                return removed;
+            }
+        }
+        return missingValue;
+    }
+
+    public int getMissingValue() {
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, missingValue);
+        size = 0;
+    }
+
+    /**
+     * Same as in {@link LongObjectHashMap}, entries following a removed one move back so no tombstones are needed
+     */
+    private void shiftBack(int gap) {
+        int index = (gap + 1) & mask;
+        while (values[index] != missingValue) {
+            int home = indexOf(keys[index]);
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                values[index] = missingValue;
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != missingValue) {
+                int index = indexOf(oldKeys[i]);
+                while (values[index] != missingValue) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, missingValue);
+        this.mask = capacity - 1;
+        this.resizeThreshold = capacity >> 1;
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        if (expectedSize < 0 || expectedSize > (1 << 29)) {
+            throw new IllegalArgumentException("Expected size must be between 0 and 2^29, got " + expectedSize);
+        }
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, MIN_CAPACITY) - 1) << 1;
+        return Math.max(capacity, MIN_CAPACITY);
+    }
+}
@@ -1,5 +1,6 @@
 package client;
 
+import exception.NotEnoughMoneyException;
 import model.Client;
 import model.Currency;
 import org.junit.Assert;
@@ -9,6 +10,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ClientAsyncTest {
 
@@ -88,4 +90,42 @@ public class ClientAsyncTest {
         Assert.assertEquals(0, client.getBalance().get(Currency.RUB).compareTo(new BigDecimal(50_900)));
     }
 
+    @RepeatedTest(50)
+    public void withdrawFromManyThreadsNeverOverdrawsTest() {
+        Client client = new Client(1);
+        client.deposit(Currency.USD, new BigDecimal(10));
+        CountDownLatch countDownLatch = new CountDownLatch(1);
+        AtomicInteger failedWithdrawals = new AtomicInteger();
+
+        Runnable withdrawMoneyTask = () -> {
+            try {
+                countDownLatch.await();
+                client.withdraw(Currency.USD, new BigDecimal(1));
+            } catch (NotEnoughMoneyException e) {
+                failedWithdrawals.incrementAndGet();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        };
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            threads.add(new Thread(withdrawMoneyTask));
+        }
+
+        threads.forEach(Thread::start);
+        countDownLatch.countDown();
+
+        threads.forEach(thread -> {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+
+        Assert.assertEquals(40, failedWithdrawals.get());
+        Assert.assertEquals(0, client.getBalance().get(Currency.USD).compareTo(BigDecimal.ZERO));
+    }
+
 }
@@ -0,0 +1,79 @@
+package client;
+
+import model.Client;
+import model.ClientLoader;
+import model.ClientRegistry;
+import model.Currency;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ClientLoaderTest {
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void loadCsvTest() throws Exception {
+        Path file = tempDir.resolve("clients.csv");
+        StringBuilder csv = new StringBuilder("id,USD, EUR,RUB\n");
+        for (int id = 1; id <= 10_000; id++) {
+            csv.append(id).append(',').append(id).append(".5,").append(id % 3 == 0 ? "" : " 0.01").append(",1E+2\n");
+        }
+        Files.writeString(file, csv);
+
+        ClientRegistry registry = new ClientRegistry();
+        Assert.assertEquals(10_000, new ClientLoader(registry, 4).loadCsv(file));
+        Assert.assertEquals(10_000, registry.size());
+        Client client = registry.get(7_001);
+        Assert.assertEquals(0, new BigDecimal("7001.50").compareTo(client.getBalance(Currency.USD)));
+        Assert.assertEquals(0, new BigDecimal("0.01").compareTo(client.getBalance(Currency.EUR)));
+        Assert.assertEquals(0, new BigDecimal(100).compareTo(client.getBalance(Currency.RUB)));
+        Assert.assertEquals(0, BigDecimal.ZERO.compareTo(registry.get(3).getBalance(Currency.EUR)));
+        Assert.assertEquals(0, BigDecimal.ZERO.compareTo(client.getBalance(Currency.JPY)));
+    }
+
+    @Test
+    public void loadJsonTest() throws Exception {
+        Path file = tempDir.resolve("clients.json");
+        StringBuilder json = new StringBuilder("[");
+        for (int id = 1; id <= 10_000; id++) {
+            json.append(id == 1 ? "" : ",").append("{\"id\": ").append(id).append(", \"name\": [\"skipped\"], \"balances\": {\"USD\": \"")
+                    .append(id).append(".25\", \"JPY\": 3}}");
+        }
+        Files.writeString(file, json.append(']'));
+
+        ClientRegistry registry = new ClientRegistry();
+        Assert.assertEquals(10_000, new ClientLoader(registry, 4).loadJson(file));
+        Client client = registry.get(9_999);
+        Assert.assertEquals(0, new BigDecimal("9999.25").compareTo(client.getBalance(Currency.USD)));
+        Assert.assertEquals(0, new BigDecimal(3).compareTo(client.getBalance(Currency.JPY)));
+        Assert.assertEquals(0, BigDecimal.ZERO.compareTo(client.getBalance(Currency.EUR)));
+    }
+
+    @Test
+    public void invalidRecordsAreRejectedTest() {
+        ClientLoader loader = new ClientLoader(new ClientRegistry(), 2);
+        Assert.assertThrows(IllegalArgumentException.class, () -> loader.loadCsv(csv("id,USD\n1,0.005\n")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> loader.loadCsv(csv("id,USD\n2,-1\n")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> loader.loadCsv(csv("id,USD\n3,1,2\n")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> loader.loadCsv(csv("id,XXX\n4,1\n")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> loader.loadJson(new StringReader("[{\"id\": 5, \"balances\": {\"USD\": 0.001}}]")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> loader.loadJson(new StringReader("[{\"balances\": {\"USD\": 1}}]")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> loader.loadJson(new StringReader("[{\"id\": 6, \"balances\": {\"XXX\": 1}}]")));
+
+        ClientRegistry registry = new ClientRegistry();
+        registry.register(7);
+        Assert.assertThrows(IllegalArgumentException.class, () -> new ClientLoader(registry, 2).loadCsv(csv("id,USD\n7,1\n")));
+    }
+
+    private static BufferedReader csv(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+}
@@ -0,0 +1,97 @@
+package client;
+
+import model.Client;
+import model.ClientRegistry;
+import model.Currency;
+import model.CurrencyPair;
+import model.Order;
+import model.OrderType;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import stockmarket.StockMarket;
+import stockmarket.StockMarketConfig;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClientRegistryTest {
+
+    @Test
+    public void registerAndGetTest() {
+        ClientRegistry registry = new ClientRegistry();
+        Assert.assertNull(registry.get(1));
+        Client client = registry.register(1);
+        Assert.assertEquals(1, client.getId());
+        Assert.assertSame(client, registry.register(1));
+        Assert.assertSame(client, registry.get(1));
+        Assert.assertSame(registry.register(-7), registry.get(-7));
+        Assert.assertNull(registry.get(2));
+        Assert.assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void bulkLoadAndIterateTest() {
+        ClientRegistry registry = new ClientRegistry();
+        List<Client> clients = new ArrayList<>();
+        for (int id = 0; id < 100_000; id++) {
+            Client client = new Client(id * 31);
+            client.deposit(Currency.USD, BigDecimal.ONE);
+            clients.add(client);
+        }
+        registry.addAll(clients);
+        Assert.assertEquals(100_000, registry.size());
+        Assert.assertSame(clients.get(777), registry.get(777 * 31));
+        Assert.assertNull(registry.get(32));
+
+        long[] total = new long[1];
+        registry.forEach(client -> total[0] += client.getBalanceUnits(Currency.USD));
+        Assert.assertEquals(100_000 * 100L, total[0]);
+        Assert.assertEquals(100_000, registry.values().stream().mapToInt(Client::getId).distinct().count());
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> registry.addAll(List.of(new Client(100_000 * 31), new Client(31))));
+        Assert.assertEquals(100_001, registry.size());
+    }
+
+    @Test
+    public void stockMarketRegistersClientsOfOrdersTest() {
+        ClientRegistry registry = new ClientRegistry();
+        StockMarketConfig config = new StockMarketConfig();
+        config.setClientRegistry(registry);
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            Client client = new Client(Integer.MIN_VALUE);
+            client.deposit(Currency.USD, BigDecimal.TEN);
+            stockMarket.addOrder(new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(70)));
+            Assert.assertSame(client, registry.get(Integer.MIN_VALUE));
+            Assert.assertNull(registry.get(0));
+            Assert.assertEquals(1, registry.size());
+        }
+    }
+
+    @Test
+    public void lookupsDuringGrowthTest() throws Exception {
+        ClientRegistry registry = new ClientRegistry();
+        registry.register(0);
+        AtomicInteger registered = new AtomicInteger(1);
+        AtomicBoolean missed = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (registered.get() < 200_000) {
+                int known = registered.get();
+                for (int id = known - 1; id >= Math.max(0, known - 100); id--) {
+                    if (registry.get(id) == null) {
+                        missed.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int id = 1; id < 200_000; id++) {
+            registry.register(id);
+            registered.set(id + 1);
+        }
+        reader.join();
+        Assert.assertFalse(missed.get());
+    }
+}
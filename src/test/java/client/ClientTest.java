@@ -4,7 +4,7 @@ import exception.NotEnoughMoneyException;
 import model.Client;
 import model.Currency;
 import org.junit.Assert;
-import org.junit.Test;
+import org.junit.jupiter.api.Test;
 import util.CurrencyUtils;
 
 import java.math.BigDecimal;
@@ -60,4 +60,14 @@ public class ClientTest {
         });
     }
 
+    @Test
+    public void tryReserveTest() {
+        Client client = new Client(1);
+        client.deposit(Currency.EUR, new BigDecimal(400));
+        Assert.assertFalse(client.tryReserve(Currency.EUR, new BigDecimal(400.01)));
+        Assert.assertEquals(0, client.getBalance(Currency.EUR).compareTo(new BigDecimal(400)));
+        Assert.assertTrue(client.tryReserve(Currency.EUR, new BigDecimal(150.5)));
+        Assert.assertEquals(0, client.getBalance(Currency.EUR).compareTo(new BigDecimal(249.5)));
+    }
+
 }
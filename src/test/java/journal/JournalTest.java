@@ -0,0 +1,148 @@
+package journal;
+
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JournalTest {
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void appendThenReadTest() {
+        Path path = tempDir.resolve("journal.bin");
+        Client client = new Client(7);
+        client.deposit(Currency.RUB, new BigDecimal(1000));
+        Order order = new Order(client, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(60.5));
+
+        try (Journal journal = new Journal(path, FsyncPolicy.EVERY_RECORD, 10, Journal.RECORD_SIZE * 2)) {
+            journal.appendOrder(order);
+            journal.appendFill(order, order, 6000, 300);
+            journal.appendCancel(order);
+            journal.appendRevokeAll(CurrencyPair.RUB_JPY);
+            journal.appendAuctionMode(CurrencyPair.RUB_JPY, true);
+            journal.appendUncross(CurrencyPair.RUB_JPY);
+            journal.appendDeposit(client, Currency.JPY, 1500);
+            journal.appendWithdraw(client, Currency.RUB, 250);
+            journal.appendRefuse(order);
+            Assert.assertEquals(9, journal.getRecordCount());
+        }
+
+        List<String> records = readAll(path);
+        Assert.assertEquals(9, records.size());
+        Assert.assertEquals("order " + order.getId() + " 7 USD_RUB BUY 1000 6050 60500", records.get(0));
+        Assert.assertEquals("fill " + order.getId() + " " + order.getId() + " USD_RUB 6000 300", records.get(1));
+        Assert.assertEquals("cancel " + order.getId() + " USD_RUB", records.get(2));
+        Assert.assertEquals("revokeAll RUB_JPY", records.get(3));
+        Assert.assertEquals("auctionMode RUB_JPY true", records.get(4));
+        Assert.assertEquals("uncross RUB_JPY", records.get(5));
+        Assert.assertEquals("deposit 7 JPY 1500", records.get(6));
+        Assert.assertEquals("withdraw 7 RUB 250", records.get(7));
+        Assert.assertEquals("refuse " + order.getId() + " 7 USD_RUB BUY 1000 6050 60500", records.get(8));
+    }
+
+    @Test
+    public void appendAfterCloseFailsTest() {
+        Journal journal = new Journal(tempDir.resolve("journal.bin"), FsyncPolicy.NONE, 10, Journal.DEFAULT_SEGMENT_SIZE);
+        journal.appendRevokeAll(CurrencyPair.USD_EUR);
+        journal.close();
+        Assert.assertThrows(IllegalStateException.class, () -> journal.appendRevokeAll(CurrencyPair.USD_RUB));
+        Assert.assertEquals(1, readAll(journal.getPath()).size());
+    }
+
+    @Test
+    public void reopenAppendsAfterLastRecordTest() {
+        Path path = tempDir.resolve("journal.bin");
+        try (Journal journal = new Journal(path, FsyncPolicy.NONE, 10, Journal.DEFAULT_SEGMENT_SIZE)) {
+            journal.appendRevokeAll(CurrencyPair.USD_EUR);
+        }
+        try (Journal journal = new Journal(path, FsyncPolicy.GROUP_COMMIT, 1, Journal.DEFAULT_SEGMENT_SIZE)) {
+            Assert.assertEquals(1, journal.getRecordCount());
+            journal.appendRevokeAll(CurrencyPair.USD_RUB);
+        }
+
+        List<String> records = readAll(path);
+        Assert.assertEquals(2, records.size());
+        Assert.assertEquals("revokeAll USD_EUR", records.get(0));
+        Assert.assertEquals("revokeAll USD_RUB", records.get(1));
+    }
+
+    @Test
+    public void tornRecordEndsJournalTest() throws IOException {
+        Path path = tempDir.resolve("journal.bin");
+        try (Journal journal = new Journal(path, FsyncPolicy.NONE, 10, Journal.DEFAULT_SEGMENT_SIZE)) {
+            journal.appendRevokeAll(CurrencyPair.USD_EUR);
+            journal.appendRevokeAll(CurrencyPair.USD_RUB);
+            journal.appendRevokeAll(CurrencyPair.USD_JPY);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(Journal.RECORD_SIZE + 24);
+            file.writeLong(12345);
+        }
+
+        Assert.assertEquals(1, readAll(path).size());
+        try (Journal journal = new Journal(path, FsyncPolicy.NONE, 10, Journal.DEFAULT_SEGMENT_SIZE)) {
+            Assert.assertEquals(1, journal.getRecordCount());
+        }
+    }
+
+    private static List<String> readAll(Path path) {
+        List<String> records = new ArrayList<>();
+        JournalReader.read(path, new JournalReader.Visitor() {
+            @Override
+            public void onOrder(long orderId, int clientId, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+                records.add("order " + orderId + " " + clientId + " " + currencyPair + " " + orderType + " " + amount + " " + price + " " + deposit);
+            }
+
+            @Override
+            public void onCancel(long orderId, CurrencyPair currencyPair) {
+                records.add("cancel " + orderId + " " + currencyPair);
+            }
+
+            @Override
+            public void onFill(long makerOrderId, long takerOrderId, CurrencyPair currencyPair, long price, long amount) {
+                records.add("fill " + makerOrderId + " " + takerOrderId + " " + currencyPair + " " + price + " " + amount);
+            }
+
+            @Override
+            public void onRevokeAll(CurrencyPair currencyPair) {
+                records.add("revokeAll " + currencyPair);
+            }
+
+            @Override
+            public void onUncross(CurrencyPair currencyPair) {
+                records.add("uncross " + currencyPair);
+            }
+
+            @Override
+            public void onAuctionMode(CurrencyPair currencyPair, boolean auction) {
+                records.add("auctionMode " + currencyPair + " " + auction);
+            }
+
+            @Override
+            public void onDeposit(int clientId, Currency currency, long amount) {
+                records.add("deposit " + clientId + " " + currency + " " + amount);
+            }
+
+            @Override
+            public void onWithdraw(int clientId, Currency currency, long amount) {
+                records.add("withdraw " + clientId + " " + currency + " " + amount);
+            }
+
+            @Override
+            public void onRefuse(long orderId, int clientId, CurrencyPair currencyPair, OrderType orderType, long amount, long price, long deposit) {
+                records.add("refuse " + orderId + " " + clientId + " " + currencyPair + " " + orderType + " " + amount + " " + price + " " + deposit);
+            }
+        });
+        return records;
+    }
+}
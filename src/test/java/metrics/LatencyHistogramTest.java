@@ -0,0 +1,62 @@
+package metrics;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueTest() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(value <= LatencyHistogram.highestEquivalentValue(index));
+            Assert.assertTrue(index == 0 || value > LatencyHistogram.highestEquivalentValue(index - 1));
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinPrecisionTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(100_000, histogram.getCount());
+        Assert.assertEquals(100_000, histogram.getMax());
+        Assert.assertEquals(50_000.5, histogram.getMean(), 0.001);
+        assertWithinPrecision(50_000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(99_000, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(100_000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothingTest() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                Random random = new Random();
+                for (int j = 0; j < 100_000; j++) {
+                    histogram.record(random.nextInt(1_000_000));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(400_000, histogram.getCount());
+        assertWithinPrecision(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        Assert.assertTrue("Expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 32 + 1);
+    }
+}
@@ -1,9 +1,10 @@
 package order;
 
+import exception.InvalidOrderException;
 import exception.NotEnoughMoneyException;
 import model.*;
 import org.junit.Assert;
-import org.junit.Test;
+import org.junit.jupiter.api.Test;
 import util.CurrencyUtils;
 
 import java.math.BigDecimal;
@@ -93,4 +94,32 @@ public class OrderTest {
         Assert.assertEquals(0, client.getBalance().get(Currency.RUB).compareTo(new BigDecimal(700)));
     }
 
+    @Test
+    public void orderIdsGrowTest() {
+        Client client = new Client(1);
+        client.deposit(Currency.USD, new BigDecimal(2));
+        Order order1 = new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(1), new BigDecimal(65));
+        Order order2 = new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(1), new BigDecimal(65));
+        Assert.assertTrue(order2.getId() > order1.getId());
+        Assert.assertNotEquals(order1, order2);
+    }
+
+    @Test
+    public void createOrderOffTradingRulesTest() {
+        Currency huf = Currency.register("HUF");
+        CurrencyPair usdHuf = CurrencyPair.register(Currency.USD, huf, new BigDecimal("0.05"), BigDecimal.ONE);
+        Assert.assertSame(usdHuf, CurrencyPair.register(Currency.USD, huf, new BigDecimal("0.050"), BigDecimal.ONE));
+        Assert.assertSame(usdHuf, CurrencyPair.register(Currency.USD, huf));
+        Assert.assertThrows(IllegalArgumentException.class, () -> CurrencyPair.register(Currency.USD, huf, new BigDecimal("0.01"), BigDecimal.ONE));
+        Assert.assertThrows(IllegalArgumentException.class, () -> CurrencyPair.register(huf, Currency.USD, new BigDecimal("0.001"), BigDecimal.ONE));
+
+        Client client = new Client(1);
+        client.deposit(huf, new BigDecimal(1000));
+        Assert.assertThrows(InvalidOrderException.class, () -> new Order(client, usdHuf, OrderType.BUY, new BigDecimal(10), new BigDecimal("60.01")));
+        Assert.assertThrows(InvalidOrderException.class, () -> new Order(client, usdHuf, OrderType.BUY, new BigDecimal("2.5"), new BigDecimal(60)));
+        Assert.assertEquals(0, client.getBalance(huf).compareTo(new BigDecimal(1000)));
+        new Order(client, usdHuf, OrderType.BUY, new BigDecimal(10), new BigDecimal("60.05"));
+        Assert.assertEquals(0, client.getBalance(huf).compareTo(new BigDecimal("399.50")));
+    }
+
 }
@@ -0,0 +1,91 @@
+package stockmarket;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class BookSideTest {
+
+    private static final long TICK = 5;
+
+    @Test
+    public void bidsMatchSortedMapTest() {
+        compareWithSortedMap(true, false);
+    }
+
+    @Test
+    public void asksMatchSortedMapTest() {
+        compareWithSortedMap(false, false);
+    }
+
+    @Test
+    public void pricesOffTickGridMatchSortedMapTest() {
+        compareWithSortedMap(true, true);
+        compareWithSortedMap(false, true);
+    }
+
+    @Test
+    public void levelsAreReusedAfterClearTest() {
+        BookSide side = new BookSide(false, TICK);
+        PriceLevel level = side.getOrCreate(100 * TICK);
+        side.getOrCreate(100 * TICK + 1);
+        side.clear();
+        Assert.assertTrue(side.isEmpty());
+        Assert.assertNull(side.getBest());
+        Assert.assertNull(side.get(100 * TICK));
+
+        PriceLevel reused = side.getOrCreate(7 * TICK);
+        side.getOrCreate(8 * TICK);
+        Assert.assertTrue(reused == level || side.get(8 * TICK) == level);
+        Assert.assertSame(reused, side.getBest());
+    }
+
+    /**
+     * Drifts the prices far beyond the ladder window, so the side rebases again and again
+     */
+    private static void compareWithSortedMap(boolean bids, boolean offGrid) {
+        Random random = new Random(bids ? 11 : 13);
+        BookSide side = new BookSide(bids, TICK);
+        TreeMap<Long, PriceLevel> expected = new TreeMap<>(bids ? Comparator.<Long>reverseOrder() : Comparator.<Long>naturalOrder());
+        long center = 1_000_000;
+        for (int i = 0; i < 200_000; i++) {
+            center += (random.nextInt(3) - 1) * 20 * TICK;
+            if (random.nextBoolean() || expected.isEmpty()) {
+                long price = center + (long) (random.nextGaussian() * BookSide.LADDER_SIZE / 4) * TICK;
+                if (offGrid && i == 100_000) {
+                    price += 1;
+                }
+                PriceLevel level = side.getOrCreate(price);
+                PriceLevel previous = expected.putIfAbsent(price, level);
+                Assert.assertTrue(previous == null || previous == level);
+            } else {
+                Long price = random.nextBoolean() ? expected.firstKey() : expected.ceilingKey(center);
+                price = price == null ? expected.lastKey() : price;
+                side.remove(expected.remove(price));
+                Assert.assertNull(side.get(price));
+            }
+
+            Assert.assertEquals(expected.size(), side.size());
+            Assert.assertSame(expected.isEmpty() ? null : expected.firstEntry().getValue(), side.getBest());
+            if (i % 1000 == 0) {
+                assertSameLevels(expected, side);
+            }
+        }
+        assertSameLevels(expected, side);
+    }
+
+    private static void assertSameLevels(TreeMap<Long, PriceLevel> expected, BookSide side) {
+        Iterator<Map.Entry<Long, PriceLevel>> entries = expected.entrySet().iterator();
+        for (int depth = 0; depth < side.size(); depth++) {
+            Map.Entry<Long, PriceLevel> entry = entries.next();
+            Assert.assertSame(entry.getValue(), side.getLevel(depth));
+            Assert.assertEquals((long) entry.getKey(), side.getLevel(depth).getPrice());
+            Assert.assertSame(entry.getValue(), side.get(entry.getKey()));
+        }
+    }
+}
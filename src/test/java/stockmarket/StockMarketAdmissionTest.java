@@ -0,0 +1,202 @@
+package stockmarket;
+
+import exception.InvalidOrderException;
+import exception.OrderRejectedException;
+import metrics.MarketMetrics;
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+public class StockMarketAdmissionTest {
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void rejectWhenQueueIsFullTest() throws Exception {
+        try (StockMarket stockMarket = new StockMarket(admissionConfig(MatchingMode.LOCKING, new AdmissionLimit(2, AdmissionPolicy.REJECT)))) {
+            MarketMetrics metrics = stockMarket.getMetrics();
+            Client client = newClient();
+            CompletableFuture<Boolean> first;
+            CompletableFuture<Boolean> second;
+            Order rejected = sell(client);
+            try (MatchingPause pause = new MatchingPause(stockMarket)) {
+                first = CompletableFuture.supplyAsync(() -> stockMarket.addOrder(sell(client)));
+                second = CompletableFuture.supplyAsync(() -> stockMarket.addOrder(sell(client)));
+                awaitQueueDepth(metrics, 2);
+
+                Assert.assertThrows(OrderRejectedException.class, () -> stockMarket.addOrder(rejected));
+                Assert.assertEquals(0, client.getBalance().get(Currency.USD).compareTo(new BigDecimal(98)));
+            }
+            Assert.assertTrue(first.join());
+            Assert.assertTrue(second.join());
+            Assert.assertEquals(0, metrics.getQueueDepth(CurrencyPair.USD_EUR));
+            Assert.assertEquals(2, metrics.getPeakQueueDepth(CurrencyPair.USD_EUR));
+            Assert.assertEquals(1, metrics.getAdmissionRejectionCount(CurrencyPair.USD_EUR));
+            Assert.assertEquals(0, metrics.getRejectionCount(CurrencyPair.USD_EUR));
+            Assert.assertEquals(2, stockMarket.getAllOrdersList().size());
+
+            Assert.assertEquals(0, rejected.getAmountUnits());
+            Assert.assertThrows(InvalidOrderException.class, () -> stockMarket.addOrder(rejected));
+            Assert.assertEquals(0, client.getBalance().get(Currency.USD).compareTo(new BigDecimal(98)));
+            Assert.assertEquals(2, stockMarket.getAllOrdersList().size());
+        }
+    }
+
+    @Test
+    public void refundOfOrderCreatedBeforeSnapshotIsRecoveredTest() throws Exception {
+        StockMarketConfig config = admissionConfig(MatchingMode.LOCKING, new AdmissionLimit(1, AdmissionPolicy.REJECT));
+        Client client = newClient();
+        Path snapshot;
+        byte[] snapshotBeforeRefusal;
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            stockMarket.addOrder(sell(client));
+            Order rejected = sell(client);
+            snapshot = stockMarket.takeSnapshot(Collections.singletonList(client));
+            snapshotBeforeRefusal = Files.readAllBytes(snapshot);
+
+            CompletableFuture<Boolean> queued;
+            try (MatchingPause pause = new MatchingPause(stockMarket)) {
+                queued = CompletableFuture.supplyAsync(() -> stockMarket.addOrder(sell(client)));
+                awaitQueueDepth(stockMarket.getMetrics(), 1);
+                Assert.assertThrows(OrderRejectedException.class, () -> stockMarket.addOrder(rejected));
+            }
+            Assert.assertTrue(queued.join());
+            Assert.assertEquals(0, client.getBalance().get(Currency.USD).compareTo(new BigDecimal(98)));
+        }
+        // the market stopped before the snapshot taken by the pause replaced the one taken before the refusal
+        Files.write(snapshot, snapshotBeforeRefusal);
+
+        Client recovered = newClient();
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            stockMarket.recover(id -> recovered);
+            Assert.assertEquals(2, stockMarket.getAllOrdersList().size());
+            Assert.assertEquals(0, recovered.getBalance().get(Currency.USD).compareTo(new BigDecimal(98)));
+        }
+    }
+
+    @Test
+    public void blockUntilTimeoutTest() throws Exception {
+        try (StockMarket stockMarket = new StockMarket(admissionConfig(MatchingMode.LOCKING, new AdmissionLimit(1, AdmissionPolicy.BLOCK, 50)))) {
+            MarketMetrics metrics = stockMarket.getMetrics();
+            Client client = newClient();
+            CompletableFuture<Boolean> first;
+            CompletableFuture<Boolean> blocked;
+            try (MatchingPause pause = new MatchingPause(stockMarket)) {
+                first = CompletableFuture.supplyAsync(() -> stockMarket.addOrder(sell(client)));
+                awaitQueueDepth(metrics, 1);
+
+                long start = System.nanoTime();
+                Assert.assertThrows(OrderRejectedException.class, () -> stockMarket.addOrder(sell(client)));
+                Assert.assertTrue(System.nanoTime() - start >= 50_000_000);
+
+                blocked = CompletableFuture.supplyAsync(() -> stockMarket.addOrder(sell(client)));
+                Thread.sleep(10);
+                Assert.assertFalse(blocked.isDone());
+            }
+            Assert.assertTrue(first.join());
+            Assert.assertTrue(blocked.join());
+            Assert.assertEquals(1, metrics.getAdmissionRejectionCount(CurrencyPair.USD_EUR));
+            Assert.assertEquals(0, client.getBalance().get(Currency.USD).compareTo(new BigDecimal(98)));
+        }
+    }
+
+    @Test
+    public void dropOldestOrderTest() throws Exception {
+        try (StockMarket stockMarket = new StockMarket(admissionConfig(MatchingMode.SINGLE_WRITER, new AdmissionLimit(2, AdmissionPolicy.DROP_OLDEST)))) {
+            MarketMetrics metrics = stockMarket.getMetrics();
+            Client client = newClient();
+            CompletableFuture<OrderResult> oldest;
+            CompletableFuture<OrderResult> second;
+            CompletableFuture<OrderResult> newest;
+            try (MatchingPause pause = new MatchingPause(stockMarket)) {
+                oldest = stockMarket.addOrderAsync(sell(client));
+                second = stockMarket.addOrderAsync(sell(client));
+                newest = stockMarket.addOrderAsync(sell(client));
+                Assert.assertEquals(2, metrics.getQueueDepth(CurrencyPair.USD_EUR));
+                Assert.assertEquals(0, client.getBalance().get(Currency.USD).compareTo(new BigDecimal(98)));
+            }
+            CompletionException e = Assert.assertThrows(CompletionException.class, oldest::join);
+            Assert.assertTrue(e.getCause() instanceof OrderRejectedException);
+            Assert.assertTrue(second.join().isResting());
+            Assert.assertTrue(newest.join().isResting());
+            Assert.assertEquals(1, metrics.getAdmissionRejectionCount(CurrencyPair.USD_EUR));
+            Assert.assertEquals(2, stockMarket.getAllOrdersList().size());
+        }
+    }
+
+    private StockMarketConfig admissionConfig(MatchingMode matchingMode, AdmissionLimit limit) {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setMatchingMode(matchingMode);
+        config.setMetricsEnabled(true);
+        config.getAdmissionLimits().put(CurrencyPair.USD_EUR, limit);
+        config.setJournalPath(tempDir.resolve("journal.bin"));
+        config.setSnapshotDirectory(tempDir.resolve("snapshots"));
+        return config;
+    }
+
+    private static void awaitQueueDepth(MarketMetrics metrics, long depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (metrics.getQueueDepth(CurrencyPair.USD_EUR) < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(depth, metrics.getQueueDepth(CurrencyPair.USD_EUR));
+    }
+
+    private static Order sell(Client client) {
+        return new Order(client, CurrencyPair.USD_EUR, OrderType.SELL, BigDecimal.ONE, new BigDecimal(2));
+    }
+
+    private static Client newClient() {
+        Client client = new Client(1);
+        client.deposit(Currency.USD, new BigDecimal(100));
+        return client;
+    }
+
+    /**
+     * Holds all books still by taking a snapshot of clients whose iteration waits until the pause is closed
+     */
+    private static class MatchingPause implements AutoCloseable {
+        private final CountDownLatch paused = new CountDownLatch(1);
+        private final CountDownLatch resume = new CountDownLatch(1);
+        private final CompletableFuture<Path> snapshot;
+
+        private MatchingPause(StockMarket stockMarket) throws InterruptedException {
+            snapshot = CompletableFuture.supplyAsync(() -> stockMarket.takeSnapshot(new AbstractCollection<Client>() {
+                @Override
+                public Iterator<Client> iterator() {
+                    paused.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Collections.emptyIterator();
+                }
+
+                @Override
+                public int size() {
+                    return 0;
+                }
+            }));
+            paused.await();
+        }
+
+        @Override
+        public void close() {
+            resume.countDown();
+            snapshot.join();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package stockmarket;
+
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+public class StockMarketAllocationTest {
+
+    private static final int OPERATIONS = 100_000;
+
+    @Test
+    public void pooledOrdersAreMatchedWithoutAllocationTest() {
+        assertMatchedWithoutAllocation(OrderStorage.HEAP);
+    }
+
+    @Test
+    public void offHeapOrdersAreMatchedWithoutAllocationTest() {
+        assertMatchedWithoutAllocation(OrderStorage.OFF_HEAP);
+    }
+
+    private static void assertMatchedWithoutAllocation(OrderStorage orderStorage) {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setOrderStorage(orderStorage);
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            Client seller = new Client(1);
+            seller.deposit(Currency.USD, new BigDecimal(1_000_000_000));
+            Client buyer = new Client(2);
+            buyer.deposit(Currency.RUB, new BigDecimal(1_000_000_000));
+            OrderPool orderPool = new OrderPool(256);
+            for (int i = 0; i < 32; i++) {
+                stockMarket.addOrder(orderPool.acquire(seller, CurrencyPair.USD_RUB, OrderType.SELL, 100, 20_000 + i * 100));
+                stockMarket.addOrder(orderPool.acquire(buyer, CurrencyPair.USD_RUB, OrderType.BUY, 100, 5_000 - i * 100));
+            }
+
+            placeAndFill(stockMarket, orderPool, seller, buyer, OPERATIONS);
+            com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            placeAndFill(stockMarket, orderPool, seller, buyer, OPERATIONS);
+            long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+            Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+            Assert.assertEquals(64, stockMarket.getAllOrdersList().size());
+        }
+    }
+
+    /**
+     * Every operation rests a sell order inside the spread and fills it completely with a buy order,
+     * the price moves so that levels are created and removed all the time
+     */
+    private static void placeAndFill(StockMarket stockMarket, OrderPool orderPool, Client seller, Client buyer, int operations) {
+        for (int i = 0; i < operations; i++) {
+            long price = 10_000 + (i % 50) * 100;
+            Order sellOrder = orderPool.acquire(seller, CurrencyPair.USD_RUB, OrderType.SELL, 100, price);
+            Assert.assertTrue(stockMarket.addOrder(sellOrder));
+            Order buyOrder = orderPool.acquire(buyer, CurrencyPair.USD_RUB, OrderType.BUY, 100, price);
+            Assert.assertFalse(stockMarket.addOrder(buyOrder));
+            orderPool.release(sellOrder);
+            orderPool.release(buyOrder);
+        }
+    }
+}
@@ -3,13 +3,17 @@ package stockmarket;
 import model.*;
 import org.junit.Assert;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
 import util.CurrencyUtils;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class StockMarketAsyncTest {
 
@@ -294,4 +298,55 @@ public class StockMarketAsyncTest {
 
     }
 
+    @Test
+    public void submitOnSessionExecutorsTest() {
+        List<ExecutorService> sessions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sessions.add(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session");
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+
+        List<Client> clients = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            Client client = new Client(id);
+            client.deposit(Currency.USD, new BigDecimal(1000));
+            client.deposit(Currency.RUB, new BigDecimal(100_000));
+            clients.add(client);
+        }
+
+        Random random = new Random(11);
+        List<CompletableFuture<OrderResult>> futures = new ArrayList<>();
+        try (StockMarket stockMarket = new StockMarket()) {
+            for (int i = 0; i < 2000; i++) {
+                Client client = clients.get(random.nextInt(clients.size()));
+                OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+                Order order = new Order(client, CurrencyPair.USD_RUB, orderType, BigDecimal.ONE, new BigDecimal(60 + random.nextInt(5)));
+                futures.add(stockMarket.submit(order, sessions.get(client.getId() % sessions.size())));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            for (CompletableFuture<OrderResult> future : futures) {
+                OrderResult result = future.join();
+                Assert.assertEquals(0, result.getFilledAmount().add(result.getRemainingAmount()).compareTo(BigDecimal.ONE));
+            }
+            long resting = futures.stream().filter(future -> future.join().isResting()).count();
+            Assert.assertTrue(stockMarket.getAllOrdersList().size() <= resting);
+            Assert.assertTrue(futures.stream().anyMatch(future -> future.join().getFilledAmount().signum() > 0));
+            stockMarket.revokeAllOrders();
+        }
+        sessions.forEach(ExecutorService::shutdown);
+
+        BigDecimal usdSum = BigDecimal.ZERO;
+        BigDecimal rubSum = BigDecimal.ZERO;
+        for (Client client : clients) {
+            usdSum = usdSum.add(client.getBalance().get(Currency.USD));
+            rubSum = rubSum.add(client.getBalance().get(Currency.RUB));
+        }
+        Assert.assertEquals(0, usdSum.compareTo(new BigDecimal(20_000)));
+        Assert.assertEquals(0, rubSum.compareTo(new BigDecimal(2_000_000)));
+    }
+
 }
@@ -0,0 +1,205 @@
+package stockmarket;
+
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class StockMarketAuctionTest {
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void uncrossAtPriceMaximizingVolumeTest() {
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(auctionConfig(0))) {
+            Order bid105 = buy(stockMarket, clients.get(1), 10, 105);
+            Order bid103 = buy(stockMarket, clients.get(2), 10, 103);
+            buy(stockMarket, clients.get(3), 10, 100);
+            Order ask99 = sell(stockMarket, clients.get(4), 5, 99);
+            sell(stockMarket, clients.get(5), 10, 101);
+            sell(stockMarket, clients.get(6), 10, 104);
+            Assert.assertEquals(6, stockMarket.getAllOrdersList().size());
+            Assert.assertTrue(stockMarket.getBestBidPrice(CurrencyPair.RUB_JPY).compareTo(stockMarket.getBestAskPrice(CurrencyPair.RUB_JPY)) > 0);
+
+            Assert.assertTrue(stockMarket.getPublishedDepth(CurrencyPair.RUB_JPY).getBids().isEmpty());
+
+            Assert.assertEquals(3, stockMarket.uncross(CurrencyPair.RUB_JPY));
+            Assert.assertEquals(0, stockMarket.uncross(CurrencyPair.RUB_JPY));
+            Assert.assertEquals(2, stockMarket.getPublishedDepth(CurrencyPair.RUB_JPY).getBids().size());
+
+            Assert.assertEquals(3, stockMarket.getAllOrdersList().size());
+            Assert.assertEquals(0, stockMarket.getBestBidPrice(CurrencyPair.RUB_JPY).compareTo(new BigDecimal(103)));
+            Assert.assertEquals(0, stockMarket.getBestAskPrice(CurrencyPair.RUB_JPY).compareTo(new BigDecimal(104)));
+            Assert.assertEquals(0, bid103.getAmount().compareTo(new BigDecimal(5)));
+            Assert.assertEquals(0, bid105.getAmount().signum());
+            Assert.assertEquals(0, ask99.getAmount().signum());
+
+            Assert.assertEquals(0, clients.get(1).getBalance().get(Currency.JPY).compareTo(new BigDecimal(100_000 - 10 * 101)));
+            Assert.assertEquals(0, clients.get(1).getBalance().get(Currency.RUB).compareTo(new BigDecimal(100_000 + 10)));
+            Assert.assertEquals(0, clients.get(4).getBalance().get(Currency.JPY).compareTo(new BigDecimal(100_000 + 5 * 101)));
+            Assert.assertEquals(0, clients.get(4).getBalance().get(Currency.RUB).compareTo(new BigDecimal(100_000 - 5)));
+        }
+    }
+
+    @Test
+    public void cancelOrdersRestingInAuctionTest() {
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(auctionConfig(0))) {
+            Order bid = buy(stockMarket, clients.get(1), 10, 105);
+            Order cancelled = buy(stockMarket, clients.get(2), 10, 104);
+            buy(stockMarket, clients.get(2), 10, 103);
+            Assert.assertTrue(stockMarket.cancelOrder(cancelled.getId()));
+            Assert.assertFalse(stockMarket.cancelOrder(cancelled.getId()));
+            sell(stockMarket, clients.get(3), 4, 100);
+            Assert.assertEquals(1, stockMarket.uncross(CurrencyPair.RUB_JPY));
+
+            Order sell = sell(stockMarket, clients.get(3), 4, 110);
+            Assert.assertEquals(1, stockMarket.cancelAllForClient(2));
+            Assert.assertTrue(stockMarket.cancelOrder(bid.getId()));
+            Assert.assertTrue(stockMarket.cancelOrder(sell.getId()));
+            Assert.assertTrue(stockMarket.getAllOrdersList().isEmpty());
+            Assert.assertEquals(0, clients.get(1).getBalance().get(Currency.JPY).compareTo(new BigDecimal(100_000 - 4 * 105)));
+            Assert.assertEquals(0, clients.get(2).getBalance().get(Currency.JPY).compareTo(new BigDecimal(100_000)));
+            Assert.assertEquals(0, clients.get(3).getBalance().get(Currency.RUB).compareTo(new BigDecimal(100_000 - 4)));
+        }
+    }
+
+    @Test
+    public void uncrossAfterOrderCountTest() {
+        StockMarketConfig config = auctionConfig(0);
+        config.setAuctionOrderCount(3);
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            buy(stockMarket, clients.get(1), 10, 105);
+            sell(stockMarket, clients.get(2), 4, 100);
+            Assert.assertEquals(2, stockMarket.getAllOrdersList().size());
+
+            Assert.assertFalse(stockMarket.addOrder(new Order(clients.get(3), CurrencyPair.RUB_JPY, OrderType.SELL, new BigDecimal(6), new BigDecimal(101))));
+            Assert.assertTrue(stockMarket.getAllOrdersList().isEmpty());
+            Assert.assertEquals(0, clients.get(2).getBalance().get(Currency.JPY).compareTo(new BigDecimal(100_000 + 4 * 101)));
+        }
+    }
+
+    @Test
+    public void uncrossOnTimerTest() throws InterruptedException {
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(auctionConfig(10))) {
+            buy(stockMarket, clients.get(1), 10, 105);
+            sell(stockMarket, clients.get(2), 10, 100);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!stockMarket.getAllOrdersList().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertTrue(stockMarket.getAllOrdersList().isEmpty());
+        }
+    }
+
+    @Test
+    public void switchToContinuousMatchingUncrossesTest() {
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(auctionConfig(0))) {
+            Assert.assertTrue(stockMarket.isAuctionMode(CurrencyPair.RUB_JPY));
+            buy(stockMarket, clients.get(1), 10, 105);
+            sell(stockMarket, clients.get(2), 4, 100);
+
+            stockMarket.setAuctionMode(CurrencyPair.RUB_JPY, false);
+            Assert.assertFalse(stockMarket.isAuctionMode(CurrencyPair.RUB_JPY));
+            Assert.assertEquals(0, clients.get(2).getBalance().get(Currency.JPY).compareTo(new BigDecimal(100_000 + 4 * 100)));
+
+            Assert.assertFalse(stockMarket.addOrder(new Order(clients.get(3), CurrencyPair.RUB_JPY, OrderType.SELL, new BigDecimal(6), new BigDecimal(101))));
+            Assert.assertEquals(0, clients.get(3).getBalance().get(Currency.JPY).compareTo(new BigDecimal(100_000 + 6 * 105)));
+            Assert.assertTrue(stockMarket.getAllOrdersList().isEmpty());
+        }
+    }
+
+    @Test
+    public void recoverAuctionsFromSnapshotAndJournalTest() {
+        Map<Integer, Client> clients = newClients();
+        List<Order> restingOrders;
+        try (StockMarket stockMarket = new StockMarket(recoverableConfig())) {
+            Random random = new Random(5);
+            placeRandomOrders(stockMarket, clients, random, 300);
+            stockMarket.setAuctionMode(CurrencyPair.USD_RUB, true);
+            placeRandomOrders(stockMarket, clients, random, 300);
+            stockMarket.takeSnapshot(clients.values());
+            placeRandomOrders(stockMarket, clients, random, 300);
+            stockMarket.setAuctionMode(CurrencyPair.RUB_JPY, false);
+            placeRandomOrders(stockMarket, clients, random, 100);
+            restingOrders = stockMarket.getAllOrdersList();
+        }
+
+        Map<Integer, Client> recoveredClients = newClients();
+        try (StockMarket stockMarket = new StockMarket(recoverableConfig())) {
+            stockMarket.recover(recoveredClients::get);
+            Assert.assertTrue(stockMarket.isAuctionMode(CurrencyPair.USD_RUB));
+            Assert.assertFalse(stockMarket.isAuctionMode(CurrencyPair.RUB_JPY));
+            Assert.assertEquals(restingOrders, stockMarket.getAllOrdersList());
+            for (int id : clients.keySet()) {
+                Assert.assertEquals(clients.get(id).getBalance(), recoveredClients.get(id).getBalance());
+            }
+        }
+    }
+
+    private StockMarketConfig recoverableConfig() {
+        StockMarketConfig config = auctionConfig(0);
+        config.setAuctionOrderCount(7);
+        config.setJournalPath(tempDir.resolve("journal.bin"));
+        config.setSnapshotDirectory(tempDir.resolve("snapshots"));
+        return config;
+    }
+
+    private static StockMarketConfig auctionConfig(long intervalMillis) {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setAuctionPairs(Set.of(CurrencyPair.RUB_JPY));
+        config.setAuctionIntervalMillis(intervalMillis);
+        config.setAuctionOrderCount(0);
+        config.setPublishedDepthLevels(10);
+        return config;
+    }
+
+    private static void placeRandomOrders(StockMarket stockMarket, Map<Integer, Client> clients, Random random, int count) {
+        CurrencyPair[] currencyPairs = {CurrencyPair.RUB_JPY, CurrencyPair.USD_RUB};
+        for (int i = 0; i < count; i++) {
+            Client client = clients.get(random.nextInt(clients.size()) + 1);
+            OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+            stockMarket.addOrder(new Order(client, currencyPairs[random.nextInt(currencyPairs.length)], orderType,
+                    new BigDecimal(random.nextInt(11) + 1), new BigDecimal(random.nextInt(201) + 100).movePointLeft(2)));
+        }
+    }
+
+    private static Order buy(StockMarket stockMarket, Client client, int amount, int price) {
+        return place(stockMarket, client, OrderType.BUY, amount, price);
+    }
+
+    private static Order sell(StockMarket stockMarket, Client client, int amount, int price) {
+        return place(stockMarket, client, OrderType.SELL, amount, price);
+    }
+
+    private static Order place(StockMarket stockMarket, Client client, OrderType orderType, int amount, int price) {
+        Order order = new Order(client, CurrencyPair.RUB_JPY, orderType, new BigDecimal(amount), new BigDecimal(price));
+        Assert.assertTrue(stockMarket.addOrder(order));
+        return order;
+    }
+
+    private static Map<Integer, Client> newClients() {
+        Map<Integer, Client> clients = new HashMap<>();
+        for (int id = 1; id <= 10; id++) {
+            Client client = new Client(id);
+            for (Currency currency : Currency.values()) {
+                client.deposit(currency, new BigDecimal(100_000));
+            }
+            clients.put(id, client);
+        }
+        return clients;
+    }
+}
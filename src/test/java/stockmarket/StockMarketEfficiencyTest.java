@@ -1,7 +1,7 @@
 package stockmarket;
 
 import model.*;
-import org.junit.Test;
+import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -0,0 +1,208 @@
+package stockmarket;
+
+import event.EventOverflowPolicy;
+import event.MarketEvent;
+import event.MarketListener;
+import event.OrderEvent;
+import event.OrderState;
+import event.TradeEvent;
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StockMarketEventsTest {
+
+    private StockMarket stockMarket;
+
+    @BeforeEach
+    public void before() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setEventBufferCapacity(16);
+        stockMarket = new StockMarket(config);
+    }
+
+    @AfterEach
+    public void after() {
+        stockMarket.close();
+    }
+
+    @Test
+    public void tradeAndOrderEventsTest() throws InterruptedException {
+        BlockingQueue<MarketEvent> events = new LinkedBlockingQueue<>();
+        stockMarket.addListener(new MarketListener() {
+            @Override
+            public void onTrade(TradeEvent event) {
+                events.add(event);
+            }
+
+            @Override
+            public void onOrderEvent(OrderEvent event) {
+                events.add(event);
+            }
+        });
+
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(15));
+        Order order1 = new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(15), new BigDecimal(65));
+        stockMarket.addOrder(order1);
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.RUB, new BigDecimal(1000));
+        Order order2 = new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(66.66));
+        stockMarket.addOrder(order2);
+        stockMarket.cancelOrder(order1.getId());
+
+        List<MarketEvent> received = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            MarketEvent event = events.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(event);
+            received.add(event);
+        }
+
+        assertOrderEvent(received.get(0), order1.getId(), OrderState.ACCEPTED, new BigDecimal(15));
+        assertOrderEvent(received.get(1), order1.getId(), OrderState.RESTING, new BigDecimal(15));
+        assertOrderEvent(received.get(2), order2.getId(), OrderState.ACCEPTED, new BigDecimal(10));
+
+        TradeEvent trade = (TradeEvent) received.get(3);
+        Assert.assertEquals(CurrencyPair.USD_RUB, trade.getCurrencyPair());
+        Assert.assertEquals(order1.getId(), trade.getMakerOrderId());
+        Assert.assertEquals(1, trade.getMakerClientId());
+        Assert.assertEquals(order2.getId(), trade.getTakerOrderId());
+        Assert.assertEquals(2, trade.getTakerClientId());
+        Assert.assertEquals(OrderType.BUY, trade.getTakerOrderType());
+        Assert.assertEquals(0, trade.getPrice().compareTo(new BigDecimal(65)));
+        Assert.assertEquals(0, trade.getAmount().compareTo(new BigDecimal(10)));
+
+        assertOrderEvent(received.get(4), order2.getId(), OrderState.FILLED, BigDecimal.ZERO);
+        assertOrderEvent(received.get(5), order1.getId(), OrderState.CANCELLED, new BigDecimal(5));
+
+        for (int i = 1; i < received.size(); i++) {
+            Assert.assertTrue(received.get(i).getSequence() > received.get(i - 1).getSequence());
+        }
+    }
+
+    @Test
+    public void slowListenerDoesNotStallMatchingTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong reportedDrops = new AtomicLong();
+        stockMarket.addListener(new MarketListener() {
+            @Override
+            public void onOrderEvent(OrderEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onEventsDropped(long count) {
+                reportedDrops.addAndGet(count);
+            }
+        });
+
+        Client client = new Client(1);
+        client.deposit(Currency.USD, new BigDecimal(100));
+        for (int i = 0; i < 100; i++) {
+            stockMarket.addOrder(new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(65)));
+        }
+
+        Assert.assertEquals(100, stockMarket.getAllOrdersList().size());
+        long dropped = stockMarket.getDroppedEventCount();
+        Assert.assertTrue(dropped > 0);
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reportedDrops.get() < dropped && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(dropped, reportedDrops.get());
+    }
+
+    @Test
+    public void blockingListenerLosesNoEventsTest() throws Exception {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setEventBufferCapacity(16);
+        config.setEventOverflowPolicy(EventOverflowPolicy.BLOCK);
+        try (StockMarket blockingMarket = new StockMarket(config)) {
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicLong received = new AtomicLong();
+            blockingMarket.addListener(new MarketListener() {
+                @Override
+                public void onOrderEvent(OrderEvent event) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    received.incrementAndGet();
+                }
+            });
+
+            Client client = new Client(1);
+            client.deposit(Currency.USD, new BigDecimal(100));
+            CompletableFuture<Void> placing = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 100; i++) {
+                    blockingMarket.addOrder(new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(65)));
+                }
+            });
+            Thread.sleep(50);
+            Assert.assertFalse(placing.isDone());
+
+            release.countDown();
+            placing.get(10, TimeUnit.SECONDS);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (received.get() < 200 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(200, received.get());
+            Assert.assertEquals(0, blockingMarket.getDroppedEventCount());
+        }
+    }
+
+    @Test
+    public void failingListenerKeepsReceivingEventsTest() throws InterruptedException {
+        BlockingQueue<MarketEvent> events = new LinkedBlockingQueue<>();
+        BlockingQueue<RuntimeException> errors = new LinkedBlockingQueue<>();
+        stockMarket.addListener(new MarketListener() {
+            @Override
+            public void onOrderEvent(OrderEvent event) {
+                events.add(event);
+                if (event.getOrderState() == OrderState.ACCEPTED) {
+                    throw new IllegalStateException("listener failure");
+                }
+            }
+
+            @Override
+            public void onError(MarketEvent event, RuntimeException e) {
+                errors.add(e);
+            }
+        });
+
+        Client client = new Client(1);
+        client.deposit(Currency.USD, new BigDecimal(10));
+        stockMarket.addOrder(new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(65)));
+
+        Assert.assertEquals(OrderState.ACCEPTED, ((OrderEvent) events.poll(5, TimeUnit.SECONDS)).getOrderState());
+        Assert.assertEquals(OrderState.RESTING, ((OrderEvent) events.poll(5, TimeUnit.SECONDS)).getOrderState());
+        Assert.assertEquals("listener failure", errors.poll(5, TimeUnit.SECONDS).getMessage());
+    }
+
+    private static void assertOrderEvent(MarketEvent event, long orderId, OrderState orderState, BigDecimal remainingAmount) {
+        OrderEvent orderEvent = (OrderEvent) event;
+        Assert.assertEquals(orderId, orderEvent.getOrderId());
+        Assert.assertEquals(orderState, orderEvent.getOrderState());
+        Assert.assertEquals(0, orderEvent.getRemainingAmount().compareTo(remainingAmount));
+    }
+}
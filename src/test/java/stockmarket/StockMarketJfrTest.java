@@ -0,0 +1,73 @@
+package stockmarket;
+
+import exception.NotEnoughMoneyException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class StockMarketJfrTest {
+
+    private static final String[] EVENTS = {"stockmarket.OrderSubmission", "stockmarket.Match", "stockmarket.OrderReduce",
+            "stockmarket.OrderRevoke", "stockmarket.WithdrawFailure"};
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void eventsAreRecordedTest() throws Exception {
+        Path dump = tempDir.resolve("stockmarket.jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            Client seller = new Client(1);
+            seller.deposit(Currency.USD, BigDecimal.TEN);
+            Client buyer = new Client(2);
+            buyer.deposit(Currency.RUB, new BigDecimal(1000));
+            try (StockMarket stockMarket = new StockMarket()) {
+                stockMarket.addOrder(new Order(seller, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(2), new BigDecimal(60)));
+                stockMarket.addOrder(new Order(buyer, CurrencyPair.USD_RUB, OrderType.BUY, BigDecimal.ONE, new BigDecimal(60)));
+                stockMarket.revokeAllOrders();
+            }
+            try {
+                buyer.withdraw(Currency.EUR, BigDecimal.ONE);
+                Assert.fail();
+            } catch (NotEnoughMoneyException e) {
+                // expected
+            }
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(dump).stream()
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName(), Collectors.mapping(Function.identity(), Collectors.toList())));
+        Assert.assertEquals(2, events.get("stockmarket.OrderSubmission").size());
+        Assert.assertEquals(2, events.get("stockmarket.Match").size());
+        Assert.assertEquals(2, events.get("stockmarket.OrderReduce").size());
+        Assert.assertEquals(2, events.get("stockmarket.OrderRevoke").size());
+        Assert.assertEquals(1, events.get("stockmarket.WithdrawFailure").size());
+
+        RecordedEvent match = events.get("stockmarket.Match").stream()
+                .filter(event -> event.getInt("fills") > 0).findFirst().orElseThrow(AssertionError::new);
+        Assert.assertEquals(1, match.getInt("levelsScanned"));
+        Assert.assertEquals("USD_RUB", match.getString("currencyPair"));
+        Assert.assertTrue(match.getLong("filledAmount") > 0);
+        Assert.assertTrue(events.get("stockmarket.OrderRevoke").stream().anyMatch(event -> event.getLong("refund") > 0));
+        Assert.assertEquals(Currency.EUR.name(), events.get("stockmarket.WithdrawFailure").get(0).getString("currency"));
+    }
+}
@@ -0,0 +1,106 @@
+package stockmarket;
+
+import exception.NotEnoughMoneyException;
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class StockMarketJournalTest {
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void recoverRebuildsBooksAndBalancesTest() {
+        Path path = tempDir.resolve("journal.bin");
+        Map<Integer, Client> clients = newClients();
+        Order cancelledOrder;
+        List<Order> restingOrders;
+        try (StockMarket stockMarket = new StockMarket(journaledConfig(path))) {
+            Random random = new Random(42);
+            CurrencyPair[] currencyPairs = {CurrencyPair.USD_RUB, CurrencyPair.USD_EUR, CurrencyPair.EUR_RUB};
+            for (int i = 0; i < 500; i++) {
+                Client client = clients.get(random.nextInt(clients.size()) + 1);
+                OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+                stockMarket.addOrder(new Order(client, currencyPairs[random.nextInt(currencyPairs.length)], orderType,
+                        new BigDecimal(random.nextInt(11) + 1), new BigDecimal(random.nextInt(2001) + 1000).movePointLeft(2)));
+            }
+            cancelledOrder = stockMarket.getAllOrdersList().get(0);
+            Assert.assertTrue(stockMarket.cancelOrder(cancelledOrder.getId()));
+            stockMarket.revokeAllOrders();
+
+            for (int i = 0; i < 20; i++) {
+                Client client = clients.get(random.nextInt(clients.size()) + 1);
+                stockMarket.addOrder(new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(100 + i)));
+            }
+            restingOrders = stockMarket.getAllOrdersList();
+        }
+
+        Map<Integer, Client> recoveredClients = newClients();
+        try (StockMarket stockMarket = new StockMarket(journaledConfig(path))) {
+            Assert.assertTrue(stockMarket.recover(recoveredClients::get) > 520);
+
+            List<Order> recoveredOrders = stockMarket.getAllOrdersList();
+            Assert.assertEquals(restingOrders, recoveredOrders);
+            for (int id : clients.keySet()) {
+                Assert.assertEquals(clients.get(id).getBalance(), recoveredClients.get(id).getBalance());
+            }
+            Assert.assertFalse(stockMarket.cancelOrder(cancelledOrder.getId()));
+
+            Order order = new Order(recoveredClients.get(1), CurrencyPair.USD_RUB, OrderType.BUY, BigDecimal.ONE, new BigDecimal(1000));
+            Assert.assertTrue(order.getId() > restingOrders.get(restingOrders.size() - 1).getId());
+            stockMarket.addOrder(order);
+        }
+    }
+
+    @Test
+    public void recoverReplaysDepositsAndWithdrawalsTest() {
+        Path path = tempDir.resolve("journal.bin");
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(journaledConfig(path))) {
+            stockMarket.deposit(clients.get(1), Currency.JPY, new BigDecimal("500.25"));
+            stockMarket.withdraw(clients.get(2), Currency.USD, new BigDecimal(99_000));
+            stockMarket.addOrder(new Order(clients.get(2), CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(1000), new BigDecimal(70)));
+            Assert.assertThrows(NotEnoughMoneyException.class, () -> stockMarket.withdraw(clients.get(2), Currency.USD, BigDecimal.ONE));
+            stockMarket.deposit(clients.get(2), Currency.USD, new BigDecimal(10));
+            stockMarket.withdraw(clients.get(2), Currency.USD, new BigDecimal(10));
+        }
+
+        Map<Integer, Client> recoveredClients = newClients();
+        try (StockMarket stockMarket = new StockMarket(journaledConfig(path))) {
+            Assert.assertEquals(5, stockMarket.recover(recoveredClients::get));
+            for (int id : clients.keySet()) {
+                Assert.assertEquals(clients.get(id).getBalance(), recoveredClients.get(id).getBalance());
+            }
+            Assert.assertEquals(0, new BigDecimal("500.25").compareTo(recoveredClients.get(1).getBalance(Currency.JPY)));
+            Assert.assertEquals(0, BigDecimal.ZERO.compareTo(recoveredClients.get(2).getBalance(Currency.USD)));
+        }
+    }
+
+    private static StockMarketConfig journaledConfig(Path path) {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setJournalPath(path);
+        config.setJournalSegmentSize(4096);
+        return config;
+    }
+
+    private static Map<Integer, Client> newClients() {
+        Map<Integer, Client> clients = new HashMap<>();
+        for (int id = 1; id <= 10; id++) {
+            Client client = new Client(id);
+            client.deposit(Currency.USD, new BigDecimal(100_000));
+            client.deposit(Currency.EUR, new BigDecimal(100_000));
+            client.deposit(Currency.RUB, new BigDecimal(100_000));
+            clients.put(id, client);
+        }
+        return clients;
+    }
+}
@@ -0,0 +1,92 @@
+package stockmarket;
+
+import metrics.MarketMetrics;
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+public class StockMarketMetricsTest {
+
+    @Test
+    public void metricsAreDisabledByDefaultTest() {
+        try (StockMarket stockMarket = new StockMarket()) {
+            Assert.assertNull(stockMarket.getMetrics());
+        }
+    }
+
+    @Test
+    public void countersGaugesAndLatenciesTest() {
+        countersGaugesAndLatencies(MatchingMode.LOCKING);
+    }
+
+    @Test
+    public void countersGaugesAndLatenciesSingleWriterTest() {
+        countersGaugesAndLatencies(MatchingMode.SINGLE_WRITER);
+    }
+
+    @Test
+    public void metricsAreExposedThroughJmxTest() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name;
+        try (StockMarket stockMarket = new StockMarket(metricsConfig(MatchingMode.LOCKING))) {
+            Client client = new Client(1);
+            client.deposit(Currency.USD, new BigDecimal(10));
+            stockMarket.addOrder(new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(65)));
+
+            Set<ObjectName> names = mBeanServer.queryNames(new ObjectName("stockmarket:type=MarketMetrics,*"), null);
+            Assert.assertEquals(1, names.size());
+            name = names.iterator().next();
+            CompositeData acceptanceLatency = (CompositeData) mBeanServer.getAttribute(name, "AcceptanceLatency");
+            Assert.assertEquals(1L, acceptanceLatency.get("count"));
+            Assert.assertNotNull(mBeanServer.getAttribute(name, "OrderCounts"));
+        }
+        Assert.assertFalse(mBeanServer.isRegistered(name));
+    }
+
+    private static void countersGaugesAndLatencies(MatchingMode matchingMode) {
+        try (StockMarket stockMarket = new StockMarket(metricsConfig(matchingMode))) {
+            Client client1 = new Client(1);
+            client1.deposit(Currency.USD, new BigDecimal(100));
+            Client client2 = new Client(2);
+            client2.deposit(Currency.RUB, new BigDecimal(10_000));
+
+            stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(65)));
+            stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(66)));
+            Order cancelledOrder = new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(1), new BigDecimal(60));
+            stockMarket.addOrder(cancelledOrder);
+            stockMarket.addOrderAsync(new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(15), new BigDecimal(66))).join();
+            stockMarket.cancelOrder(cancelledOrder.getId());
+
+            MarketMetrics metrics = stockMarket.getMetrics();
+            Assert.assertEquals(4, metrics.getOrderCount(CurrencyPair.USD_RUB));
+            Assert.assertEquals(2, metrics.getFillCount(CurrencyPair.USD_RUB));
+            Assert.assertEquals(1, metrics.getCancelCount(CurrencyPair.USD_RUB));
+            Assert.assertEquals(0, metrics.getOrderCount(CurrencyPair.USD_EUR));
+            Assert.assertEquals(1, metrics.getRestingOrders(CurrencyPair.USD_RUB));
+            Assert.assertEquals(0, metrics.getBidLevels(CurrencyPair.USD_RUB));
+            Assert.assertEquals(1, metrics.getAskLevels(CurrencyPair.USD_RUB));
+
+            Assert.assertEquals(4, metrics.getAcceptanceHistogram().getCount());
+            Assert.assertEquals(4, metrics.getMatchingHistogram().getCount());
+            Assert.assertEquals(2, metrics.getSettlementHistogram().getCount());
+            Assert.assertTrue(metrics.getQueueWaitHistogram().getCount() >= 5);
+            Map<String, Long> orderCounts = metrics.getOrderCounts();
+            Assert.assertEquals(Long.valueOf(4), orderCounts.get(CurrencyPair.USD_RUB.name()));
+        }
+    }
+
+    private static StockMarketConfig metricsConfig(MatchingMode matchingMode) {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setMatchingMode(matchingMode);
+        config.setMetricsEnabled(true);
+        return config;
+    }
+}
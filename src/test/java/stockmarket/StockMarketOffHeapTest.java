@@ -0,0 +1,189 @@
+package stockmarket;
+
+import exception.InvalidOrderException;
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class StockMarketOffHeapTest {
+
+    /**
+     * Pairs with the default trading rules, other tests register pairs with coarser ones
+     */
+    private static final CurrencyPair[] BUILT_IN_PAIRS = Arrays.copyOf(CurrencyPair.values(), CurrencyPair.RUB_JPY.getId() + 1);
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void restingOrdersAreHandedOutAsCopiesTest() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setOrderStorage(OrderStorage.OFF_HEAP);
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            Order sellOrder = new Order(clients.get(1), CurrencyPair.USD_EUR, OrderType.SELL, new BigDecimal(10), new BigDecimal(2));
+            Assert.assertTrue(stockMarket.addOrder(sellOrder));
+            Assert.assertFalse(stockMarket.addOrder(new Order(clients.get(2), CurrencyPair.USD_EUR, OrderType.BUY, new BigDecimal(4), new BigDecimal(3))));
+
+            Assert.assertEquals(0, sellOrder.getAmount().compareTo(new BigDecimal(10)));
+            List<Order> orders = stockMarket.getAllOrdersList();
+            Assert.assertEquals(1, orders.size());
+            Assert.assertEquals(sellOrder, orders.get(0));
+            Assert.assertNotSame(sellOrder, orders.get(0));
+            Assert.assertSame(clients.get(1), orders.get(0).getClient());
+            Assert.assertEquals(0, orders.get(0).getAmount().compareTo(new BigDecimal(6)));
+            Assert.assertEquals(0, clients.get(1).getBalance().get(Currency.EUR).compareTo(new BigDecimal(10_000_000 + 8)));
+            Assert.assertThrows(InvalidOrderException.class, () -> stockMarket.addOrder(orders.get(0)));
+
+            Assert.assertTrue(stockMarket.cancelOrder(sellOrder.getId()));
+            Assert.assertEquals(0, clients.get(1).getBalance().get(Currency.USD).compareTo(new BigDecimal(10_000_000 - 4)));
+        }
+    }
+
+    @Test
+    public void anotherClientObjectWithTheSameIdIsRejectedTest() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setOrderStorage(OrderStorage.OFF_HEAP);
+        Map<Integer, Client> clients = newClients();
+        Client impostor = new Client(1);
+        impostor.deposit(Currency.EUR, new BigDecimal(100));
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            Assert.assertTrue(stockMarket.addOrder(new Order(clients.get(1), CurrencyPair.USD_EUR, OrderType.SELL, new BigDecimal(10), new BigDecimal(2))));
+            Order order = new Order(impostor, CurrencyPair.USD_EUR, OrderType.BUY, new BigDecimal(10), new BigDecimal(2));
+            Assert.assertThrows(IllegalArgumentException.class, () -> stockMarket.addOrder(order));
+            Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+            Assert.assertSame(clients.get(1), stockMarket.getAllOrdersList().get(0).getClient());
+        }
+    }
+
+    @Test
+    public void offHeapBooksMatchLikeHeapBooksTest() {
+        Map<Integer, Client> heapClients = newClients();
+        Map<Integer, Client> offHeapClients = newClients();
+        StockMarketConfig heapConfig = new StockMarketConfig();
+        StockMarketConfig offHeapConfig = new StockMarketConfig();
+        offHeapConfig.setOrderStorage(OrderStorage.OFF_HEAP);
+        try (StockMarket heapMarket = new StockMarket(heapConfig); StockMarket offHeapMarket = new StockMarket(offHeapConfig)) {
+            runWorkload(heapMarket, heapClients, new Random(11));
+            runWorkload(offHeapMarket, offHeapClients, new Random(11));
+
+            List<Order> heapOrders = heapMarket.getAllOrdersList();
+            List<Order> offHeapOrders = offHeapMarket.getAllOrdersList();
+            Assert.assertTrue(heapOrders.size() > 20_000);
+            assertSameOrders(heapOrders, offHeapOrders);
+            assertSameBalances(heapClients, offHeapClients);
+
+            for (int clientId = 1; clientId <= 5; clientId++) {
+                Assert.assertEquals(heapMarket.cancelAllForClient(clientId), offHeapMarket.cancelAllForClient(clientId));
+            }
+            assertSameOrders(heapMarket.getAllOrdersList(), offHeapMarket.getAllOrdersList());
+            heapMarket.revokeAllOrders();
+            offHeapMarket.revokeAllOrders();
+            Assert.assertTrue(offHeapMarket.getAllOrdersList().isEmpty());
+            assertSameBalances(heapClients, offHeapClients);
+        }
+    }
+
+    @Test
+    public void recoverOffHeapBooksFromSnapshotAndJournalTest() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setOrderStorage(OrderStorage.OFF_HEAP);
+        config.setJournalPath(tempDir.resolve("journal.bin"));
+        config.setSnapshotDirectory(tempDir.resolve("snapshots"));
+        Map<Integer, Client> clients = newClients();
+        List<Order> restingOrders;
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            Random random = new Random(5);
+            placeRandomOrders(stockMarket, clients, random, 2_000, null);
+            stockMarket.takeSnapshot(clients.values());
+            placeRandomOrders(stockMarket, clients, random, 500, null);
+            restingOrders = stockMarket.getAllOrdersList();
+        }
+
+        Map<Integer, Client> recoveredClients = newClients();
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            stockMarket.recover(recoveredClients::get);
+            assertSameOrders(restingOrders, stockMarket.getAllOrdersList());
+            Assert.assertEquals(restingOrders, stockMarket.getAllOrdersList());
+            assertSameBalances(clients, recoveredClients);
+        }
+    }
+
+    /**
+     * Random orders over a wide price range so that most of them rest, most of them in one book so that it takes
+     * more than one chunk of off-heap slots, with cancellations and auctions in between
+     */
+    private static void runWorkload(StockMarket stockMarket, Map<Integer, Client> clients, Random random) {
+        for (int round = 0; round < 10; round++) {
+            placeRandomOrders(stockMarket, clients, random, 3_000, CurrencyPair.USD_EUR);
+            List<Order> orders = stockMarket.getAllOrdersList();
+            for (int i = 0; i < 200; i++) {
+                stockMarket.cancelOrder(orders.get(random.nextInt(orders.size())).getId());
+            }
+            CurrencyPair currencyPair = BUILT_IN_PAIRS[round % BUILT_IN_PAIRS.length];
+            stockMarket.setAuctionMode(currencyPair, true);
+            placeRandomOrders(stockMarket, clients, random, 200, currencyPair);
+            stockMarket.setAuctionMode(currencyPair, false);
+        }
+    }
+
+    /**
+     * @param currencyPair pair of most of the orders, null to spread them over all pairs evenly
+     */
+    private static void placeRandomOrders(StockMarket stockMarket, Map<Integer, Client> clients, Random random, int count,
+                                          CurrencyPair currencyPair) {
+        CurrencyPair[] currencyPairs = BUILT_IN_PAIRS;
+        for (int i = 0; i < count; i++) {
+            CurrencyPair orderPair = currencyPair == null || random.nextInt(4) == 0 ? currencyPairs[random.nextInt(currencyPairs.length)] : currencyPair;
+            Client client = clients.get(random.nextInt(clients.size()) + 1);
+            OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+            int price = orderType == OrderType.BUY ? random.nextInt(1_100) + 100 : random.nextInt(1_100) + 1_000;
+            stockMarket.addOrder(new Order(client, orderPair, orderType,
+                    new BigDecimal(random.nextInt(11) + 1), new BigDecimal(price).movePointLeft(2)));
+        }
+    }
+
+    /**
+     * Compares everything but the ids, which differ between two stock markets of one JVM
+     */
+    private static void assertSameOrders(List<Order> expected, List<Order> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Order expectedOrder = expected.get(i);
+            Order actualOrder = actual.get(i);
+            Assert.assertEquals(expectedOrder.getClient().getId(), actualOrder.getClient().getId());
+            Assert.assertEquals(expectedOrder.getCurrencyPair(), actualOrder.getCurrencyPair());
+            Assert.assertEquals(expectedOrder.getOrderType(), actualOrder.getOrderType());
+            Assert.assertEquals(expectedOrder.getPriceUnits(), actualOrder.getPriceUnits());
+            Assert.assertEquals(expectedOrder.getAmountUnits(), actualOrder.getAmountUnits());
+            Assert.assertEquals(expectedOrder.getDepositUnits(), actualOrder.getDepositUnits());
+        }
+    }
+
+    private static void assertSameBalances(Map<Integer, Client> expected, Map<Integer, Client> actual) {
+        for (int id : expected.keySet()) {
+            Assert.assertEquals(expected.get(id).getBalance(), actual.get(id).getBalance());
+        }
+    }
+
+    private static Map<Integer, Client> newClients() {
+        Map<Integer, Client> clients = new HashMap<>();
+        for (int id = 1; id <= 10; id++) {
+            Client client = new Client(id);
+            for (Currency currency : Currency.values()) {
+                client.deposit(currency, new BigDecimal(10_000_000));
+            }
+            clients.put(id, client);
+        }
+        return clients;
+    }
+}
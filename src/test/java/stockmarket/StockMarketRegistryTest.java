@@ -0,0 +1,98 @@
+package stockmarket;
+
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StockMarketRegistryTest {
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void registerCurrencyAndPairTest() {
+        Currency nok = Currency.register("NOK");
+        Assert.assertSame(nok, Currency.register("NOK"));
+        Assert.assertSame(nok, Currency.valueOf("NOK"));
+        Assert.assertSame(nok, Currency.byId(nok.getId()));
+        Assert.assertTrue(nok.getId() >= Currency.SEK.getId() + 1);
+        Assert.assertThrows(IllegalArgumentException.class, () -> Currency.valueOf("XXX"));
+
+        CurrencyPair usdNok = CurrencyPair.register(Currency.USD, nok);
+        Assert.assertEquals("USD_NOK", usdNok.name());
+        Assert.assertSame(usdNok, CurrencyPair.valueOf("USD_NOK"));
+        Assert.assertSame(usdNok, CurrencyPair.values()[usdNok.getId()]);
+        Assert.assertThrows(IllegalArgumentException.class, () -> CurrencyPair.register(nok, nok));
+        Assert.assertThrows(IllegalArgumentException.class, () -> CurrencyPair.byId(CurrencyPair.count()));
+    }
+
+    @Test
+    public void tradePairRegisteredWhileRunningTest() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setMetricsEnabled(true);
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            Client seller = new Client(1);
+            Client buyer = new Client(2);
+            Currency dkk = Currency.register("DKK");
+            CurrencyPair usdDkk = CurrencyPair.register(Currency.USD, dkk, new BigDecimal("0.05"), BigDecimal.ONE);
+            seller.deposit(Currency.USD, new BigDecimal(10));
+            buyer.deposit(dkk, new BigDecimal(100));
+
+            Assert.assertTrue(stockMarket.addOrder(new Order(seller, usdDkk, OrderType.SELL, new BigDecimal(10), new BigDecimal("6.85"))));
+            Assert.assertFalse(stockMarket.addOrder(new Order(buyer, usdDkk, OrderType.BUY, new BigDecimal(4), new BigDecimal("6.90"))));
+
+            Assert.assertEquals(0, new BigDecimal("72.60").compareTo(buyer.getBalance(dkk)));
+            Assert.assertEquals(0, new BigDecimal(4).compareTo(buyer.getBalance(Currency.USD)));
+            Assert.assertEquals(0, new BigDecimal("27.40").compareTo(seller.getBalance(dkk)));
+            Assert.assertEquals(0, new BigDecimal("6.85").compareTo(stockMarket.getBestAskPrice(usdDkk)));
+            Assert.assertEquals(2, stockMarket.getMetrics().getOrderCount(usdDkk));
+            Assert.assertEquals(Long.valueOf(2), stockMarket.getMetrics().getOrderCounts().get("USD_DKK"));
+        }
+    }
+
+    @Test
+    public void recoverPairRegisteredWhileRunningTest() {
+        Map<Integer, Client> clients = new HashMap<>();
+        Currency pln = Currency.register("PLN");
+        CurrencyPair eurPln = CurrencyPair.register(Currency.EUR, pln);
+        List<Order> restingOrders;
+        try (StockMarket stockMarket = new StockMarket(snapshotConfig())) {
+            Client client = newClient(clients, 1, pln);
+            stockMarket.addOrder(new Order(client, eurPln, OrderType.SELL, BigDecimal.ONE, new BigDecimal("4.30")));
+            stockMarket.takeSnapshot(clients.values());
+            stockMarket.addOrder(new Order(client, eurPln, OrderType.BUY, BigDecimal.ONE, new BigDecimal("4.25")));
+            restingOrders = stockMarket.getAllOrdersList();
+        }
+
+        Map<Integer, Client> recoveredClients = new HashMap<>();
+        newClient(recoveredClients, 1, pln);
+        try (StockMarket stockMarket = new StockMarket(snapshotConfig())) {
+            Assert.assertEquals(1, stockMarket.recover(recoveredClients::get));
+            Assert.assertEquals(restingOrders, stockMarket.getAllOrdersList());
+            Assert.assertEquals(clients.get(1).getBalance(), recoveredClients.get(1).getBalance());
+            Assert.assertEquals(0, new BigDecimal("4.25").compareTo(stockMarket.getBestBidPrice(eurPln)));
+        }
+    }
+
+    private StockMarketConfig snapshotConfig() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setJournalPath(tempDir.resolve("journal.bin"));
+        config.setSnapshotDirectory(tempDir.resolve("snapshots"));
+        return config;
+    }
+
+    private static Client newClient(Map<Integer, Client> clients, int id, Currency currency) {
+        Client client = new Client(id);
+        client.deposit(Currency.EUR, new BigDecimal(100));
+        client.deposit(currency, new BigDecimal(100));
+        clients.put(id, client);
+        return client;
+    }
+}
@@ -0,0 +1,187 @@
+package stockmarket;
+
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class StockMarketSingleWriterTest {
+
+    private StockMarket stockMarket;
+
+    @BeforeEach
+    public void before() {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setMatchingMode(MatchingMode.SINGLE_WRITER);
+        config.setMatchingThreads(2);
+        config.setRingBufferCapacity(16);
+        config.setPublishedDepthLevels(10);
+        stockMarket = new StockMarket(config);
+    }
+
+    @AfterEach
+    public void after() {
+        stockMarket.close();
+    }
+
+    @Test
+    public void addOrderAsyncReturnsResultTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(15));
+        OrderResult result1 = stockMarket.addOrderAsync(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(15), new BigDecimal(65))).join();
+        Assert.assertTrue(result1.isResting());
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.RUB, new BigDecimal(1000));
+        OrderResult result2 = stockMarket.addOrderAsync(new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(66.66))).join();
+
+        Assert.assertFalse(result2.isResting());
+        Assert.assertEquals(0, result2.getFilledAmount().compareTo(new BigDecimal(10)));
+        Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, client2.getBalance().get(Currency.RUB).compareTo(new BigDecimal(350)));
+    }
+
+    @RepeatedTest(20)
+    public void createManyRandomOrdersAndCheckSumsTest() {
+        Random random = new Random();
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Client client = new Client(i + 1);
+            client.deposit(Currency.USD, new BigDecimal(random.nextInt(100_001) + 10_000));
+            client.deposit(Currency.RUB, new BigDecimal(random.nextInt(100_001) + 10_000));
+            client.deposit(Currency.EUR, new BigDecimal(random.nextInt(100_001) + 10_000));
+            clients.add(client);
+        }
+        BigDecimal usdSumBefore = sum(clients, Currency.USD);
+        BigDecimal rubSumBefore = sum(clients, Currency.RUB);
+
+        CurrencyPair[] currencyPairs = {CurrencyPair.USD_RUB, CurrencyPair.USD_EUR, CurrencyPair.EUR_RUB};
+        List<CompletableFuture<OrderResult>> results = new ArrayList<>();
+        for (Client client : clients) {
+            OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+            Order order = new Order(client, currencyPairs[random.nextInt(currencyPairs.length)], orderType,
+                    new BigDecimal(random.nextInt(11) + 1), new BigDecimal(random.nextInt(101) + 10));
+            results.add(stockMarket.addOrderAsync(order));
+        }
+        results.forEach(CompletableFuture::join);
+
+        stockMarket.revokeAllOrders();
+
+        Assert.assertEquals(0, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, usdSumBefore.compareTo(sum(clients, Currency.USD)));
+        Assert.assertEquals(0, rubSumBefore.compareTo(sum(clients, Currency.RUB)));
+    }
+
+    @RepeatedTest(20)
+    public void addOrdersMatchesEveryPairInArrivalOrderTest() {
+        CurrencyPair[] currencyPairs = {CurrencyPair.USD_RUB, CurrencyPair.USD_EUR, CurrencyPair.EUR_RUB, CurrencyPair.USD_JPY};
+        Client seller = new Client(1);
+        Client buyer = new Client(2);
+        for (Currency currency : Currency.values()) {
+            seller.deposit(currency, new BigDecimal(1_000));
+            buyer.deposit(currency, new BigDecimal(1_000));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (CurrencyPair currencyPair : currencyPairs) {
+            orders.add(new Order(seller, currencyPair, OrderType.SELL, new BigDecimal(10), new BigDecimal(2)));
+        }
+        for (CurrencyPair currencyPair : currencyPairs) {
+            orders.add(new Order(buyer, currencyPair, OrderType.BUY, new BigDecimal(4), new BigDecimal(3)));
+        }
+        List<OrderResult> results = stockMarket.addOrders(orders);
+
+        for (int i = 0; i < currencyPairs.length; i++) {
+            Assert.assertTrue(results.get(i).isResting());
+            Assert.assertEquals(0, results.get(i + currencyPairs.length).getFilledAmount().compareTo(new BigDecimal(4)));
+        }
+        Assert.assertEquals(0, buyer.getBalance().get(Currency.RUB).compareTo(new BigDecimal(984)));
+        Assert.assertEquals(currencyPairs.length, stockMarket.getAllOrdersList().size());
+    }
+
+    @Test
+    public void publishedDepthIsConsistentWhileMatchingTest() throws Exception {
+        Client seller = new Client(1);
+        seller.deposit(Currency.USD, new BigDecimal(1_000_000));
+        Client buyer = new Client(2);
+        buyer.deposit(Currency.RUB, new BigDecimal(100_000_000));
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            Random random = new Random(3);
+            for (int i = 0; i < 5_000; i++) {
+                boolean sell = random.nextBoolean();
+                stockMarket.addOrderAsync(new Order(sell ? seller : buyer, CurrencyPair.USD_RUB, sell ? OrderType.SELL : OrderType.BUY,
+                        new BigDecimal(random.nextInt(10) + 1), new BigDecimal(random.nextInt(21) + 60)));
+            }
+        });
+
+        long lastVersion = 0;
+        while (!writer.isDone()) {
+            MarketDepth depth = stockMarket.getPublishedDepth(CurrencyPair.USD_RUB);
+            Assert.assertTrue(depth.getVersion() >= lastVersion);
+            lastVersion = depth.getVersion();
+            if (!depth.getBids().isEmpty() && !depth.getAsks().isEmpty()) {
+                Assert.assertTrue(depth.getBids().get(0).getPriceUnits() < depth.getAsks().get(0).getPriceUnits());
+            }
+            for (DepthLevel level : depth.getAsks()) {
+                Assert.assertTrue(level.getVolumeUnits() > 0);
+            }
+        }
+        writer.get();
+
+        MarketDepth depth = stockMarket.getDepth(CurrencyPair.USD_RUB, 10);
+        MarketDepth publishedDepth = stockMarket.getPublishedDepth(CurrencyPair.USD_RUB);
+        Assert.assertEquals(depth.getVersion(), publishedDepth.getVersion());
+        Assert.assertEquals(depth.getBids().size(), publishedDepth.getBids().size());
+        Assert.assertEquals(depth.getAsks().size(), publishedDepth.getAsks().size());
+        for (int i = 0; i < depth.getAsks().size(); i++) {
+            Assert.assertEquals(depth.getAsks().get(i).getVolumeUnits(), publishedDepth.getAsks().get(i).getVolumeUnits());
+        }
+    }
+
+    @Test
+    public void addOrderAfterCloseFailsTest() {
+        stockMarket.close();
+        Client client = new Client(1);
+        client.deposit(Currency.USD, new BigDecimal(15));
+        Order order = new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(15), new BigDecimal(65));
+        Assert.assertThrows(IllegalStateException.class, () -> stockMarket.addOrder(order));
+    }
+
+    @RepeatedTest(20)
+    public void addOrdersWhileClosingCompleteTest() throws Exception {
+        Client client = new Client(1);
+        client.deposit(Currency.USD, new BigDecimal(1_000_000));
+        List<CompletableFuture<OrderResult>> futures = new ArrayList<>();
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                Order order = new Order(client, CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(65 + i % 10));
+                futures.add(stockMarket.addOrderAsync(order));
+            }
+        });
+        producer.start();
+        Thread.sleep(1);
+        stockMarket.close();
+        producer.join();
+        for (CompletableFuture<OrderResult> future : futures) {
+            Assert.assertTrue(future.handle((result, e) -> true).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static BigDecimal sum(List<Client> clients, Currency currency) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Client client : clients) {
+            sum = sum.add(client.getBalance().get(currency));
+        }
+        return sum;
+    }
+}
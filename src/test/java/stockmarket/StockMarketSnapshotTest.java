@@ -0,0 +1,154 @@
+package stockmarket;
+
+import model.*;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class StockMarketSnapshotTest {
+
+    /**
+     * Pairs with the default trading rules, other tests register pairs with coarser ones
+     */
+    private static final CurrencyPair[] BUILT_IN_PAIRS = Arrays.copyOf(CurrencyPair.values(), CurrencyPair.RUB_JPY.getId() + 1);
+
+    @TempDir
+    public Path tempDir;
+
+    @Test
+    public void recoverFromSnapshotAndJournalTailTest() {
+        recoverFromSnapshotAndJournalTail(MatchingMode.LOCKING);
+    }
+
+    @Test
+    public void recoverFromSnapshotAndJournalTailSingleWriterTest() {
+        recoverFromSnapshotAndJournalTail(MatchingMode.SINGLE_WRITER);
+    }
+
+    @Test
+    public void onlyLatestSnapshotsAreKeptTest() throws Exception {
+        Map<Integer, Client> clients = newClients();
+        StockMarketConfig config = snapshotConfig(MatchingMode.LOCKING);
+        config.setSnapshotsToKeep(2);
+        try (StockMarket stockMarket = new StockMarket(config)) {
+            Path lastSnapshot = null;
+            for (int i = 0; i < 4; i++) {
+                stockMarket.addOrder(new Order(clients.get(1), CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(100 + i)));
+                lastSnapshot = stockMarket.takeSnapshot(clients.values());
+            }
+            try (Stream<Path> files = Files.list(tempDir.resolve("snapshots"))) {
+                Assert.assertEquals(2, files.count());
+            }
+            Assert.assertTrue(Files.exists(lastSnapshot));
+        }
+    }
+
+    @Test
+    public void orderCreatedBeforeSnapshotIsNotChargedTwiceTest() {
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(snapshotConfig(MatchingMode.SINGLE_WRITER))) {
+            stockMarket.addOrder(new Order(clients.get(1), CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(100)));
+            stockMarket.deposit(clients.get(4), Currency.EUR, new BigDecimal(5));
+            Order knownClientOrder = new Order(clients.get(1), CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(90));
+            Order newClientOrder = new Order(clients.get(2), CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(3), new BigDecimal(110));
+            stockMarket.takeSnapshot(List.of());
+            stockMarket.addOrder(knownClientOrder);
+            stockMarket.addOrder(newClientOrder);
+            stockMarket.deposit(clients.get(3), Currency.USD, new BigDecimal(7));
+        }
+
+        Map<Integer, Client> recoveredClients = newClients();
+        try (StockMarket stockMarket = new StockMarket(snapshotConfig(MatchingMode.SINGLE_WRITER))) {
+            Assert.assertEquals(3, stockMarket.recover(recoveredClients::get));
+            Assert.assertEquals(3, stockMarket.getAllOrdersList().size());
+            for (int id : clients.keySet()) {
+                Assert.assertEquals(clients.get(id).getBalance(), recoveredClients.get(id).getBalance());
+            }
+        }
+    }
+
+    @Test
+    public void snapshotOfAnotherClientObjectIsRejectedTest() {
+        Map<Integer, Client> clients = newClients();
+        try (StockMarket stockMarket = new StockMarket(snapshotConfig(MatchingMode.LOCKING))) {
+            stockMarket.addOrder(new Order(clients.get(1), CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(100)));
+            Assert.assertThrows(IllegalArgumentException.class, () -> stockMarket.takeSnapshot(List.of(new Client(1))));
+            Assert.assertThrows(IllegalArgumentException.class, () -> stockMarket.addOrder(
+                    new Order(newClients().get(1), CurrencyPair.USD_RUB, OrderType.SELL, BigDecimal.ONE, new BigDecimal(100))));
+        }
+    }
+
+    private void recoverFromSnapshotAndJournalTail(MatchingMode matchingMode) {
+        Map<Integer, Client> clients = newClients();
+        List<Order> restingOrders;
+        try (StockMarket stockMarket = new StockMarket(snapshotConfig(matchingMode))) {
+            Random random = new Random(7);
+            placeRandomOrders(stockMarket, clients, random, 500);
+            stockMarket.cancelOrder(stockMarket.getAllOrdersList().get(0).getId());
+            stockMarket.takeSnapshot(clients.values());
+            placeRandomOrders(stockMarket, clients, random, 100);
+            restingOrders = stockMarket.getAllOrdersList();
+        }
+
+        Map<Integer, Client> recoveredClients = newClients();
+        try (StockMarket stockMarket = new StockMarket(snapshotConfig(matchingMode))) {
+            long replayedRecords = stockMarket.recover(recoveredClients::get);
+            Assert.assertTrue(replayedRecords >= 100);
+            Assert.assertTrue(replayedRecords < 500);
+
+            List<Order> recoveredOrders = stockMarket.getAllOrdersList();
+            Assert.assertEquals(restingOrders, recoveredOrders);
+            for (int i = 0; i < restingOrders.size(); i++) {
+                Assert.assertEquals(restingOrders.get(i).getAmountUnits(), recoveredOrders.get(i).getAmountUnits());
+                Assert.assertEquals(restingOrders.get(i).getDepositUnits(), recoveredOrders.get(i).getDepositUnits());
+            }
+            for (int id : clients.keySet()) {
+                Assert.assertEquals(clients.get(id).getBalance(), recoveredClients.get(id).getBalance());
+            }
+
+            stockMarket.revokeAllOrders();
+            Assert.assertTrue(stockMarket.getAllOrdersList().isEmpty());
+        }
+    }
+
+    private static void placeRandomOrders(StockMarket stockMarket, Map<Integer, Client> clients, Random random, int count) {
+        CurrencyPair[] currencyPairs = BUILT_IN_PAIRS;
+        for (int i = 0; i < count; i++) {
+            Client client = clients.get(random.nextInt(clients.size()) + 1);
+            OrderType orderType = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+            stockMarket.addOrder(new Order(client, currencyPairs[random.nextInt(currencyPairs.length)], orderType,
+                    new BigDecimal(random.nextInt(11) + 1), new BigDecimal(random.nextInt(2001) + 1000).movePointLeft(2)));
+        }
+    }
+
+    private StockMarketConfig snapshotConfig(MatchingMode matchingMode) {
+        StockMarketConfig config = new StockMarketConfig();
+        config.setMatchingMode(matchingMode);
+        config.setJournalPath(tempDir.resolve("journal.bin"));
+        config.setJournalSegmentSize(4096);
+        config.setSnapshotDirectory(tempDir.resolve("snapshots"));
+        return config;
+    }
+
+    private static Map<Integer, Client> newClients() {
+        Map<Integer, Client> clients = new HashMap<>();
+        for (int id = 1; id <= 10; id++) {
+            Client client = new Client(id);
+            for (Currency currency : Currency.values()) {
+                client.deposit(currency, new BigDecimal(100_000));
+            }
+            clients.put(id, client);
+        }
+        return clients;
+    }
+}
@@ -1,18 +1,21 @@
 package stockmarket;
 
+import exception.InvalidOrderException;
 import model.*;
 import org.junit.Assert;
-import org.junit.Before;
-import org.junit.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import util.CurrencyUtils;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 
 public class StockMarketTest {
 
     private StockMarket stockMarket;
 
-    @Before
+    @BeforeEach
     public void before() {
         stockMarket = new StockMarket();
     }
@@ -129,4 +132,239 @@ public class StockMarketTest {
         Assert.assertEquals(2, stockMarket.getAllOrdersList().size());
     }
 
+    @Test
+    public void addOrderMatchesBestPriceFirstTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(10));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(70)));
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.USD, new BigDecimal(10));
+        stockMarket.addOrder(new Order(client2, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(65)));
+
+        Assert.assertEquals(0, stockMarket.getBestAskPrice(CurrencyPair.USD_RUB).compareTo(new BigDecimal(65)));
+
+        Client client3 = new Client(3);
+        client3.deposit(Currency.RUB, new BigDecimal(1000));
+        stockMarket.addOrder(new Order(client3, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(80)));
+
+        Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, client2.getBalance().get(Currency.RUB).compareTo(new BigDecimal(650)));
+        Assert.assertEquals(0, client1.getBalance().get(Currency.RUB).compareTo(BigDecimal.ZERO));
+        Assert.assertEquals(0, client3.getBalance().get(Currency.RUB).compareTo(new BigDecimal(350)));
+        Assert.assertEquals(0, stockMarket.getBestAskPrice(CurrencyPair.USD_RUB).compareTo(new BigDecimal(70)));
+        Assert.assertNull(stockMarket.getBestBidPrice(CurrencyPair.USD_RUB));
+    }
+
+    @Test
+    public void addOrderMatchesSamePriceInArrivalOrderTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(10));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(65)));
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.USD, new BigDecimal(10));
+        stockMarket.addOrder(new Order(client2, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(65)));
+
+        Client client3 = new Client(3);
+        client3.deposit(Currency.RUB, new BigDecimal(1000));
+        stockMarket.addOrder(new Order(client3, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(65)));
+
+        Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, client1.getBalance().get(Currency.RUB).compareTo(new BigDecimal(650)));
+        Assert.assertEquals(0, client2.getBalance().get(Currency.RUB).compareTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    public void addOrderSkipsOwnOrdersTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(10));
+        client1.deposit(Currency.RUB, new BigDecimal(1000));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(60)));
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.USD, new BigDecimal(10));
+        stockMarket.addOrder(new Order(client2, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(65)));
+
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(65)));
+
+        Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, client1.getBalance().get(Currency.USD).compareTo(new BigDecimal(10)));
+        Assert.assertEquals(0, client2.getBalance().get(Currency.RUB).compareTo(new BigDecimal(650)));
+        Assert.assertEquals(0, stockMarket.getBestAskPrice(CurrencyPair.USD_RUB).compareTo(new BigDecimal(60)));
+    }
+
+    @Test
+    public void cancelOrderTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.RUB, new BigDecimal(1000));
+        Order order1 = new Order(client1, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(60));
+        stockMarket.addOrder(order1);
+        Order order2 = new Order(client1, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(5), new BigDecimal(61));
+        stockMarket.addOrder(order2);
+
+        Assert.assertTrue(stockMarket.cancelOrder(order2.getId()));
+        Assert.assertFalse(stockMarket.cancelOrder(order2.getId()));
+
+        Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, stockMarket.getBestBidPrice(CurrencyPair.USD_RUB).compareTo(new BigDecimal(60)));
+        Assert.assertEquals(0, client1.getBalance().get(Currency.RUB).compareTo(new BigDecimal(400)));
+    }
+
+    @Test
+    public void addPlacedOrderAgainTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.RUB, new BigDecimal(1000));
+        Order order1 = new Order(client1, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(60));
+        stockMarket.addOrder(order1);
+        Assert.assertThrows(InvalidOrderException.class, () -> stockMarket.addOrder(order1));
+        Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+
+        Assert.assertTrue(stockMarket.cancelOrder(order1.getId()));
+        Assert.assertThrows(InvalidOrderException.class, () -> stockMarket.addOrder(order1));
+        Assert.assertTrue(stockMarket.getAllOrdersList().isEmpty());
+        Assert.assertEquals(0, client1.getBalance().get(Currency.RUB).compareTo(new BigDecimal(1000)));
+    }
+
+    @Test
+    public void cancelOrderOfAnotherPairTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.EUR, new BigDecimal(100));
+        Order order1 = new Order(client1, CurrencyPair.EUR_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(90));
+        stockMarket.addOrder(order1);
+        Assert.assertEquals(CurrencyPair.EUR_RUB.getId(), Order.getCurrencyPairId(order1.getId()));
+
+        long otherPairId = order1.getId() - CurrencyPair.EUR_RUB.getId() + CurrencyPair.USD_RUB.getId();
+        Assert.assertFalse(stockMarket.cancelOrder(otherPairId));
+        Assert.assertFalse(stockMarket.cancelOrder(order1.getId() - CurrencyPair.EUR_RUB.getId() + CurrencyPair.MAX_COUNT - 1));
+        Assert.assertTrue(stockMarket.cancelOrder(order1.getId()));
+        Assert.assertEquals(0, client1.getBalance().get(Currency.EUR).compareTo(new BigDecimal(100)));
+    }
+
+    @Test
+    public void cancelFilledOrderTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(15));
+        Order order1 = new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(15), new BigDecimal(65));
+        stockMarket.addOrder(order1);
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.RUB, new BigDecimal(1000));
+        stockMarket.addOrder(new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(15), new BigDecimal(65)));
+
+        Assert.assertFalse(stockMarket.cancelOrder(order1.getId()));
+        Assert.assertEquals(0, client1.getBalance().get(Currency.USD).compareTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    public void cancelAllForClientTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.RUB, new BigDecimal(1000));
+        client1.deposit(Currency.EUR, new BigDecimal(100));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(5), new BigDecimal(60)));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(5), new BigDecimal(61)));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(2), new BigDecimal(60)));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_EUR, OrderType.BUY, new BigDecimal(10), new BigDecimal(0.8)));
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.RUB, new BigDecimal(1000));
+        Order order2 = new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(3), new BigDecimal(60));
+        stockMarket.addOrder(order2);
+
+        Assert.assertEquals(0, stockMarket.cancelAllForClient(3));
+        Assert.assertEquals(3, stockMarket.cancelAllForClient(1, CurrencyPair.USD_RUB));
+        Assert.assertEquals(0, client1.getBalance().get(Currency.RUB).compareTo(new BigDecimal(1000)));
+        Assert.assertEquals(2, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, stockMarket.getVolumeAt(CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(60)).compareTo(new BigDecimal(3)));
+
+        Assert.assertEquals(1, stockMarket.cancelAllForClient(1));
+        Assert.assertEquals(0, client1.getBalance().get(Currency.EUR).compareTo(new BigDecimal(100)));
+        Assert.assertEquals(Arrays.asList(order2), stockMarket.getAllOrdersList());
+        Assert.assertEquals(0, stockMarket.cancelAllForClient(1));
+        Assert.assertTrue(stockMarket.cancelOrder(order2.getId()));
+    }
+
+    @Test
+    public void addOrdersReportsRefusedOrdersTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(20));
+        Client client2 = new Client(2);
+        client2.deposit(Currency.RUB, new BigDecimal(1000));
+        Order filled = new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(65));
+        stockMarket.addOrder(filled);
+        stockMarket.addOrder(new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(65)));
+
+        List<Order> orders = Arrays.asList(
+                filled,
+                new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(66)));
+        List<OrderResult> results = stockMarket.addOrders(orders);
+
+        Assert.assertTrue(results.get(0).getError() instanceof InvalidOrderException);
+        Assert.assertFalse(results.get(0).isResting());
+        Assert.assertNull(results.get(1).getError());
+        Assert.assertTrue(results.get(1).isResting());
+        Assert.assertEquals(1, stockMarket.getAllOrdersList().size());
+    }
+
+    @Test
+    public void addOrdersTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(40));
+        Client client2 = new Client(2);
+        client2.deposit(Currency.RUB, new BigDecimal(10_000));
+        client2.deposit(Currency.EUR, new BigDecimal(100));
+
+        List<Order> orders = Arrays.asList(
+                new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(15), new BigDecimal(65)),
+                new Order(client1, CurrencyPair.USD_EUR, OrderType.SELL, new BigDecimal(10), new BigDecimal(0.9)),
+                new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(70)),
+                new Order(client2, CurrencyPair.USD_EUR, OrderType.BUY, new BigDecimal(20), new BigDecimal(0.8)),
+                new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(10), new BigDecimal(66)));
+        List<OrderResult> results = stockMarket.addOrders(orders);
+
+        Assert.assertEquals(orders.size(), results.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Assert.assertSame(orders.get(i), results.get(i).getOrder());
+        }
+        Assert.assertTrue(results.get(0).isResting());
+        Assert.assertEquals(0, results.get(2).getFilledAmount().compareTo(new BigDecimal(10)));
+        Assert.assertEquals(0, results.get(4).getFilledAmount().compareTo(new BigDecimal(5)));
+        Assert.assertEquals(0, results.get(4).getRemainingAmount().compareTo(new BigDecimal(5)));
+        Assert.assertTrue(results.get(3).isResting());
+        Assert.assertEquals(3, stockMarket.getAllOrdersList().size());
+        Assert.assertEquals(0, client1.getBalance().get(Currency.RUB).compareTo(new BigDecimal(975)));
+    }
+
+    @Test
+    public void getDepthTest() {
+        Client client1 = new Client(1);
+        client1.deposit(Currency.USD, new BigDecimal(100));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(10), new BigDecimal(66)));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(5), new BigDecimal(65)));
+        stockMarket.addOrder(new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(7), new BigDecimal(65)));
+        Order cancelledOrder = new Order(client1, CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(3), new BigDecimal(67));
+        stockMarket.addOrder(cancelledOrder);
+        stockMarket.cancelOrder(cancelledOrder.getId());
+
+        Client client2 = new Client(2);
+        client2.deposit(Currency.RUB, new BigDecimal(10_000));
+        stockMarket.addOrder(new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(8), new BigDecimal(65)));
+        stockMarket.addOrder(new Order(client2, CurrencyPair.USD_RUB, OrderType.BUY, new BigDecimal(4), new BigDecimal(60)));
+
+        MarketDepth depth = stockMarket.getDepth(CurrencyPair.USD_RUB, 5);
+        Assert.assertEquals(1, depth.getBids().size());
+        Assert.assertEquals(0, depth.getBids().get(0).getPrice().compareTo(new BigDecimal(60)));
+        Assert.assertEquals(0, depth.getBids().get(0).getVolume().compareTo(new BigDecimal(4)));
+        Assert.assertEquals(2, depth.getAsks().size());
+        Assert.assertEquals(0, depth.getAsks().get(0).getPrice().compareTo(new BigDecimal(65)));
+        Assert.assertEquals(0, depth.getAsks().get(0).getVolume().compareTo(new BigDecimal(4)));
+        Assert.assertEquals(1, depth.getAsks().get(0).getOrderCount());
+        Assert.assertEquals(0, depth.getAsks().get(1).getVolume().compareTo(new BigDecimal(10)));
+
+        Assert.assertEquals(1, stockMarket.getDepth(CurrencyPair.USD_RUB, 1).getAsks().size());
+        Assert.assertEquals(0, stockMarket.getVolumeAt(CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(66)).compareTo(new BigDecimal(10)));
+        Assert.assertEquals(0, stockMarket.getVolumeAt(CurrencyPair.USD_RUB, OrderType.SELL, new BigDecimal(67)).signum());
+        Assert.assertTrue(stockMarket.getDepth(CurrencyPair.USD_EUR, 5).getBids().isEmpty());
+    }
+
 }
@@ -0,0 +1,71 @@
+package util;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+public class FixedPointUtilsTest {
+
+    @Test
+    public void toUnitsRoundsHalfEvenTest() {
+        Assert.assertEquals(12, FixedPointUtils.toUnits(new BigDecimal("0.125")));
+        Assert.assertEquals(14, FixedPointUtils.toUnits(new BigDecimal("0.135")));
+        Assert.assertEquals(-12, FixedPointUtils.toUnits(new BigDecimal("-0.125")));
+        Assert.assertEquals(6666, FixedPointUtils.toUnits(new BigDecimal(66.66)));
+    }
+
+    @Test
+    public void multiplyRoundsHalfEvenTest() {
+        Assert.assertEquals(100, FixedPointUtils.multiply(50, 200));
+        Assert.assertEquals(0, FixedPointUtils.multiply(1, 50));
+        Assert.assertEquals(2, FixedPointUtils.multiply(3, 50));
+        Assert.assertEquals(-2, FixedPointUtils.multiply(-3, 50));
+        Assert.assertEquals(99990, FixedPointUtils.multiply(1500, 6666));
+    }
+
+    @Test
+    public void multiplyOverflowTest() {
+        Assert.assertThrows(ArithmeticException.class, () -> FixedPointUtils.multiply(Long.MAX_VALUE / 2, 300));
+    }
+
+    @Test
+    public void addUnroundedValueTest() {
+        Assert.assertEquals(2, FixedPointUtils.add(1, new BigDecimal("0.005")));
+        Assert.assertEquals(2, FixedPointUtils.add(2, new BigDecimal("0.005")));
+        Assert.assertEquals(66667, FixedPointUtils.add(100_000, new BigDecimal(-333.33)));
+    }
+
+    @Test
+    public void parseUnitsTest() {
+        Assert.assertEquals(1250, parseUnits("12.5"));
+        Assert.assertEquals(-1205, parseUnits("-12.05"));
+        Assert.assertEquals(50, parseUnits(".5"));
+        Assert.assertEquals(700, parseUnits("7."));
+        Assert.assertEquals(100_000, parseUnits("1E+3"));
+        Assert.assertEquals(130, parseUnits("1.3000"));
+        Assert.assertEquals(130, parseUnits("x1.3y".subSequence(1, 4)));
+        Assert.assertThrows(NumberFormatException.class, () -> parseUnits("1.005"));
+        Assert.assertThrows(NumberFormatException.class, () -> parseUnits("-"));
+        Assert.assertThrows(NumberFormatException.class, () -> parseUnits("1,5"));
+        Assert.assertThrows(ArithmeticException.class, () -> parseUnits("1000000000000000000"));
+    }
+
+    @RepeatedTest(20)
+    public void multiplyMatchesBigDecimalTest() {
+        Random random = new Random();
+        for (int i = 0; i < 1000; i++) {
+            long a = random.nextInt(100_000_000) - 50_000_000;
+            long b = random.nextInt(100_000_000);
+            BigDecimal expected = FixedPointUtils.toBigDecimal(a).multiply(FixedPointUtils.toBigDecimal(b))
+                    .setScale(CurrencyUtils.SCALE, CurrencyUtils.ROUNDING_MODE);
+            Assert.assertEquals(expected, FixedPointUtils.toBigDecimal(FixedPointUtils.multiply(a, b)));
+        }
+    }
+
+    private static long parseUnits(CharSequence text) {
+        return FixedPointUtils.parseUnits(text, 0, text.length());
+    }
+}
@@ -0,0 +1,40 @@
+package util;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+public class GrowableAtomicLongArrayTest {
+
+    @Test
+    public void growsOnWriteTest() {
+        GrowableAtomicLongArray array = new GrowableAtomicLongArray(9);
+        Assert.assertEquals(9, array.length());
+        array.set(3, 7);
+        Assert.assertEquals(0, array.get(100));
+        Assert.assertEquals(9, array.length());
+
+        Assert.assertTrue(array.compareAndSet(40, 0, 5));
+        Assert.assertEquals(41, array.length());
+        Assert.assertEquals(5, array.getAndIncrement(40));
+        Assert.assertEquals(6, array.get(40));
+        Assert.assertEquals(9, array.accumulateAndGet(40, 9, Math::max));
+        Assert.assertEquals(7, array.get(3));
+    }
+
+    @Test
+    public void updatesRacingWithGrowthAreKeptTest() throws Exception {
+        GrowableAtomicLongArray array = new GrowableAtomicLongArray(1);
+        Thread grower = new Thread(() -> {
+            for (int i = 1; i < 10_000; i++) {
+                array.set(i, 1);
+            }
+        });
+        grower.start();
+        for (int i = 0; i < 100_000; i++) {
+            array.getAndIncrement(0);
+        }
+        grower.join();
+        Assert.assertEquals(100_000, array.get(0));
+        Assert.assertEquals(1, array.get(9_999));
+    }
+}
@@ -0,0 +1,53 @@
+package util;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void putGetRemoveTest() {
+        LongIntHashMap map = new LongIntHashMap(0, -1);
+        Assert.assertEquals(-1, map.put(1, 10));
+        Assert.assertEquals(10, map.put(1, 11));
+        Assert.assertEquals(-1, map.put(-1, 0));
+        Assert.assertEquals(11, map.get(1));
+        Assert.assertEquals(0, map.get(-1));
+        Assert.assertEquals(-1, map.get(2));
+        Assert.assertEquals(2, map.size());
+
+        Assert.assertEquals(11, map.remove(1));
+        Assert.assertEquals(-1, map.remove(1));
+        Assert.assertEquals(1, map.size());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(-1, map.get(-1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> map.put(3, -1));
+    }
+
+    @RepeatedTest(10)
+    public void behavesLikeHashMapTest() {
+        Random random = new Random();
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) * 1024L;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals((int) expected.getOrDefault(key, -1), map.remove(key));
+                expected.remove(key);
+            } else {
+                Assert.assertEquals((int) expected.getOrDefault(key, -1), map.put(key, i));
+                expected.put(key, i);
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000 * 1024L; key += 1024) {
+            Assert.assertEquals((int) expected.getOrDefault(key, -1), map.get(key));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package util;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongObjectHashMapTest {
+
+    @Test
+    public void putGetRemoveTest() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Assert.assertNull(map.put(1, "a"));
+        Assert.assertEquals("a", map.put(1, "b"));
+        Assert.assertNull(map.put(-1, "c"));
+        Assert.assertEquals("b", map.get(1));
+        Assert.assertEquals("c", map.get(-1));
+        Assert.assertNull(map.get(2));
+        Assert.assertEquals(2, map.size());
+
+        Assert.assertEquals("b", map.remove(1));
+        Assert.assertNull(map.remove(1));
+        Assert.assertEquals(1, map.size());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(-1));
+    }
+
+    @RepeatedTest(10)
+    public void behavesLikeHashMapTest() {
+        Random random = new Random();
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) * 1024L;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000 * 1024L; key += 1024) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
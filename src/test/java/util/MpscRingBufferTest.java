@@ -0,0 +1,74 @@
+package util;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void offerUntilFullThenPollTest() {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(3);
+        Assert.assertEquals(4, ringBuffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(ringBuffer.offer(i));
+        }
+        Assert.assertFalse(ringBuffer.offer(4));
+        Assert.assertEquals(4, ringBuffer.size());
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(Integer.valueOf(i), ringBuffer.poll());
+        }
+        Assert.assertNull(ringBuffer.poll());
+        Assert.assertTrue(ringBuffer.offer(5));
+        Assert.assertEquals(Integer.valueOf(5), ringBuffer.poll());
+    }
+
+    @RepeatedTest(20)
+    public void manyProducersKeepOrderPerProducerTest() throws InterruptedException {
+        int producers = 4;
+        int elementsPerProducer = 50_000;
+        MpscRingBuffer<long[]> ringBuffer = new MpscRingBuffer<>(64);
+        CountDownLatch countDownLatch = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            int producer = i;
+            threads.add(new Thread(() -> {
+                try {
+                    countDownLatch.await();
+                    for (int j = 0; j < elementsPerProducer; j++) {
+                        while (!ringBuffer.offer(new long[]{producer, j})) {
+                            Thread.yield();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        countDownLatch.countDown();
+
+        long[] expected = new long[producers];
+        int received = 0;
+        while (received < producers * elementsPerProducer) {
+            long[] element = ringBuffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            Assert.assertEquals(expected[(int) element[0]]++, element[1]);
+            received++;
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(ringBuffer.isEmpty());
+    }
+}